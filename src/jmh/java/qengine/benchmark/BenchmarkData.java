@@ -0,0 +1,65 @@
+package qengine.benchmark;
+
+import qengine.model.RDFTriple;
+import qengine.model.StarQuery;
+import qengine.parser.FastNTriplesParser;
+import qengine.parser.StarQuerySparQLParser;
+import qengine.storage.RDFHexaStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Données communes aux bancs d'essai : les premiers triplets d'un fichier N-Triples, ce qui permet de faire
+ * varier la taille du jeu de données à partir d'un même fichier WatDiv, et les requêtes d'un fichier de requêtes.
+ */
+final class BenchmarkData {
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * @return les count premiers triplets du fichier
+	 * @throws IllegalStateException si le fichier contient moins de count triplets : le banc d'essai mesurerait
+	 *                               un jeu de données plus petit que celui annoncé par ses paramètres
+	 */
+	static List<RDFTriple> triples(String dataFile, int count) throws IOException {
+		List<RDFTriple> triples = new ArrayList<>();
+		try (FastNTriplesParser parser = new FastNTriplesParser(new File(dataFile))) {
+			while (triples.size() < count && parser.hasNext()) {
+				triples.add(parser.next());
+			}
+		}
+		if (triples.size() < count) {
+			throw new IllegalStateException(dataFile + " ne contient que " + triples.size() + " triplets sur les "
+					+ count + " demandés : utiliser un fichier WatDiv plus grand (-p dataFile=...)");
+		}
+		return triples;
+	}
+
+	/**
+	 * @return un HexaStore chargé en masse avec les triplets, déjà indexé
+	 */
+	static RDFHexaStore store(List<RDFTriple> triples) {
+		RDFHexaStore store = new RDFHexaStore();
+		store.addAll(triples);
+		return store;
+	}
+
+	/**
+	 * @return les requêtes en étoile du fichier
+	 */
+	static List<StarQuery> queries(String queryFile) throws IOException {
+		List<StarQuery> queries = new ArrayList<>();
+		try (StarQuerySparQLParser parser = new StarQuerySparQLParser(queryFile)) {
+			while (parser.hasNext()) {
+				if (parser.next() instanceof StarQuery query) {
+					queries.add(query);
+				}
+			}
+		}
+		return queries;
+	}
+}
@@ -0,0 +1,134 @@
+package qengine.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import qengine.parser.FastNTriplesParser;
+import qengine.storage.RDFDictionary;
+import qengine.storage.index.SortedIntersection;
+import qengine.storage.index.TripleBuffer;
+import qengine.storage.index.TripleIndex;
+import qengine.storage.index.TripleOrder;
+import qengine.storage.index.TripleSorter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare les intersections de listes triées d'identifiants sur des listes réelles : les sujets des couples
+ * (prédicat, objet) les plus fréquents d'un fichier WatDiv, lus dans l'index POS.
+ * <p>
+ * Chaque mesure intersecte toutes les paires de listes retenues, par fusion scalaire ou par
+ * {@link SortedIntersection#intersect} : de tailles comparables (rapport d'au plus {@link SortedIntersection#SKEW}),
+ * où celle-ci utilise le noyau vectoriel, ou déséquilibrées, où elle procède par recherche exponentielle. Exemple :
+ * {@code java -jar target/benchmarks.jar IntersectionBenchmark -p dataFile=watdiv/1M.nt}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class IntersectionBenchmark {
+
+	/**
+	 * Répartition des paires de listes intersectées.
+	 */
+	public enum Shape {
+		COMPARABLE, SKEWED
+	}
+
+	// Nombre de listes retenues, parmi les plus longues
+	private static final int LISTS = 200;
+
+	@Param("data/sample_data.nt")
+	public String dataFile;
+
+	@Param({"COMPARABLE", "SKEWED"})
+	public Shape shape;
+
+	private int[][] lefts;
+	private int[][] rights;
+	private int[] out;
+
+	@Setup
+	public void setup() throws IOException {
+		RDFDictionary dictionary = new RDFDictionary();
+		TripleBuffer triples = new TripleBuffer();
+		try (FastNTriplesParser parser = new FastNTriplesParser(new File(dataFile))) {
+			parser.encodeInto(dictionary, triples::add);
+		}
+		int[] ordered = TripleOrder.POS.permute(triples.toArray(), triples.size());
+		TripleIndex index = TripleIndex.fromSorted(ordered, TripleSorter.sortDistinct(ordered, triples.size()));
+
+		List<int[]> lists = new ArrayList<>();
+		for (int p = 0; p < dictionary.size(); p++) {
+			for (int j = index.firstStart(p); j < index.firstEnd(p); j++) {
+				if (index.leafEnd(j) - index.leafStart(j) > 1) {
+					lists.add(thirds(index, p, index.secondKey(j), index.leafEnd(j) - index.leafStart(j)));
+				}
+			}
+		}
+		lists.sort(Comparator.comparingInt((int[] list) -> list.length).reversed());
+		lists = lists.subList(0, Math.min(LISTS, lists.size()));
+
+		List<int[]> left = new ArrayList<>();
+		List<int[]> right = new ArrayList<>();
+		int longest = 0;
+		for (int i = 0; i < lists.size(); i++) {
+			for (int k = i + 1; k < lists.size(); k++) {
+				// Les listes sont triées par taille décroissante : lists.get(k) est la plus courte
+				boolean skewed = lists.get(i).length > SortedIntersection.SKEW * lists.get(k).length;
+				if (skewed == (shape == Shape.SKEWED)) {
+					left.add(lists.get(i));
+					right.add(lists.get(k));
+					longest = Math.max(longest, lists.get(i).length);
+				}
+			}
+		}
+		if (left.isEmpty()) {
+			throw new IllegalStateException("Aucune paire de listes " + shape + " dans " + dataFile
+					+ " : utiliser un fichier WatDiv plus grand (-p dataFile=...)");
+		}
+		lefts = left.toArray(new int[0][]);
+		rights = right.toArray(new int[0][]);
+		out = new int[SortedIntersection.outputLength(longest, longest)];
+	}
+
+	private static int[] thirds(TripleIndex index, int p, int o, int count) {
+		int[] ids = new int[count];
+		int[] length = {0};
+		index.forEachThird(p, o, id -> ids[length[0]++] = id);
+		return ids;
+	}
+
+	@Benchmark
+	public long scalarMerge() {
+		long total = 0;
+		for (int i = 0; i < lefts.length; i++) {
+			total += SortedIntersection.scalar(lefts[i], lefts[i].length, rights[i], rights[i].length, out);
+		}
+		return total;
+	}
+
+	@Benchmark
+	public long sortedIntersection() {
+		long total = 0;
+		for (int i = 0; i < lefts.length; i++) {
+			total += SortedIntersection.intersect(lefts[i], lefts[i].length, rights[i], rights[i].length, out);
+		}
+		return total;
+	}
+}
@@ -0,0 +1,69 @@
+package qengine.benchmark;
+
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import qengine.model.RDFTriple;
+import qengine.storage.RDFHexaStore;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chargement d'un HexaStore vide, triplet par triplet ({@link RDFHexaStore#add(RDFTriple)}) ou en masse
+ * ({@link RDFHexaStore#addAll(java.util.Collection)}), indexation comprise. Les triplets sont lus avant la mesure.
+ * <p>
+ * Exemple : {@code java -jar target/benchmarks.jar LoadBenchmark -p dataFile=watdiv/1M.nt -p triples=100000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class LoadBenchmark {
+
+	@Param("data/sample_data.nt")
+	public String dataFile;
+
+	@Param({"10000", "100000", "1000000"})
+	public int triples;
+
+	private List<RDFTriple> data;
+	private RDFTriple all;
+
+	@Setup
+	public void setup() throws IOException {
+		data = BenchmarkData.triples(dataFile, triples);
+		SameObjectTermFactory factory = SameObjectTermFactory.instance();
+		all = new RDFTriple(factory.createOrGetVariable("?s"), factory.createOrGetVariable("?p"),
+				factory.createOrGetVariable("?o"));
+	}
+
+	@Benchmark
+	public long add() {
+		RDFHexaStore store = new RDFHexaStore();
+		for (RDFTriple triple : data) {
+			store.add(triple);
+		}
+		// Les triplets ajoutés un à un ne sont indexés qu'à la première requête
+		return store.howMany(all);
+	}
+
+	@Benchmark
+	public long addAll() {
+		RDFHexaStore store = new RDFHexaStore();
+		store.addAll(data);
+		return store.howMany(all);
+	}
+}
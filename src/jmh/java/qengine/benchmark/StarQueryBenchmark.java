@@ -0,0 +1,99 @@
+package qengine.benchmark;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import qengine.model.StarQuery;
+import qengine.storage.RDFHexaStore;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Évaluation des requêtes en étoile d'un fichier de requêtes ({@link RDFHexaStore#match(StarQuery)}, toutes les
+ * réponses étant parcourues), regroupées par nombre de branches : une opération évalue toutes les requêtes
+ * ayant ce nombre de patrons, séparément ou en un seul lot ({@link RDFHexaStore#matchBatch(List)}), ou
+ * limitées à leurs {@code limit} premières réponses ({@link StarQuery#getLimit()}).
+ * <p>
+ * Exemple : {@code java -jar target/benchmarks.jar StarQueryBenchmark -p dataFile=watdiv/1M.nt -p branches=3}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class StarQueryBenchmark {
+
+	@Param("data/sample_data.nt")
+	public String dataFile;
+
+	@Param("data/STAR_ALL_workload.queryset")
+	public String queryFile;
+
+	@Param({"10000", "100000", "1000000"})
+	public int triples;
+
+	@Param({"1", "2", "3", "4"})
+	public int branches;
+
+	@Param("100")
+	public long limit;
+
+	private RDFHexaStore store;
+	private List<StarQuery> queries;
+	private List<StarQuery> limited;
+
+	@Setup
+	public void setup() throws IOException {
+		store = BenchmarkData.store(BenchmarkData.triples(dataFile, triples));
+		queries = BenchmarkData.queries(queryFile).stream()
+				.filter(query -> query.getRdfAtoms().size() == branches)
+				.toList();
+		if (queries.isEmpty()) {
+			throw new IllegalStateException("Aucune requête à " + branches + " branches dans " + queryFile);
+		}
+		limited = queries.stream()
+				.map(query -> new StarQuery(query.getLabel(), query.getRdfAtoms(), query.getAnswerVariables(), limit))
+				.toList();
+	}
+
+	@Benchmark
+	public void match(Blackhole blackhole) {
+		for (StarQuery query : queries) {
+			for (Iterator<Substitution> answers = store.match(query); answers.hasNext(); ) {
+				blackhole.consume(answers.next());
+			}
+		}
+	}
+
+	@Benchmark
+	public void matchLimit(Blackhole blackhole) {
+		for (StarQuery query : limited) {
+			for (Iterator<Substitution> answers = store.match(query); answers.hasNext(); ) {
+				blackhole.consume(answers.next());
+			}
+		}
+	}
+
+	@Benchmark
+	public void matchBatch(Blackhole blackhole) {
+		for (Iterator<Substitution> answers : store.matchBatch(queries)) {
+			while (answers.hasNext()) {
+				blackhole.consume(answers.next());
+			}
+		}
+	}
+}
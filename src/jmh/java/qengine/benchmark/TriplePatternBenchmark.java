@@ -0,0 +1,104 @@
+package qengine.benchmark;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import qengine.model.RDFTriple;
+import qengine.storage.RDFHexaStore;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Évaluation d'un patron de triplet ({@link RDFHexaStore#match(RDFTriple)}, toutes les réponses étant parcourues)
+ * et comptage de ses réponses ({@link RDFHexaStore#howMany(RDFTriple)}), pour chacune des huit combinaisons de
+ * positions liées. Les constantes sont tirées de triplets du store, pris au hasard et évalués à tour de rôle.
+ * <p>
+ * Exemple : {@code java -jar target/benchmarks.jar TriplePatternBenchmark -p dataFile=watdiv/1M.nt -p pattern=xPO}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class TriplePatternBenchmark {
+
+	/**
+	 * Positions liées du patron : une lettre pour une constante, x pour une variable.
+	 */
+	public enum Pattern {
+		SPO, SPx, SxO, xPO, Sxx, xPx, xxO, xxx;
+
+		boolean bound(int position) {
+			return name().charAt(position) != 'x';
+		}
+	}
+
+	// Nombre de patrons évalués à tour de rôle
+	private static final int SAMPLE = 1024;
+
+	@Param("data/sample_data.nt")
+	public String dataFile;
+
+	@Param({"10000", "100000", "1000000"})
+	public int triples;
+
+	@Param({"SPO", "SPx", "SxO", "xPO", "Sxx", "xPx", "xxO", "xxx"})
+	public Pattern pattern;
+
+	private RDFHexaStore store;
+	private RDFTriple[] patterns;
+	private int next;
+
+	@Setup
+	public void setup() throws IOException {
+		List<RDFTriple> data = BenchmarkData.triples(dataFile, triples);
+		store = BenchmarkData.store(data);
+		SameObjectTermFactory factory = SameObjectTermFactory.instance();
+		Term[] variables = {factory.createOrGetVariable("?s"), factory.createOrGetVariable("?p"),
+				factory.createOrGetVariable("?o")};
+		Random random = new Random(42);
+		patterns = new RDFTriple[SAMPLE];
+		for (int i = 0; i < SAMPLE; i++) {
+			Term[] terms = data.get(random.nextInt(data.size())).getTerms();
+			Term[] bound = new Term[3];
+			for (int k = 0; k < 3; k++) {
+				bound[k] = pattern.bound(k) ? terms[k] : variables[k];
+			}
+			patterns[i] = new RDFTriple(bound[0], bound[1], bound[2]);
+		}
+	}
+
+	@Benchmark
+	public void match(Blackhole blackhole) {
+		for (Iterator<Substitution> answers = store.match(nextPattern()); answers.hasNext(); ) {
+			blackhole.consume(answers.next());
+		}
+	}
+
+	@Benchmark
+	public long howMany() {
+		return store.howMany(nextPattern());
+	}
+
+	private RDFTriple nextPattern() {
+		next = (next + 1) & (SAMPLE - 1);
+		return patterns[next];
+	}
+}
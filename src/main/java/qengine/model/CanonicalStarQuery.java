@@ -0,0 +1,194 @@
+package qengine.model;
+
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Forme canonique d'une requête en étoile, qui ne dépend ni de son label, ni de l'ordre de ses patrons, ni du
+ * nom de ses variables : deux requêtes de même forme canonique et sans limite ont les mêmes réponses, à
+ * renommage près.
+ * <p>
+ * Les patrons sont triés, la variable centrale et les autres variables étant confondues avec toutes les
+ * variables du même rôle, puis les variables sont numérotées : 0 pour la variable centrale, puis dans l'ordre
+ * de leur première apparition dans les patrons triés. Parmi les ordres possibles des patrons que le tri
+ * confond, comme {@code ?x p ?y} et {@code ?x p ?z}, celui dont la numérotation donne la plus petite forme est
+ * retenu, ce qui ne dépend pas de leur ordre dans la requête ; au-delà de 720 ordres possibles, l'ordre de la
+ * requête est conservé, et deux requêtes équivalentes peuvent ne pas partager leur forme. Les variables réponses
+ * sont conservées comme un ensemble de numéros, les réponses étant des substitutions.
+ * {@link StarQuery#equals(Object)} compare au contraire les labels et l'ordre des patrons.
+ * <p>
+ * La limite d'une requête ({@link StarQuery#getLimit()}) ne fait pas partie de sa forme canonique : les réponses
+ * d'une requête limitée sont une partie de celles de sa forme.
+ */
+public final class CanonicalStarQuery {
+
+    // Nombre maximal d'ordres des patrons confondus par le tri comparés pour choisir la forme canonique
+    private static final int MAX_ORDERINGS = 720;
+
+    // Patrons triés, trois éléments par patron : le numéro (Integer) d'une variable ou le terme d'une constante ;
+    // puis les numéros triés des variables réponses
+    private final List<Object> key;
+    private final int patterns;
+    // Variables de la requête d'origine, par numéro
+    private final List<Variable> variables;
+
+    private CanonicalStarQuery(List<Object> key, int patterns, List<Variable> variables) {
+        this.key = key;
+        this.patterns = patterns;
+        this.variables = variables;
+    }
+
+    /**
+     * @param query la requête en étoile
+     * @return sa forme canonique
+     */
+    public static CanonicalStarQuery of(StarQuery query) {
+        Variable central = query.getCentralVariable();
+        List<Term[]> sorted = new ArrayList<>(query.getRdfAtoms().size());
+        for (RDFTriple triple : query.getRdfAtoms()) {
+            sorted.add(triple.getTerms());
+        }
+        sorted.sort(Comparator.comparing(terms -> sortKey(terms, central)));
+
+        // Intervalles des patrons confondus par le tri, dont l'ordre relatif reste à choisir
+        List<int[]> ties = new ArrayList<>();
+        long orderings = 1;
+        for (int from = 0; from < sorted.size(); ) {
+            String sortKey = sortKey(sorted.get(from), central);
+            int to = from + 1;
+            while (to < sorted.size() && sortKey(sorted.get(to), central).equals(sortKey)) {
+                to++;
+            }
+            if (to - from > 1) {
+                ties.add(new int[]{from, to});
+                for (int n = 2; n <= to - from && orderings <= MAX_ORDERINGS; n++) {
+                    orderings *= n;
+                }
+            }
+            from = to;
+        }
+        if (orderings > MAX_ORDERINGS) {
+            ties.clear();
+        }
+
+        CanonicalStarQuery[] smallest = new CanonicalStarQuery[1];
+        permute(sorted, ties, 0, ties.isEmpty() ? 0 : ties.get(0)[0], () -> {
+            CanonicalStarQuery candidate = number(sorted, central, query.getAnswerVariables());
+            if (smallest[0] == null || compare(candidate.key, smallest[0].key) < 0) {
+                smallest[0] = candidate;
+            }
+        });
+        return smallest[0];
+    }
+
+    /**
+     * Énumère les ordres des patrons confondus par le tri, intervalle par intervalle, en permutant les patrons
+     * sur place à partir de la position i de l'intervalle t.
+     */
+    private static void permute(List<Term[]> sorted, List<int[]> ties, int t, int i, Runnable action) {
+        if (t == ties.size()) {
+            action.run();
+            return;
+        }
+        int[] tie = ties.get(t);
+        if (i == tie[1] - 1) {
+            permute(sorted, ties, t + 1, t + 1 < ties.size() ? ties.get(t + 1)[0] : 0, action);
+            return;
+        }
+        for (int j = i; j < tie[1]; j++) {
+            Collections.swap(sorted, i, j);
+            permute(sorted, ties, t, i + 1, action);
+            Collections.swap(sorted, i, j);
+        }
+    }
+
+    /**
+     * Numérote les variables des patrons dans leur ordre : 0 pour la variable centrale, puis dans l'ordre de
+     * leur première apparition.
+     */
+    private static CanonicalStarQuery number(List<Term[]> sorted, Variable central, Collection<Variable> answers) {
+        List<Variable> variables = new ArrayList<>(List.of(central));
+        List<Object> key = new ArrayList<>(3 * sorted.size() + answers.size());
+        for (Term[] terms : sorted) {
+            for (Term term : terms) {
+                if (term instanceof Variable variable) {
+                    int number = variables.indexOf(variable);
+                    if (number < 0) {
+                        number = variables.size();
+                        variables.add(variable);
+                    }
+                    key.add(number);
+                } else {
+                    key.add(term);
+                }
+            }
+        }
+        answers.stream().mapToInt(variables::indexOf).distinct().sorted().forEach(key::add);
+        return new CanonicalStarQuery(List.copyOf(key), sorted.size(), List.copyOf(variables));
+    }
+
+    /**
+     * Compare deux formes obtenues par des ordres différents des mêmes patrons : elles ne diffèrent que par
+     * les numéros des variables, les constantes étant aux mêmes positions.
+     */
+    private static int compare(List<Object> left, List<Object> right) {
+        for (int i = 0; i < left.size(); i++) {
+            if (left.get(i) instanceof Integer a && right.get(i) instanceof Integer b && !a.equals(b)) {
+                return Integer.compare(a, b);
+            }
+        }
+        return 0;
+    }
+
+    private static String sortKey(Term[] terms, Variable central) {
+        StringJoiner joiner = new StringJoiner(" ");
+        for (Term term : terms) {
+            joiner.add(term.equals(central) ? "?0" : term instanceof Variable ? "?" : "<" + term.label() + ">");
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * @return les variables de la requête d'origine, par numéro canonique (la variable centrale en premier)
+     */
+    public List<Variable> variables() {
+        return variables;
+    }
+
+    /**
+     * @return le numéro canonique d'une variable de la requête d'origine, -1 si elle n'y apparaît pas
+     */
+    public int indexOf(Variable variable) {
+        return variables.indexOf(variable);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof CanonicalStarQuery that && key.equals(that.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner text = new StringJoiner(" . ");
+        for (int i = 0; i < patterns; i++) {
+            Object[] terms = key.subList(3 * i, 3 * i + 3).toArray();
+            text.add(String.join(" ", Arrays.stream(terms)
+                    .map(term -> term instanceof Integer number ? "?" + number : "<" + ((Term) term).label() + ">")
+                    .toList()));
+        }
+        return text + " | " + key.subList(3 * patterns, key.size());
+    }
+}
@@ -30,6 +30,14 @@ public class StarQuery implements Query {
     // Variable centrale de la requête en étoile
     private final Variable centralVariable;
 
+    // Nombre maximal de réponses (clause LIMIT), NO_LIMIT si la requête n'est pas limitée
+    private final long limit;
+
+    /**
+     * Limite d'une requête sans clause LIMIT.
+     */
+    public static final long NO_LIMIT = Long.MAX_VALUE;
+
     /**
      * Constructeur pour une requête en étoile.
      *
@@ -40,6 +48,25 @@ public class StarQuery implements Query {
      * @throws IllegalArgumentException si les triplets RDF ne forment pas une requête en étoile
      */
     public StarQuery(String label, List<RDFTriple> rdfTriples, Collection<Variable> answerVariables) {
+        this(label, rdfTriples, answerVariables, NO_LIMIT);
+    }
+
+    /**
+     * Constructeur pour une requête en étoile dont seules les limit premières réponses sont demandées.
+     *
+     * @param label           le label de la requête
+     * @param rdfTriples        la collection des triplets RDF
+     * @param answerVariables les variables réponses
+     * @param limit           le nombre maximal de réponses, {@link #NO_LIMIT} pour toutes les réponses
+     * @throws NullPointerException     si l'un des paramètres est null
+     * @throws IllegalArgumentException si les triplets RDF ne forment pas une requête en étoile ou si la limite
+     *                                  est négative
+     */
+    public StarQuery(String label, List<RDFTriple> rdfTriples, Collection<Variable> answerVariables, long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("La limite ne peut pas être négative : " + limit);
+        }
+        this.limit = limit;
         this.label = Objects.requireNonNull(label, "Le label ne peut pas être null.");
         this.rdfTriples = Objects.requireNonNull(rdfTriples, "Les triplets RDF ne peuvent pas être null.");
         this.answerVariables = Objects.requireNonNull(answerVariables, "Les variables réponses ne peuvent pas être null.");
@@ -125,6 +152,22 @@ public class StarQuery implements Query {
         return centralVariable;
     }
 
+    /**
+     * Retourne le nombre maximal de réponses demandées.
+     *
+     * @return la limite de la requête, {@link #NO_LIMIT} si elle n'est pas limitée
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return true si la requête a une clause LIMIT
+     */
+    public boolean hasLimit() {
+        return limit != NO_LIMIT;
+    }
+
     /**
      * Retourne la collection des triplets RDF.
      *
@@ -149,7 +192,8 @@ public class StarQuery implements Query {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         StarQuery that = (StarQuery) o;
-        return label.equals(that.label) &&
+        return limit == that.limit &&
+                label.equals(that.label) &&
                 rdfTriples.equals(that.rdfTriples) &&
                 answerVariables.equals(that.answerVariables) &&
                 centralVariable.equals(that.centralVariable);
@@ -157,7 +201,7 @@ public class StarQuery implements Query {
 
     @Override
     public int hashCode() {
-        return Objects.hash(label, rdfTriples, answerVariables, centralVariable);
+        return Objects.hash(label, rdfTriples, answerVariables, centralVariable, limit);
     }
 
     @Override
@@ -167,6 +211,7 @@ public class StarQuery implements Query {
                 ",\n\t rdfTriples=" + rdfTriples +
                 ",\n\t answerVariables=" + answerVariables +
                 ",\n\t centralVariable=" + centralVariable +
+                (hasLimit() ? ",\n\t limit=" + limit : "") +
                 '}';
     }
 }
@@ -0,0 +1,358 @@
+package qengine.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import fr.boreal.io.api.Parser;
+import fr.boreal.model.logicalElements.factory.api.TermFactory;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import qengine.model.RDFTriple;
+import qengine.storage.EncodedTripleSource;
+import qengine.storage.RDFDictionary;
+import qengine.storage.index.TripleIndex;
+
+/**
+ * Parser N-Triples écrit à la main, alternative rapide à {@link RDFTriplesParser} pour les fichiers
+ * {@code .nt} produits par WatDiv.
+ * <p>
+ * Le fichier est lu par fenêtres projetées en mémoire ({@link FileChannel#map}) et chaque terme est
+ * découpé directement en octets UTF-8. Utilisé comme {@link EncodedTripleSource}, le parser encode
+ * ces octets dans le dictionnaire du store sans créer de {@code Statement} rdf4j, d'{@code Atom},
+ * de {@link String} ni de {@link RDFTriple} intermédiaires. Utilisé comme itérateur, il produit les
+ * mêmes {@link RDFTriple} que {@link RDFTriplesParser} en mode brut : IRI et littéraux deviennent des
+ * littéraux portant leur valeur, sans chevrons, guillemets, langue ni type.
+ */
+public class FastNTriplesParser implements Parser<RDFTriple>, EncodedTripleSource {
+
+    private static final int DEFAULT_WINDOW_SIZE = 1 << 28;
+
+    private final TermFactory termFactory = SameObjectTermFactory.instance();
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long end;
+    private final int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private long lineNumber;
+
+    private final Token subject = new Token();
+    private final Token predicate = new Token();
+    private final Token object = new Token();
+    private boolean ready;
+
+    /**
+     * Construit un parser sur la totalité d'un fichier N-Triples.
+     *
+     * @param file le fichier à lire
+     * @throws IOException si le fichier ne peut pas être ouvert
+     */
+    public FastNTriplesParser(File file) throws IOException {
+        this(FileChannel.open(file.toPath(), StandardOpenOption.READ), true, 0, -1, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Construit un parser sur une plage d'octets d'un fichier N-Triples déjà ouvert. Le canal n'est pas
+     * fermé par le parser, ce qui permet à plusieurs parsers de lire des plages disjointes du même fichier.
+     *
+     * @param channel le canal du fichier
+     * @param start   la position du début d'une ligne
+     * @param end     la position de fin de la plage (exclue), qui doit suivre une fin de ligne ou la fin du fichier
+     * @throws IOException si la taille du fichier ne peut pas être lue
+     */
+    public FastNTriplesParser(FileChannel channel, long start, long end) throws IOException {
+        this(channel, false, start, end, DEFAULT_WINDOW_SIZE);
+    }
+
+    FastNTriplesParser(FileChannel channel, boolean ownsChannel, long start, long end, int windowSize) throws IOException {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.end = end < 0 ? channel.size() : end;
+        this.windowSize = windowSize;
+        this.position = start;
+        this.windowStart = start;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready) {
+            ready = readTriple();
+        }
+        return ready;
+    }
+
+    @Override
+    public RDFTriple next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("Aucun triplet RDF restant.");
+        }
+        ready = false;
+        return new RDFTriple(
+                termFactory.createOrGetLiteral(subject.toString()),
+                termFactory.createOrGetLiteral(predicate.toString()),
+                termFactory.createOrGetLiteral(object.toString()));
+    }
+
+    /**
+     * Encode les triplets restants directement dans le dictionnaire, sans objet intermédiaire.
+     */
+    @Override
+    public void encodeInto(RDFDictionary dictionary, TripleIndex.TripleConsumer consumer) {
+        while (hasNext()) {
+            ready = false;
+            consumer.accept(
+                    dictionary.encodeLiteral(subject.bytes, 0, subject.length),
+                    dictionary.encodeLiteral(predicate.bytes, 0, predicate.length),
+                    dictionary.encodeLiteral(object.bytes, 0, object.length));
+        }
+    }
+
+    /**
+     * Retourne un flux de tous les triplets RDF parsés.
+     *
+     * @return un flux de RDFAtom
+     */
+    public Stream<RDFTriple> getRDFAtoms() {
+        return this.streamParsedObjects(RDFTriple.class);
+    }
+
+    @Override
+    public void close() {
+        window = null;
+        if (ownsChannel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Lit la prochaine ligne contenant un triplet et remplit les trois jetons.
+     *
+     * @return false si la fin de la plage est atteinte
+     * @throws IllegalArgumentException si une ligne n'est pas un triplet N-Triples valide
+     */
+    private boolean readTriple() {
+        while (position < end) {
+            long lineEnd = mapLine();
+            lineNumber++;
+            int i = (int) (position - windowStart);
+            int limit = (int) (lineEnd - windowStart);
+            position = lineEnd + 1;
+
+            i = skipSpaces(i, limit);
+            if (i == limit || window.get(i) == '#') {
+                continue;
+            }
+            i = skipSpaces(readTerm(i, limit, subject, false), limit);
+            i = skipSpaces(readTerm(i, limit, predicate, false), limit);
+            i = skipSpaces(readTerm(i, limit, object, true), limit);
+            if (i == limit || window.get(i) != '.') {
+                throw error("'.' attendu en fin de triplet");
+            }
+            i = skipSpaces(i + 1, limit);
+            if (i != limit && window.get(i) != '#') {
+                throw error("contenu inattendu après le triplet");
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Projette en mémoire une fenêtre contenant entièrement la ligne qui commence à la position courante.
+     *
+     * @return la position absolue de la fin de la ligne (caractère '\n' ou fin de plage)
+     */
+    private long mapLine() {
+        try {
+            while (true) {
+                long windowEnd = window == null ? windowStart : windowStart + window.limit();
+                if (window == null || position >= windowEnd) {
+                    remap(position);
+                    continue;
+                }
+                for (int i = (int) (position - windowStart); i < window.limit(); i++) {
+                    if (window.get(i) == '\n') {
+                        return windowStart + i;
+                    }
+                }
+                if (windowEnd >= end) {
+                    return end;
+                }
+                if (windowStart == position) {
+                    throw error("ligne plus longue que la fenêtre de lecture");
+                }
+                remap(position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void remap(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, end - start));
+    }
+
+    private int skipSpaces(int i, int limit) {
+        while (i < limit) {
+            byte b = window.get(i);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Lit un terme (IRI, nœud blanc ou, si autorisé, littéral) à partir de la position i.
+     *
+     * @return la position suivant le terme
+     */
+    private int readTerm(int i, int limit, Token token, boolean literalAllowed) {
+        token.length = 0;
+        if (i >= limit) {
+            throw error("terme attendu");
+        }
+        byte first = window.get(i);
+        if (first == '<') {
+            return readDelimited(i + 1, limit, (byte) '>', token);
+        }
+        if (first == '_' && i + 1 < limit && window.get(i + 1) == ':') {
+            int start = i + 2;
+            i = start;
+            while (i < limit && window.get(i) != ' ' && window.get(i) != '\t') {
+                i++;
+            }
+            token.append(window, start, i - start);
+            return i;
+        }
+        if (first == '"' && literalAllowed) {
+            i = readDelimited(i + 1, limit, (byte) '"', token);
+            if (i < limit && window.get(i) == '@') {
+                while (i < limit && window.get(i) != ' ' && window.get(i) != '\t' && window.get(i) != '.') {
+                    i++;
+                }
+            } else if (i + 1 < limit && window.get(i) == '^' && window.get(i + 1) == '^') {
+                if (i + 2 >= limit || window.get(i + 2) != '<') {
+                    throw error("type de littéral invalide");
+                }
+                i = readDelimited(i + 3, limit, (byte) '>', new Token());
+            }
+            return i;
+        }
+        throw error("terme invalide");
+    }
+
+    /**
+     * Lit le contenu d'un terme jusqu'au délimiteur fermant, en interprétant les séquences d'échappement.
+     *
+     * @return la position suivant le délimiteur fermant
+     */
+    private int readDelimited(int i, int limit, byte closing, Token token) {
+        int start = i;
+        while (i < limit) {
+            byte b = window.get(i);
+            if (b == closing) {
+                token.append(window, start, i - start);
+                return i + 1;
+            }
+            if (b == '\\') {
+                token.append(window, start, i - start);
+                i = readEscape(i + 1, limit, token);
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        throw error("délimiteur '" + (char) closing + "' manquant");
+    }
+
+    private int readEscape(int i, int limit, Token token) {
+        if (i >= limit) {
+            throw error("séquence d'échappement incomplète");
+        }
+        byte b = window.get(i);
+        switch (b) {
+            case 't' -> token.append((byte) '\t');
+            case 'b' -> token.append((byte) '\b');
+            case 'n' -> token.append((byte) '\n');
+            case 'r' -> token.append((byte) '\r');
+            case 'f' -> token.append((byte) '\f');
+            case '"', '\'', '\\' -> token.append(b);
+            case 'u', 'U' -> {
+                int digits = b == 'u' ? 4 : 8;
+                if (i + digits >= limit) {
+                    throw error("séquence d'échappement incomplète");
+                }
+                int codePoint = 0;
+                for (int k = 1; k <= digits; k++) {
+                    int digit = Character.digit(window.get(i + k), 16);
+                    if (digit < 0) {
+                        throw error("séquence d'échappement invalide");
+                    }
+                    codePoint = (codePoint << 4) | digit;
+                }
+                token.appendCodePoint(codePoint);
+                return i + digits + 1;
+            }
+            default -> throw error("séquence d'échappement invalide");
+        }
+        return i + 1;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Ligne " + lineNumber + " : " + message + ".");
+    }
+
+    /**
+     * Tampon réutilisable contenant les octets UTF-8 d'un terme.
+     */
+    private static final class Token {
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        void append(MappedByteBuffer buffer, int index, int count) {
+            ensureCapacity(length + count);
+            buffer.get(index, bytes, length, count);
+            length += count;
+        }
+
+        void append(byte b) {
+            ensureCapacity(length + 1);
+            bytes[length++] = b;
+        }
+
+        void appendCodePoint(int codePoint) {
+            byte[] utf8 = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+            for (byte b : utf8) {
+                append(b);
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, 2 * bytes.length));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package qengine.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import qengine.storage.EncodedTripleSource;
+import qengine.storage.RDFDictionary;
+import qengine.storage.index.TripleIndex;
+
+/**
+ * Lecture parallèle d'un fichier N-Triples, destinée au chargement en masse
+ * ({@code RDFHexaStore.addAll(EncodedTripleSource)}).
+ * <p>
+ * Chaque ligne du format étant un triplet, le fichier est découpé en plages d'octets alignées sur les
+ * fins de ligne. Chaque plage est lue par un {@link FastNTriplesParser} sur un thread distinct et encodée
+ * dans un dictionnaire local. Les dictionnaires locaux sont ensuite fusionnés, dans l'ordre du fichier,
+ * dans le dictionnaire du store : les identifiants attribués sont donc les mêmes qu'avec une lecture
+ * séquentielle. Les triplets de chaque plage sont alors réécrits avec les identifiants globaux et transmis
+ * au store.
+ */
+public class ParallelNTriplesParser implements EncodedTripleSource {
+
+    // Nombre de plages par thread, pour équilibrer la charge entre plages de densités différentes
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final File file;
+    private final int parallelism;
+
+    /**
+     * Construit une lecture parallèle utilisant tous les processeurs disponibles.
+     *
+     * @param file le fichier N-Triples à lire
+     */
+    public ParallelNTriplesParser(File file) {
+        this(file, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param file        le fichier N-Triples à lire
+     * @param parallelism le nombre de threads visé, qui détermine le nombre de plages
+     */
+    public ParallelNTriplesParser(File file, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Le parallélisme doit être strictement positif : " + parallelism);
+        }
+        this.file = file;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void encodeInto(RDFDictionary dictionary, TripleIndex.TripleConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<Chunk> chunks = split(channel, parallelism == 1 ? 1 : parallelism * CHUNKS_PER_THREAD);
+            try {
+                chunks.parallelStream().forEach(chunk -> chunk.parse(channel));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            for (Chunk chunk : chunks) {
+                chunk.emit(dictionary, consumer);
+            }
+        }
+    }
+
+    /**
+     * Découpe le fichier en plages de tailles voisines dont chacune commence au début d'une ligne.
+     */
+    private static List<Chunk> split(FileChannel channel, int count) throws IOException {
+        long size = channel.size();
+        List<Chunk> chunks = new ArrayList<>(count);
+        long start = 0;
+        for (int i = 1; i <= count && start < size; i++) {
+            long end = i == count ? size : nextLineStart(channel, Math.max(start, size * i / count), size);
+            if (end > start) {
+                chunks.add(new Chunk(start, end));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @return la position qui suit le premier '\n' situé à partir de position, ou la taille du fichier
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Plage du fichier, avec le dictionnaire local et les triplets encodés produits par sa lecture.
+     */
+    private static final class Chunk implements TripleIndex.TripleConsumer {
+        private final long start;
+        private final long end;
+        private RDFDictionary dictionary = new RDFDictionary();
+        private int[] triples = new int[3 * 1024];
+        private int count;
+
+        Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        void parse(FileChannel channel) {
+            try (FastNTriplesParser parser = new FastNTriplesParser(channel, start, end)) {
+                parser.encodeInto(dictionary, this);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void accept(int s, int p, int o) {
+            if (3 * count + 3 > triples.length) {
+                triples = Arrays.copyOf(triples, 2 * triples.length);
+            }
+            triples[3 * count] = s;
+            triples[3 * count + 1] = p;
+            triples[3 * count + 2] = o;
+            count++;
+        }
+
+        void emit(RDFDictionary target, TripleIndex.TripleConsumer consumer) {
+            int[] remap = dictionary.mergeInto(target);
+            dictionary = null;
+            for (int i = 0; i < 3 * count; i += 3) {
+                consumer.accept(remap[triples[i]], remap[triples[i + 1]], remap[triples[i + 2]]);
+            }
+            triples = null;
+        }
+    }
+}
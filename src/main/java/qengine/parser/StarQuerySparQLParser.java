@@ -8,6 +8,7 @@ import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
 import fr.boreal.model.query.api.Query;
 import org.eclipse.rdf4j.query.algebra.Projection;
 import org.eclipse.rdf4j.query.algebra.ProjectionElemList;
+import org.eclipse.rdf4j.query.algebra.Slice;
 import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
 import org.eclipse.rdf4j.query.algebra.helpers.StatementPatternCollector;
@@ -17,20 +18,55 @@ import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
 import qengine.model.RDFTriple;
 import qengine.model.StarQuery;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.regex.Pattern;
 
 /**
  * Un parser pour analyser des requêtes SparQL en requêtes en étoile.
+ * <p>
+ * Le fichier est lu au fil de l'eau, ligne par ligne, sans être chargé en mémoire. Les requêtes déjà
+ * analysées sont conservées par texte dans un cache LRU : une requête dont le texte a déjà été lu n'est pas
+ * analysée à nouveau, la même {@link StarQuery} étant renvoyée. Les fichiers de requêtes WatDiv répètent
+ * beaucoup les mêmes requêtes, tout comme les journaux de requêtes.
+ * <p>
+ * Une clause LIMIT, après l'accolade fermante sur la même ligne ou sur la suivante, devient la limite de la
+ * requête en étoile ({@link StarQuery#getLimit()}). La clause OFFSET n'est pas prise en charge : la lecture d'une
+ * requête qui en a une échoue, et la lecture reprend à la requête suivante.
  */
 public class StarQuerySparQLParser implements Parser<Query> {
 
-    private final Iterator<String> queryIterator;
+    /**
+     * Nombre de requêtes analysées conservées par défaut, les plus récemment lues.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Clauses LIMIT et OFFSET seules sur leur ligne, après l'accolade fermante de la requête : elles sont toutes
+    // rattachées à la requête, dont l'analyse rejette ensuite OFFSET
+    private static final Pattern SLICE_LINE = Pattern.compile("\\s*((LIMIT|OFFSET)\\s+\\d+\\s*)+",
+            Pattern.CASE_INSENSITIVE);
+    // Ligne qui se termine par l'accolade fermante suivie de clauses LIMIT ou OFFSET
+    private static final Pattern SLICE_END = Pattern.compile(".*}\\s*((LIMIT|OFFSET)\\s+\\d+\\s*)+",
+            Pattern.CASE_INSENSITIVE);
+
+    private final BufferedReader reader;
     private final TermFactory termFactory = SameObjectTermFactory.instance();
     private final SPARQLParser sparqlParser = new SPARQLParser();
+    private final StringBuilder queryBuilder = new StringBuilder();
+    private final Map<String, StarQuery> cache;
+    private int cacheHits;
     private Query nextQuery = null;
+    // Ligne lue après une accolade fermante pour y chercher des clauses LIMIT ou OFFSET, qui n'en contenait pas
+    private String pendingLine;
 
     /**
      * Constructeur.
@@ -39,8 +75,25 @@ public class StarQuerySparQLParser implements Parser<Query> {
      * @throws IOException si le fichier ne peut pas être lu
      */
     public StarQuerySparQLParser(String sparqlFilePath) throws IOException {
-        List<String> lines = Files.readAllLines(Paths.get(sparqlFilePath));
-        this.queryIterator = lines.iterator();
+        this(sparqlFilePath, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructeur.
+     *
+     * @param sparqlFilePath chemin vers le fichier contenant les requêtes SparQL
+     * @param cacheSize      nombre de requêtes analysées conservées, 0 pour analyser chaque requête lue
+     * @throws IOException si le fichier ne peut pas être lu
+     */
+    public StarQuerySparQLParser(String sparqlFilePath, int cacheSize) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(sparqlFilePath), StandardOpenOption.READ);
+        this.reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StarQuery> eldest) {
+                return size() > cacheSize;
+            }
+        };
     }
 
     @Override
@@ -50,26 +103,31 @@ public class StarQuerySparQLParser implements Parser<Query> {
         }
 
         try {
-            while (queryIterator.hasNext()) {
-                StringBuilder queryBuilder = new StringBuilder();
-
-                // Construire une requête multi-ligne jusqu'à rencontrer "}"
-                while (queryIterator.hasNext()) {
-                    String line = queryIterator.next();
+            // Construire une requête multi-ligne jusqu'à rencontrer "}", éventuellement suivie de clauses LIMIT ou
+            // OFFSET sur la même ligne ou sur la suivante, ou jusqu'à la fin du fichier
+            String line;
+            do {
+                line = readLine();
+                if (line != null) {
                     queryBuilder.append(line).append(System.lineSeparator());
-
-                    if (line.trim().endsWith("}")) {
-                        break;
+                    if (closesQuery(line)) {
+                        String following = readLine();
+                        if (following != null && SLICE_LINE.matcher(following).matches()) {
+                            queryBuilder.append(following).append(System.lineSeparator());
+                        } else {
+                            pendingLine = following;
+                        }
                     }
                 }
-
-                String queryString = queryBuilder.toString().trim();
-                if (!queryString.isEmpty()) {
-                    ParsedQuery parsedQuery = sparqlParser.parseQuery(queryString, null);
-                    this.nextQuery = parseStarQuery(parsedQuery);
-                    return true;
+                if (line == null || endsQuery(line)) {
+                    String queryString = queryBuilder.toString().trim();
+                    queryBuilder.setLength(0);
+                    if (!queryString.isEmpty()) {
+                        this.nextQuery = parse(queryString);
+                        return true;
+                    }
                 }
-            }
+            } while (line != null);
         } catch (Exception e) {
             throw new RuntimeException("Erreur lors de l'analyse de la requête SparQL", e);
         }
@@ -77,6 +135,59 @@ public class StarQuerySparQLParser implements Parser<Query> {
         return false;
     }
 
+    /**
+     * @return la ligne mise de côté s'il y en a une, la ligne suivante du fichier sinon
+     */
+    private String readLine() throws IOException {
+        if (pendingLine != null) {
+            String line = pendingLine;
+            pendingLine = null;
+            return line;
+        }
+        return reader.readLine();
+    }
+
+    /**
+     * @return true si la ligne termine une requête : par "}", ou par "}" suivie de clauses LIMIT ou OFFSET
+     */
+    private static boolean endsQuery(String line) {
+        return closesQuery(line) || line.indexOf('}') >= 0 && SLICE_END.matcher(line).matches();
+    }
+
+    /**
+     * @return true si le dernier caractère non blanc de la ligne est "}"
+     */
+    private static boolean closesQuery(String line) {
+        for (int i = line.length() - 1; i >= 0; i--) {
+            char c = line.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '}';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Analyse le texte d'une requête, ou renvoie la requête déjà analysée pour ce texte.
+     */
+    private StarQuery parse(String queryString) {
+        StarQuery query = cache.get(queryString);
+        if (query != null) {
+            cacheHits++;
+            return query;
+        }
+        query = parseStarQuery(sparqlParser.parseQuery(queryString, null));
+        cache.put(queryString, query);
+        return query;
+    }
+
+    /**
+     * @return le nombre de requêtes lues qui n'ont pas été analysées car leur texte était dans le cache
+     */
+    int cacheHits() {
+        return cacheHits;
+    }
+
     @Override
     public Query next() {
         if (!hasNext()) {
@@ -131,7 +242,7 @@ public class StarQuerySparQLParser implements Parser<Query> {
         List<Variable> answerVariables = extractAnswerVariables(parsedQuery, variables);
 
         // Construire la requête en étoile
-        return new StarQuery(parsedQuery.getSourceString(), rdfAtoms, answerVariables);
+        return new StarQuery(parsedQuery.getSourceString(), rdfAtoms, answerVariables, extractLimit(parsedQuery));
     }
 
     /**
@@ -166,6 +277,32 @@ public class StarQuerySparQLParser implements Parser<Query> {
                 .toList();
     }
 
+    /**
+     * Extrait la clause LIMIT de la requête SparQL analysée, portée par un nœud `Slice`.
+     *
+     * @param parsedQuery la requête SparQL analysée
+     * @return la limite de la requête, {@link StarQuery#NO_LIMIT} si elle n'en a pas
+     * @throws IllegalArgumentException si la requête a une clause OFFSET, non prise en charge
+     */
+    private long extractLimit(ParsedQuery parsedQuery) {
+        Slice[] slice = new Slice[1];
+
+        parsedQuery.getTupleExpr().visit(new AbstractQueryModelVisitor<RuntimeException>() {
+            @Override
+            public void meet(Slice node) {
+                slice[0] = node;
+            }
+        });
+
+        if (slice[0] == null) {
+            return StarQuery.NO_LIMIT;
+        }
+        if (slice[0].hasOffset()) {
+            throw new IllegalArgumentException("La clause OFFSET n'est pas prise en charge.");
+        }
+        return slice[0].hasLimit() ? slice[0].getLimit() : StarQuery.NO_LIMIT;
+    }
+
     /**
      * Parcourt l'arbre d'expression pour récupérer le nœud `ProjectionElemList`.
      *
@@ -208,6 +345,10 @@ public class StarQuerySparQLParser implements Parser<Query> {
 
     @Override
     public void close() {
-        // Rien à fermer ici
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -0,0 +1,111 @@
+package qengine.program;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+import qengine.model.RDFTriple;
+import qengine.parser.RDFTriplesParser;
+import qengine.storage.OffHeapHexaStore;
+import qengine.storage.RDFDictionary;
+import qengine.storage.RDFHexaStore;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rapport d'empreinte mémoire de l'HexaStore : charge un fichier N-Triples et affiche
+ * le nombre d'octets par triplet occupés par le dictionnaire, avant et après son compactage, et par
+ * les six index, puis après le décodage de tous les triplets, qui remplit le cache des termes décodés du
+ * dictionnaire, et enfin la place qui reste sur le tas lorsque le même store est stocké hors du tas
+ * ({@link OffHeapHexaStore}).
+ * <p>
+ * Usage : {@code FootprintReport [fichier.nt]}, avec {@code --enable-preview}. Les termes eux-mêmes sont
+ * conservés pendant toute la mesure, ils ne sont donc comptés ni dans le dictionnaire ni dans les index.
+ */
+public final class FootprintReport {
+
+	private static final String DEFAULT_DATA_FILE = "data/sample_data.nt";
+
+	private FootprintReport() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		String dataFile = args.length > 0 ? args[0] : DEFAULT_DATA_FILE;
+		List<RDFTriple> triples = parseRDFData(dataFile);
+
+		long baseline = usedHeap();
+		RDFDictionary dictionary = new RDFDictionary();
+		for (RDFTriple triple : triples) {
+			dictionary.encode(triple.getTripleSubject());
+			dictionary.encode(triple.getTriplePredicate());
+			dictionary.encode(triple.getTripleObject());
+		}
+		long dictionaryBytes = usedHeap() - baseline;
+		dictionary.compact();
+		long compactedBytes = usedHeap() - baseline;
+		int terms = dictionary.size();
+		dictionary = null;
+
+		baseline = usedHeap();
+		RDFHexaStore store = new RDFHexaStore();
+		store.addAll(triples);
+		// L'estimation déclenche aussi l'indexation des triplets en attente
+		long estimatedIndexBytes = store.estimateIndexBytes();
+		long storeBytes = usedHeap() - baseline;
+		long triplesCount = store.size();
+		store.getAtoms();
+		long decodedStoreBytes = usedHeap() - baseline;
+		store = null;
+
+		baseline = usedHeap();
+		RDFHexaStore offHeapStore = new OffHeapHexaStore();
+		offHeapStore.addAll(triples);
+		offHeapStore.estimateIndexBytes();
+		offHeapStore.getAtoms();
+		long offHeapStoreBytes = usedHeap() - baseline;
+
+		System.out.printf("Fichier            : %s%n", dataFile);
+		System.out.printf("Triplets distincts : %d%n", triplesCount);
+		System.out.printf("Termes distincts   : %d%n", terms);
+		System.out.printf("Dictionnaire       : %,d octets (%.1f octets/triplet)%n",
+				dictionaryBytes, (double) dictionaryBytes / triplesCount);
+		System.out.printf("Dict. compacté     : %,d octets (%.1f octets/triplet)%n",
+				compactedBytes, (double) compactedBytes / triplesCount);
+		System.out.printf("Index (mesuré)     : %,d octets (%.1f octets/triplet)%n",
+				storeBytes - compactedBytes, (double) (storeBytes - compactedBytes) / triplesCount);
+		System.out.printf("Index (estimé)     : %,d octets (%.1f octets/triplet)%n",
+				estimatedIndexBytes, (double) estimatedIndexBytes / triplesCount);
+		System.out.printf("Total HexaStore    : %,d octets (%.1f octets/triplet)%n",
+				storeBytes, (double) storeBytes / triplesCount);
+		System.out.printf("Après décodage     : %,d octets (%.1f octets/triplet)%n",
+				decodedStoreBytes, (double) decodedStoreBytes / triplesCount);
+		System.out.printf("Hors tas (tas)     : %,d octets (%.1f octets/triplet)%n",
+				offHeapStoreBytes, (double) offHeapStoreBytes / offHeapStore.size());
+	}
+
+	private static List<RDFTriple> parseRDFData(String rdfFilePath) throws IOException {
+		List<RDFTriple> rdfAtoms = new ArrayList<>();
+		try (RDFTriplesParser rdfAtomParser = new RDFTriplesParser(new FileReader(rdfFilePath), RDFFormat.NTRIPLES)) {
+			while (rdfAtomParser.hasNext()) {
+				rdfAtoms.add(rdfAtomParser.next());
+			}
+		}
+		return rdfAtoms;
+	}
+
+	/**
+	 * @return la mémoire occupée sur le tas après plusieurs passages du ramasse-miettes
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,45 @@
+package qengine.program;
+
+import qengine.parser.FastNTriplesParser;
+import qengine.storage.RDFHexaStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Charge un fichier N-Triples dans un {@link RDFHexaStore} et l'écrit sur disque, ou rouvre le store
+ * s'il a déjà été écrit, pour ne plus relire le fichier N-Triples à chaque exécution.
+ * <p>
+ * Usage : {@code HexaStoreSnapshot [fichier.nt] [répertoire du store]}. Le store est rouvert si le
+ * répertoire contient déjà un store ; sinon le fichier est chargé puis le store est écrit.
+ */
+public final class HexaStoreSnapshot {
+
+	private static final String DEFAULT_DATA_FILE = "data/sample_data.nt";
+
+	private HexaStoreSnapshot() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		File file = new File(args.length > 0 ? args[0] : DEFAULT_DATA_FILE);
+		Path directory = Path.of(args.length > 1 ? args[1] : file.getPath() + ".store");
+
+		long start = System.nanoTime();
+		if (Files.exists(directory.resolve("dictionary.bin"))) {
+			RDFHexaStore store = RDFHexaStore.open(directory);
+			System.out.printf("Store rouvert depuis %s en %,.1f ms : %,d triplets%n",
+					directory, (System.nanoTime() - start) / 1e6, store.size());
+			return;
+		}
+		RDFHexaStore store = new RDFHexaStore();
+		try (FastNTriplesParser parser = new FastNTriplesParser(file)) {
+			store.addAll(parser);
+		}
+		long loaded = System.nanoTime();
+		store.save(directory);
+		System.out.printf("%s chargé en %,d ms (%,d triplets), store écrit dans %s en %,d ms%n",
+				file, (loaded - start) / 1_000_000, store.size(), directory, (System.nanoTime() - loaded) / 1_000_000);
+	}
+}
@@ -0,0 +1,99 @@
+package qengine.program;
+
+import qengine.parser.FastNTriplesParser;
+import qengine.parser.ParallelNTriplesParser;
+import qengine.parser.RDFTriplesParser;
+import qengine.storage.RDFHexaStore;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compare le débit de chargement d'un fichier N-Triples par le parser rdf4j ({@link RDFTriplesParser}),
+ * par le parser rapide ({@link FastNTriplesParser}) et par sa version parallèle ({@link ParallelNTriplesParser}),
+ * en triplets par seconde.
+ * <p>
+ * Usage : {@code ParserBenchmark [fichier.nt] [répétitions]}. Chaque mesure est répétée et seule la
+ * meilleure est affichée, les premières répétitions servant de préchauffage à la JVM.
+ */
+public final class ParserBenchmark {
+
+	private static final String DEFAULT_DATA_FILE = "data/sample_data.nt";
+	private static final int DEFAULT_RUNS = 3;
+
+	private ParserBenchmark() {
+	}
+
+	@FunctionalInterface
+	private interface Load {
+		long run(File file) throws IOException;
+	}
+
+	public static void main(String[] args) throws IOException {
+		File file = new File(args.length > 0 ? args[0] : DEFAULT_DATA_FILE);
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RUNS;
+
+		System.out.printf("Fichier : %s (%,d octets)%n", file, file.length());
+		measure("rdf4j, parsing seul", file, runs, ParserBenchmark::parseWithRdf4j);
+		measure("rapide, parsing seul", file, runs, ParserBenchmark::parseFast);
+		measure("rdf4j, chargement HexaStore", file, runs, ParserBenchmark::loadWithRdf4j);
+		measure("rapide, chargement HexaStore", file, runs, ParserBenchmark::loadFast);
+		measure("parallèle, chargement HexaStore", file, runs, ParserBenchmark::loadParallel);
+	}
+
+	private static void measure(String label, File file, int runs, Load load) throws IOException {
+		long best = Long.MAX_VALUE;
+		long triples = 0;
+		for (int i = 0; i < runs; i++) {
+			long start = System.nanoTime();
+			triples = load.run(file);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		System.out.printf("%-32s : %,10d triplets en %,7d ms, %,12.0f triplets/s%n",
+				label, triples, best / 1_000_000, triples * 1e9 / best);
+	}
+
+	private static long parseWithRdf4j(File file) throws IOException {
+		long count = 0;
+		try (RDFTriplesParser parser = new RDFTriplesParser(file)) {
+			while (parser.hasNext()) {
+				parser.next();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static long parseFast(File file) throws IOException {
+		long count = 0;
+		try (FastNTriplesParser parser = new FastNTriplesParser(file)) {
+			while (parser.hasNext()) {
+				parser.next();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static long loadWithRdf4j(File file) throws IOException {
+		RDFHexaStore store = new RDFHexaStore();
+		try (RDFTriplesParser parser = new RDFTriplesParser(file)) {
+			store.addAll(parser.getRDFAtoms());
+		}
+		return store.size();
+	}
+
+	private static long loadFast(File file) throws IOException {
+		RDFHexaStore store = new RDFHexaStore();
+		try (FastNTriplesParser parser = new FastNTriplesParser(file)) {
+			store.addAll(parser);
+		}
+		return store.size();
+	}
+
+	private static long loadParallel(File file) throws IOException {
+		RDFHexaStore store = new RDFHexaStore();
+		store.addAll(new ParallelNTriplesParser(file));
+		return store.size();
+	}
+}
@@ -0,0 +1,208 @@
+package qengine.program;
+
+import fr.boreal.model.kb.api.FactBase;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.storage.natives.SimpleInMemoryGraphStore;
+import qengine.model.RDFTriple;
+import qengine.parser.FastNTriplesParser;
+import qengine.storage.CachingRDFStorage;
+import qengine.storage.RDFHexaStore;
+import qengine.workload.QueryEngine;
+import qengine.workload.Workload;
+import qengine.workload.WorkloadExecutor;
+import qengine.workload.WorkloadReport;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Banc d'essai d'une charge de travail WatDiv : charge un fichier N-Triples, exécute toutes les requêtes d'un
+ * fichier de requêtes sur l'HexaStore et sur le store de référence d'Integraal ({@link SimpleInMemoryGraphStore}
+ * évalué par {@code GenericFOQueryEvaluator}), vérifie que les deux moteurs donnent les mêmes réponses et
+ * affiche les centiles de latence par modèle de requête ainsi que le débit.
+ * <p>
+ * Usage : {@code WorkloadRunner [fichier.nt] [fichier.queryset] [--option=valeur...]}, avec les options :
+ * <ul>
+ *     <li>{@code --cold=n} : tours à froid, chacun sur un store fraîchement chargé (1 par défaut) ;</li>
+ *     <li>{@code --warmup=n} : tours de préchauffage non mesurés, sur le store du dernier tour à froid (2) ;</li>
+ *     <li>{@code --warm=n} : tours à chaud mesurés, sur le même store (5) ;</li>
+ *     <li>{@code --threads=n} : requêtes évaluées à la fois lors des tours mesurés, sur des threads virtuels (1) ;</li>
+ *     <li>{@code --engines=hexastore,integraal} : moteurs exécutés, la vérification demandant au moins deux
+ *     moteurs ; {@code cached} est l'HexaStore derrière un cache de réponses ({@link CachingRDFStorage}) et
+ *     {@code prepared} l'HexaStore interrogé par modèles préparés ({@link QueryEngine#prepared}) ;</li>
+ *     <li>{@code --csv=fichier}, {@code --json=fichier} : écrit aussi le rapport ({@link WorkloadReport}) ;</li>
+ *     <li>{@code --label=texte} : libellé de la mesure (version, machine...), repris dans le rapport.</li>
+ * </ul>
+ * Les réponses d'une requête limitée (LIMIT) ne sont pas comparées entre moteurs, chacun renvoyant les premières
+ * dans son ordre d'évaluation, mais à toutes les réponses de la requête sans limite.
+ * Le programme se termine avec le code 1 si des réponses diffèrent.
+ */
+public final class WorkloadRunner {
+
+	private static final String DEFAULT_DATA_FILE = "data/sample_data.nt";
+	private static final String DEFAULT_QUERY_FILE = "data/sample_query.queryset";
+	private static final String DEFAULT_ENGINES = "hexastore,integraal";
+	private static final int SLOWEST_TEMPLATES = 5;
+
+	private static final Map<String, Function<List<RDFTriple>, QueryEngine>> ENGINES = new LinkedHashMap<>();
+
+	static {
+		ENGINES.put("hexastore", triples -> {
+			RDFHexaStore store = new RDFHexaStore();
+			store.addAll(triples);
+			return QueryEngine.of(store);
+		});
+		ENGINES.put("cached", triples -> {
+			RDFHexaStore store = new RDFHexaStore();
+			store.addAll(triples);
+			return QueryEngine.of(new CachingRDFStorage(store));
+		});
+		ENGINES.put("prepared", triples -> {
+			RDFHexaStore store = new RDFHexaStore();
+			store.addAll(triples);
+			return QueryEngine.prepared(store);
+		});
+		ENGINES.put("integraal", triples -> {
+			FactBase factBase = new SimpleInMemoryGraphStore();
+			triples.forEach(factBase::add);
+			return QueryEngine.integraal(factBase);
+		});
+	}
+
+	private WorkloadRunner() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		List<String> files = new ArrayList<>();
+		Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			if (arg.startsWith("--")) {
+				int equals = arg.indexOf('=');
+				options.put(equals < 0 ? arg.substring(2) : arg.substring(2, equals),
+						equals < 0 ? "" : arg.substring(equals + 1));
+			} else {
+				files.add(arg);
+			}
+		}
+		String dataFile = files.size() > 0 ? files.get(0) : DEFAULT_DATA_FILE;
+		String queryFile = files.size() > 1 ? files.get(1) : DEFAULT_QUERY_FILE;
+		int cold = Integer.parseInt(options.getOrDefault("cold", "1"));
+		int warmup = Integer.parseInt(options.getOrDefault("warmup", "2"));
+		int warm = Integer.parseInt(options.getOrDefault("warm", "5"));
+		int threads = Integer.parseInt(options.getOrDefault("threads", "1"));
+		List<String> engines = List.of(options.getOrDefault("engines", DEFAULT_ENGINES).split(","));
+		for (String engine : engines) {
+			if (!ENGINES.containsKey(engine)) {
+				throw new IllegalArgumentException("Moteur inconnu : " + engine + ", parmi " + ENGINES.keySet());
+			}
+		}
+
+		List<RDFTriple> triples = new ArrayList<>();
+		try (FastNTriplesParser parser = new FastNTriplesParser(new File(dataFile))) {
+			while (parser.hasNext()) {
+				triples.add(parser.next());
+			}
+		}
+		Workload workload = Workload.load(queryFile);
+
+		WorkloadReport report = new WorkloadReport();
+		report.parameter("label", options.getOrDefault("label", ""));
+		report.parameter("data", dataFile);
+		report.parameter("triples", triples.size());
+		report.parameter("queries", queryFile);
+		report.parameter("count", workload.size());
+		report.parameter("templates", workload.templates().size());
+		report.parameter("rounds", "cold=" + cold + ", warmup=" + warmup + ", warm=" + warm);
+		report.parameter("threads", threads);
+
+		Map<String, List<Set<List<Term>>>> answers = new LinkedHashMap<>();
+		List<Set<List<Term>>> unlimited = null;
+		for (String engine : engines) {
+			Function<List<RDFTriple>, QueryEngine> loader = ENGINES.get(engine);
+			QueryEngine queryEngine = null;
+			long loadNanos = 0;
+			List<WorkloadExecutor.Round> rounds = new ArrayList<>();
+			for (int i = 0; i < Math.max(cold, 1); i++) {
+				long start = System.nanoTime();
+				queryEngine = loader.apply(triples);
+				loadNanos = System.nanoTime() - start;
+				if (i < cold) {
+					rounds.add(WorkloadExecutor.run(queryEngine, workload, threads));
+				}
+			}
+			report.parameter("load_ms_" + engine, loadNanos / 1_000_000);
+			if (cold > 0) {
+				report.add(engine, "cold", workload, rounds);
+			}
+
+			for (int i = 0; i < warmup; i++) {
+				WorkloadExecutor.run(queryEngine, workload, threads);
+			}
+			rounds.clear();
+			for (int i = 0; i < warm; i++) {
+				rounds.add(WorkloadExecutor.run(queryEngine, workload, threads));
+			}
+			report.add(engine, "warm", workload, rounds);
+
+			if (engines.size() > 1) {
+				if (answers.isEmpty()) {
+					unlimited = WorkloadExecutor.answers(queryEngine, workload, true);
+				}
+				answers.put(engine, WorkloadExecutor.answers(queryEngine, workload));
+			}
+		}
+		compare(workload, answers, unlimited, report);
+
+		report.print(System.out, SLOWEST_TEMPLATES);
+		if (options.containsKey("csv")) {
+			report.writeCsv(Path.of(options.get("csv")));
+		}
+		if (options.containsKey("json")) {
+			report.writeJson(Path.of(options.get("json")));
+		}
+		if (!report.mismatches().isEmpty()) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Compare les réponses de chaque moteur à celles du premier. Les réponses d'une requête limitée sont les
+	 * premières dans l'ordre d'évaluation de chaque moteur : elles sont seulement vérifiées par leur nombre, la
+	 * limite ou le nombre total de réponses, et par leur appartenance aux réponses de la requête sans limite
+	 * données par le premier moteur.
+	 *
+	 * @param unlimited les réponses du premier moteur aux requêtes évaluées sans leur limite
+	 */
+	private static void compare(Workload workload, Map<String, List<Set<List<Term>>>> answers,
+			List<Set<List<Term>>> unlimited, WorkloadReport report) {
+		if (answers.isEmpty()) {
+			return;
+		}
+		String reference = answers.keySet().iterator().next();
+		List<Set<List<Term>>> expected = answers.get(reference);
+		answers.forEach((engine, actual) -> {
+			for (int i = 0; i < workload.size(); i++) {
+				long limit = workload.query(i).getLimit();
+				if (workload.query(i).hasLimit()) {
+					Set<List<Term>> all = unlimited.get(i);
+					if (actual.get(i).size() != Math.min(limit, all.size()) || !all.containsAll(actual.get(i))) {
+						report.mismatch(String.format("requête #%d (%s) : %d réponses pour %s, parmi %d réponses sans "
+								+ "limite pour %s, limite %d", i + 1, workload.template(i), actual.get(i).size(), engine,
+								all.size(), reference, limit));
+					}
+				} else if (!expected.get(i).equals(actual.get(i))) {
+					report.mismatch(String.format("requête #%d (%s) : %d réponses pour %s, %d pour %s", i + 1,
+							workload.template(i), expected.get(i).size(), reference, actual.get(i).size(), engine));
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,280 @@
+package qengine.storage;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.impl.SubstitutionImpl;
+import qengine.model.CanonicalStarQuery;
+import qengine.model.RDFTriple;
+import qengine.model.StarQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Cache des réponses aux requêtes en étoile devant un autre store : les requêtes de même
+ * {@link CanonicalStarQuery forme canonique}, c'est-à-dire identiques aux labels, à l'ordre des patrons et aux noms
+ * des variables près, partagent leurs réponses, renommées vers les variables de chaque requête.
+ * <p>
+ * Les réponses sont enregistrées pendant leur parcours : une requête n'est mise en cache que si toutes ses
+ * réponses ont été lues, sans ajout entre-temps. Le cache est borné par le nombre total de réponses conservées
+ * (plus une par requête) et évince les requêtes les moins récemment lues (LRU). Tout ajout qui modifie le store
+ * vide le cache. Les autres opérations sont déléguées au store.
+ * <p>
+ * La limite d'une requête ne fait pas partie de sa forme canonique : une requête limitée lit les premières réponses
+ * en cache de sa forme, mais ses réponses ne sont jamais mises en cache, puisqu'elles n'en sont qu'une partie.
+ * <p>
+ * Le cache peut être lu par plusieurs threads à la fois si le store sous-jacent le permet.
+ */
+public class CachingRDFStorage implements RDFStorage {
+
+    /**
+     * Nombre de réponses conservées par défaut.
+     */
+    public static final long DEFAULT_CAPACITY = 1 << 20;
+
+    private final RDFStorage storage;
+    private final long capacity;
+
+    // Réponses par requête : une ligne par substitution, l'image de chaque variable par numéro canonique
+    private final Map<CanonicalStarQuery, Term[][]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    // Incrémenté par chaque ajout effectif ; une réponse lue avant un ajout n'est pas mise en cache
+    private long version;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingRDFStorage(RDFStorage storage) {
+        this(storage, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param storage  le store dont les réponses sont mises en cache
+     * @param capacity le nombre de réponses conservées, chaque requête en cache comptant pour une de plus
+     */
+    public CachingRDFStorage(RDFStorage storage, long capacity) {
+        this.storage = storage;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean add(RDFTriple t) {
+        boolean added = storage.add(t);
+        if (added) {
+            invalidate();
+        }
+        return added;
+    }
+
+    @Override
+    public boolean addAll(Stream<RDFTriple> atoms) {
+        boolean added = storage.addAll(atoms);
+        if (added) {
+            invalidate();
+        }
+        return added;
+    }
+
+    @Override
+    public Iterator<Substitution> match(RDFTriple a) {
+        return storage.match(a);
+    }
+
+    /**
+     * Réponses en cache si une requête de même forme canonique a déjà été entièrement lue, au plus la limite de
+     * la requête, réponses du store sinon.
+     */
+    @Override
+    public Iterator<Substitution> match(StarQuery q) {
+        CanonicalStarQuery canonical = CanonicalStarQuery.of(q);
+        Term[][] rows;
+        long readVersion;
+        synchronized (this) {
+            rows = entries.get(canonical);
+            readVersion = version;
+        }
+        if (rows != null) {
+            hits.increment();
+            return new CachedIterator(rows, (int) Math.min(rows.length, q.getLimit()), canonical.variables());
+        }
+        misses.increment();
+        return q.hasLimit() ? storage.match(q) : new RecordingIterator(storage.match(q), canonical, readVersion);
+    }
+
+    @Override
+    public long howMany(RDFTriple a) {
+        return storage.howMany(a);
+    }
+
+    /**
+     * Nombre de réponses en cache si la requête y est, compté par le store sinon, sans remplir le cache.
+     */
+    @Override
+    public long howMany(StarQuery q) {
+        Term[][] rows = cached(CanonicalStarQuery.of(q));
+        return rows != null ? Math.min(rows.length, q.getLimit()) : storage.howMany(q);
+    }
+
+    @Override
+    public boolean ask(StarQuery q) {
+        Term[][] rows = cached(CanonicalStarQuery.of(q));
+        return rows != null ? rows.length > 0 && q.getLimit() > 0 : storage.ask(q);
+    }
+
+    @Override
+    public void flush() {
+        storage.flush();
+    }
+
+    @Override
+    public long size() {
+        return storage.size();
+    }
+
+    @Override
+    public Collection<RDFTriple> getAtoms() {
+        return storage.getAtoms();
+    }
+
+    /**
+     * @return le nombre de requêtes en étoile dont les réponses ont été lues dans le cache
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return le nombre de requêtes en étoile évaluées par le store
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return le nombre de requêtes en cache
+     */
+    public synchronized int cachedQueries() {
+        return entries.size();
+    }
+
+    /**
+     * Vide le cache ; les compteurs sont conservés.
+     */
+    public synchronized void invalidate() {
+        entries.clear();
+        weight = 0;
+        version++;
+    }
+
+    /**
+     * @return les réponses en cache d'une requête, ou null
+     */
+    private synchronized Term[][] cached(CanonicalStarQuery canonical) {
+        Term[][] rows = entries.get(canonical);
+        (rows != null ? hits : misses).increment();
+        return rows;
+    }
+
+    private synchronized void put(CanonicalStarQuery canonical, Term[][] rows, long readVersion) {
+        if (readVersion != version || rows.length + 1 > capacity) {
+            return;
+        }
+        Term[][] previous = entries.put(canonical, rows);
+        weight += rows.length + 1 - (previous == null ? 0 : previous.length + 1);
+        for (Iterator<Term[][]> eldest = entries.values().iterator(); weight > capacity; ) {
+            weight -= eldest.next().length + 1;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Parcourt les réponses du store en les enregistrant, et les met en cache lorsqu'elles ont toutes été lues.
+     */
+    private final class RecordingIterator implements Iterator<Substitution> {
+        private final Iterator<Substitution> answers;
+        private final CanonicalStarQuery canonical;
+        private final long readVersion;
+        // null dès que les réponses dépassent la capacité du cache
+        private List<Term[]> rows = new ArrayList<>();
+
+        RecordingIterator(Iterator<Substitution> answers, CanonicalStarQuery canonical, long readVersion) {
+            this.answers = answers;
+            this.canonical = canonical;
+            this.readVersion = readVersion;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = answers.hasNext();
+            if (!hasNext && rows != null) {
+                put(canonical, rows.toArray(new Term[0][]), readVersion);
+                rows = null;
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Substitution next() {
+            Substitution substitution = answers.next();
+            if (rows != null) {
+                if (rows.size() + 1 >= capacity) {
+                    rows = null;
+                } else {
+                    Term[] row = new Term[canonical.variables().size()];
+                    for (Variable variable : substitution.keys()) {
+                        int number = canonical.indexOf(variable);
+                        if (number >= 0) {
+                            row[number] = substitution.createImageOf(variable);
+                        }
+                    }
+                    rows.add(row);
+                }
+            }
+            return substitution;
+        }
+    }
+
+    /**
+     * Premières réponses en cache, renommées vers les variables de la requête.
+     */
+    private static final class CachedIterator implements Iterator<Substitution> {
+        private final Term[][] rows;
+        private final int length;
+        private final List<Variable> variables;
+        private int next;
+
+        CachedIterator(Term[][] rows, int length, List<Variable> variables) {
+            this.rows = rows;
+            this.length = length;
+            this.variables = variables;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < length;
+        }
+
+        @Override
+        public Substitution next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Term[] row = rows[next++];
+            Substitution substitution = new SubstitutionImpl();
+            for (int i = 0; i < row.length; i++) {
+                if (row[i] != null) {
+                    substitution.add(variables.get(i), row[i]);
+                }
+            }
+            return substitution;
+        }
+    }
+}
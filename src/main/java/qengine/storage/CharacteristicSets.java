@@ -0,0 +1,264 @@
+package qengine.storage;
+
+import qengine.storage.index.IdCursor;
+import qengine.storage.index.RegionFile;
+import qengine.storage.index.TripleIndex;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ensembles caractéristiques d'un HexaStore, statistiques dédiées à l'estimation des requêtes en étoile.
+ * <p>
+ * L'ensemble caractéristique d'un sujet est l'ensemble des prédicats qu'il porte. Les sujets sont groupés
+ * par ensemble caractéristique, et chaque groupe conserve le nombre de ses sujets et, pour chacun de ses
+ * prédicats, le nombre total de triplets (la multiplicité moyenne d'un prédicat est ce total divisé par le
+ * nombre de sujets). Une étoile de prédicats ne peut avoir pour centre que les sujets des ensembles qui
+ * contiennent tous ses prédicats, ce qui rend l'estimation exacte lorsque les objets sont des variables.
+ * <p>
+ * Les statistiques sont immuables ; le store les recalcule à partir de l'index SPO à la première estimation
+ * qui suit une indexation. Elles sont stockées, comme les index, dans des tableaux d'entiers :
+ * <ul>
+ *     <li>{@code groupOffsets[g] .. groupOffsets[g + 1]} : l'intervalle des prédicats du groupe g dans
+ *     {@code predicates}, triés, et de leurs nombres de triplets dans {@code occurrences} ;</li>
+ *     <li>{@code subjects[g]} : le nombre de sujets du groupe g ;</li>
+ *     <li>{@code predicateOffsets[p] .. predicateOffsets[p + 1]} : l'intervalle dans {@code predicateGroups}
+ *     des groupes qui contiennent le prédicat p, indexé directement par l'identifiant p.</li>
+ * </ul>
+ * Des statistiques écrites avec le store ({@link #write(RegionFile.Writer)}) sont relues sans copie ni calcul.
+ */
+public final class CharacteristicSets {
+
+    private static final IntBuffer NO_OFFSETS = IntBuffer.wrap(new int[]{0});
+    private static final IntBuffer NO_IDS = IntBuffer.wrap(new int[0]);
+
+    private static final CharacteristicSets EMPTY =
+            new CharacteristicSets(NO_OFFSETS, NO_IDS, NO_IDS, NO_IDS, NO_OFFSETS, NO_IDS);
+
+    private final IntBuffer groupOffsets;
+    private final IntBuffer predicates;
+    private final IntBuffer occurrences;
+    private final IntBuffer subjects;
+    private final IntBuffer predicateOffsets;
+    private final IntBuffer predicateGroups;
+
+    private CharacteristicSets(IntBuffer groupOffsets, IntBuffer predicates, IntBuffer occurrences,
+                               IntBuffer subjects, IntBuffer predicateOffsets, IntBuffer predicateGroups) {
+        this.groupOffsets = groupOffsets;
+        this.predicates = predicates;
+        this.occurrences = occurrences;
+        this.subjects = subjects;
+        this.predicateOffsets = predicateOffsets;
+        this.predicateGroups = predicateGroups;
+    }
+
+    /**
+     * @return des statistiques vides
+     */
+    public static CharacteristicSets empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Calcule les ensembles caractéristiques en un parcours de l'index SPO : pour un sujet, ses prédicats
+     * sont les deuxièmes clés de l'index et leurs multiplicités la taille des listes de troisièmes clés.
+     *
+     * @param spo l'index SPO
+     * @return les ensembles caractéristiques de l'index
+     */
+    public static CharacteristicSets of(TripleIndex spo) {
+        Map<Group, Group> groups = new LinkedHashMap<>();
+        IdCursor subjectCursor = spo.firstCursor();
+        for (int s = subjectCursor.next(); s != IdCursor.END; s = subjectCursor.next()) {
+            int from = spo.firstStart(s);
+            int[] keys = new int[spo.firstEnd(s) - from];
+            for (int j = 0; j < keys.length; j++) {
+                keys[j] = spo.secondKey(from + j);
+            }
+            Group group = groups.computeIfAbsent(new Group(keys), key -> key);
+            group.subjects++;
+            for (int j = 0; j < keys.length; j++) {
+                group.occurrences[j] += spo.leafEnd(from + j) - spo.leafStart(from + j);
+            }
+        }
+
+        int[] groupOffsets = new int[groups.size() + 1];
+        int[] subjects = new int[groups.size()];
+        int maxPredicate = -1;
+        int g = 0;
+        for (Group group : groups.keySet()) {
+            groupOffsets[g + 1] = groupOffsets[g] + group.predicates.length;
+            subjects[g++] = group.subjects;
+            for (int predicate : group.predicates) {
+                maxPredicate = Math.max(maxPredicate, predicate);
+            }
+        }
+        int[] predicates = new int[groupOffsets[g]];
+        int[] occurrences = new int[groupOffsets[g]];
+        int[] predicateOffsets = new int[maxPredicate + 2];
+        g = 0;
+        for (Group group : groups.keySet()) {
+            System.arraycopy(group.predicates, 0, predicates, groupOffsets[g], group.predicates.length);
+            System.arraycopy(group.occurrences, 0, occurrences, groupOffsets[g], group.predicates.length);
+            for (int predicate : group.predicates) {
+                predicateOffsets[predicate + 1]++;
+            }
+            g++;
+        }
+        for (int p = 1; p < predicateOffsets.length; p++) {
+            predicateOffsets[p] += predicateOffsets[p - 1];
+        }
+        int[] predicateGroups = new int[predicates.length];
+        int[] next = Arrays.copyOf(predicateOffsets, predicateOffsets.length);
+        for (g = 0; g < subjects.length; g++) {
+            for (int k = groupOffsets[g]; k < groupOffsets[g + 1]; k++) {
+                predicateGroups[next[predicates[k]]++] = g;
+            }
+        }
+        return new CharacteristicSets(IntBuffer.wrap(groupOffsets), IntBuffer.wrap(predicates),
+                IntBuffer.wrap(occurrences), IntBuffer.wrap(subjects), IntBuffer.wrap(predicateOffsets),
+                IntBuffer.wrap(predicateGroups));
+    }
+
+    /**
+     * Relit des statistiques écrites par {@link #write(RegionFile.Writer)}, sans copie.
+     *
+     * @param reader le fichier, positionné sur la première région des statistiques
+     * @return les statistiques relues
+     */
+    public static CharacteristicSets read(RegionFile.Reader reader) throws IOException {
+        IntBuffer groupOffsets = reader.ints();
+        IntBuffer predicates = reader.ints();
+        IntBuffer occurrences = reader.ints();
+        IntBuffer subjects = reader.ints();
+        IntBuffer predicateOffsets = reader.ints();
+        IntBuffer predicateGroups = reader.ints();
+        if (groupOffsets.limit() != subjects.limit() + 1 || predicateOffsets.limit() == 0
+                || predicates.limit() != groupOffsets.get(subjects.limit())
+                || occurrences.limit() != predicates.limit() || predicateGroups.limit() != predicates.limit()
+                || predicateOffsets.get(predicateOffsets.limit() - 1) != predicates.limit()) {
+            throw new IOException("Ensembles caractéristiques invalides");
+        }
+        return new CharacteristicSets(groupOffsets, predicates, occurrences, subjects, predicateOffsets,
+                predicateGroups);
+    }
+
+    /**
+     * Écrit les statistiques, une région par tableau.
+     */
+    public void write(RegionFile.Writer writer) throws IOException {
+        writer.ints(groupOffsets);
+        writer.ints(predicates);
+        writer.ints(occurrences);
+        writer.ints(subjects);
+        writer.ints(predicateOffsets);
+        writer.ints(predicateGroups);
+    }
+
+    /**
+     * @return le nombre d'ensembles caractéristiques distincts
+     */
+    public int size() {
+        return subjects.limit();
+    }
+
+    /**
+     * Estime le nombre de réponses d'une étoile de patrons {@code ?x predicates[i] objet_i} centrée sur le sujet.
+     * Pour chaque ensemble contenant tous les prédicats, chaque sujet contribue le produit des multiplicités
+     * moyennes des prédicats, pondérées par la sélectivité de leur objet.
+     *
+     * @param predicates    les prédicats des patrons, éventuellement répétés
+     * @param selectivities pour chaque patron, la proportion des triplets du prédicat dont l'objet convient
+     *                      (1 si l'objet est une variable)
+     * @param distinct      true pour estimer le nombre de sujets distincts, false le nombre de combinaisons
+     * @return l'estimation, nulle si aucun sujet ne porte tous les prédicats
+     */
+    public double estimate(int[] predicates, double[] selectivities, boolean distinct) {
+        if (predicates.length == 0) {
+            return 0;
+        }
+        // Les groupes du prédicat le plus rare sont les seuls candidats
+        int from = 0;
+        int to = Integer.MAX_VALUE;
+        for (int predicate : predicates) {
+            int start = 0;
+            int end = 0;
+            if (predicate < predicateOffsets.limit() - 1) {
+                start = predicateOffsets.get(predicate);
+                end = predicateOffsets.get(predicate + 1);
+            }
+            if (end - start < to - from) {
+                from = start;
+                to = end;
+            }
+        }
+
+        double estimate = 0;
+        for (int k = from; k < to; k++) {
+            int group = predicateGroups.get(k);
+            int first = groupOffsets.get(group);
+            int last = groupOffsets.get(group + 1);
+            int groupSubjects = subjects.get(group);
+            double perSubject = 1;
+            for (int i = 0; i < predicates.length && perSubject > 0; i++) {
+                int position = find(first, last, predicates[i]);
+                if (position < 0) {
+                    perSubject = 0;
+                } else {
+                    double multiplicity = (double) occurrences.get(position) / groupSubjects;
+                    double matches = multiplicity * selectivities[i];
+                    perSubject *= distinct ? Math.min(1, matches) : matches;
+                }
+            }
+            estimate += groupSubjects * perSubject;
+        }
+        return estimate;
+    }
+
+    /**
+     * @return la position du prédicat parmi les prédicats triés de [from, to), ou -1 s'il n'y figure pas
+     */
+    private int find(int from, int to, int predicate) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int key = predicates.get(middle);
+            if (key < predicate) {
+                low = middle + 1;
+            } else if (key > predicate) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Un ensemble caractéristique en cours de calcul : ses prédicats triés, qui l'identifient, et ses compteurs.
+     */
+    private static final class Group {
+        private final int[] predicates;
+        private final int[] occurrences;
+        private int subjects;
+
+        private Group(int[] predicates) {
+            this.predicates = predicates;
+            this.occurrences = new int[predicates.length];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Group group && Arrays.equals(predicates, group.predicates);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(predicates);
+        }
+    }
+}
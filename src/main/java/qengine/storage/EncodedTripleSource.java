@@ -0,0 +1,23 @@
+package qengine.storage;
+
+import qengine.storage.index.TripleIndex;
+
+import java.io.IOException;
+
+/**
+ * Source de triplets capable de les encoder elle-même avec le dictionnaire d'un store,
+ * sans passer par des objets {@link qengine.model.RDFTriple} intermédiaires.
+ * C'est le point d'entrée du chargement en masse {@link RDFHexaStore#addAll(EncodedTripleSource)}.
+ */
+@FunctionalInterface
+public interface EncodedTripleSource {
+
+    /**
+     * Encode tous les triplets de la source et les transmet, sous forme d'identifiants (s, p, o).
+     *
+     * @param dictionary le dictionnaire dans lequel encoder les termes
+     * @param consumer   le consommateur des triplets encodés
+     * @throws IOException si la source ne peut pas être lue
+     */
+    void encodeInto(RDFDictionary dictionary, TripleIndex.TripleConsumer consumer) throws IOException;
+}
@@ -0,0 +1,337 @@
+package qengine.storage;
+
+import qengine.storage.index.OffHeapMemory;
+import qengine.storage.index.RegionFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Chaînes UTF-8 triées et compressées par préfixe (« front coding »), partie compactée de {@link RDFDictionary}.
+ * <p>
+ * Les chaînes, triées par ordre des octets non signés, sont groupées par paquets de {@link #BUCKET_SIZE}.
+ * La première chaîne d'un paquet est écrite en entier (longueur puis octets) ; chacune des suivantes par la
+ * longueur du préfixe qu'elle partage avec la précédente, puis la longueur et les octets de son suffixe, les
+ * longueurs étant des entiers de longueur variable. Les IRI d'un même jeu de données partageant de longs
+ * préfixes, seuls quelques octets distinctifs sont conservés par chaîne.
+ * <p>
+ * La recherche d'une chaîne est une dichotomie sur les têtes de paquets, lues sans décodage, suivie du
+ * décodage d'un seul paquet ; l'accès à une chaîne par son rang décode au plus un paquet. Deux tables relient
+ * le rang d'une chaîne à l'identifiant que le dictionnaire lui a attribué, et réciproquement.
+ */
+final class FrontCodedStrings {
+
+    static final int BUCKET_SIZE = 16;
+
+    private static final FrontCodedStrings EMPTY = new Builder(0).build(false);
+
+    private final ByteBuffer bytes;
+    // Position dans bytes du début de chaque paquet
+    private final IntBuffer buckets;
+    private final IntBuffer positionToId;
+    // Rang de la chaîne de chaque identifiant, -1 pour les identifiants qui ne sont pas des chaînes compactées
+    private final IntBuffer idToPosition;
+
+    private FrontCodedStrings(ByteBuffer bytes, IntBuffer buckets, IntBuffer positionToId, IntBuffer idToPosition) {
+        this.bytes = bytes;
+        this.buckets = buckets;
+        this.positionToId = positionToId;
+        this.idToPosition = idToPosition;
+    }
+
+    static FrontCodedStrings empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return le nombre de chaînes
+     */
+    int size() {
+        return positionToId.limit();
+    }
+
+    /**
+     * @return l'identifiant de la chaîne de rang position
+     */
+    int id(int position) {
+        return positionToId.get(position);
+    }
+
+    /**
+     * @return le rang de la chaîne d'identifiant id, ou -1 si cet identifiant n'est pas une chaîne compactée
+     */
+    int position(int id) {
+        return id < idToPosition.limit() ? idToPosition.get(id) : -1;
+    }
+
+    /**
+     * @return une copie des octets de la chaîne de rang position
+     */
+    byte[] get(int position) {
+        Scan scan = new Scan(position / BUCKET_SIZE);
+        for (int k = position % BUCKET_SIZE; k >= 0; k--) {
+            scan.next();
+        }
+        return Arrays.copyOf(scan.current, scan.length);
+    }
+
+    /**
+     * Recherche une chaîne donnée en UTF-8.
+     *
+     * @return le rang de la chaîne, ou -1 si elle est absente
+     */
+    int search(byte[] utf8, int offset, int length) {
+        int low = 0;
+        int high = buckets.limit() - 1;
+        if (high < 0 || compareHead(0, utf8, offset, length) > 0) {
+            return -1;
+        }
+        // Dernier paquet dont la tête ne dépasse pas la chaîne cherchée
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (compareHead(middle, utf8, offset, length) <= 0) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return searchBucket(low, utf8, offset, length);
+    }
+
+    /**
+     * @return un parcours des chaînes dans l'ordre de leur rang
+     */
+    Scan scan() {
+        return new Scan(0);
+    }
+
+    private int compareHead(int bucket, byte[] utf8, int offset, int length) {
+        int position = buckets.get(bucket);
+        int headLength = readVarint(position);
+        position += varintSize(headLength);
+        if (bytes.hasArray()) {
+            int start = bytes.arrayOffset() + position;
+            return Arrays.compareUnsigned(bytes.array(), start, start + headLength, utf8, offset, offset + length);
+        }
+        int common = Math.min(headLength, length);
+        for (int k = 0; k < common; k++) {
+            int cmp = Integer.compare(bytes.get(position + k) & 0xFF, utf8[offset + k] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(headLength, length);
+    }
+
+    /**
+     * Cherche une chaîne dans un paquet sans reconstruire ses chaînes : seule la longueur du préfixe commun
+     * entre la chaîne courante et la chaîne cherchée est suivie. Une chaîne qui partage avec la précédente
+     * un préfixe plus long que ce préfixe commun lui est encore inférieure ; plus court, elle la dépasse.
+     *
+     * @return le rang de la chaîne, ou -1 si elle est absente du paquet
+     */
+    private int searchBucket(int bucket, byte[] utf8, int offset, int length) {
+        int position = buckets.get(bucket);
+        int last = Math.min(size(), (bucket + 1) * BUCKET_SIZE);
+        int matched = 0;
+        for (int rank = bucket * BUCKET_SIZE; rank < last; rank++) {
+            int prefix = 0;
+            if (rank % BUCKET_SIZE != 0) {
+                prefix = readVarint(position);
+                position += varintSize(prefix);
+            }
+            int suffix = readVarint(position);
+            position += varintSize(suffix);
+            if (prefix < matched) {
+                return -1;
+            }
+            if (prefix == matched) {
+                int k = 0;
+                while (k < suffix && matched < length && bytes.get(position + k) == utf8[offset + matched]) {
+                    k++;
+                    matched++;
+                }
+                if (k == suffix && matched == length) {
+                    return rank;
+                }
+                // La chaîne courante dépasse la chaîne cherchée si celle-ci s'arrête avant elle ou si son octet diffère vers le haut
+                if (k < suffix && (matched == length || (bytes.get(position + k) & 0xFF) > (utf8[offset + matched] & 0xFF))) {
+                    return -1;
+                }
+            }
+            position += suffix;
+        }
+        return -1;
+    }
+
+    private int readVarint(int position) {
+        int b = bytes.get(position++);
+        int value = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = bytes.get(position++);
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+
+    private static int varintSize(int value) {
+        return (38 - Integer.numberOfLeadingZeros(value | 1)) / 7;
+    }
+
+    /**
+     * @return une copie dont les tampons sont alloués hors du tas
+     */
+    FrontCodedStrings offHeap() {
+        return new FrontCodedStrings(OffHeapMemory.copyOf(bytes), OffHeapMemory.copyOf(buckets),
+                OffHeapMemory.copyOf(positionToId), OffHeapMemory.copyOf(idToPosition));
+    }
+
+    static FrontCodedStrings read(RegionFile.Reader reader) throws IOException {
+        ByteBuffer bytes = reader.bytes();
+        IntBuffer buckets = reader.ints();
+        IntBuffer positionToId = reader.ints();
+        IntBuffer idToPosition = reader.ints();
+        if (buckets.limit() != (positionToId.limit() + BUCKET_SIZE - 1) / BUCKET_SIZE) {
+            throw new IOException("Chaînes compactées invalides");
+        }
+        return new FrontCodedStrings(bytes, buckets, positionToId, idToPosition);
+    }
+
+    void write(RegionFile.Writer writer) throws IOException {
+        writer.bytes(bytes);
+        writer.ints(buckets);
+        writer.ints(positionToId);
+        writer.ints(idToPosition);
+    }
+
+    /**
+     * Parcours séquentiel des chaînes à partir d'un paquet : après chaque appel à {@link #next()} qui
+     * retourne true, la chaîne courante occupe les {@link #length} premiers octets de {@link #current}.
+     */
+    final class Scan {
+        private byte[] current = new byte[64];
+        private int length;
+        private int position;
+        private int offset;
+
+        private Scan(int bucket) {
+            position = bucket * BUCKET_SIZE - 1;
+            offset = bucket < buckets.limit() ? buckets.get(bucket) : bytes.limit();
+        }
+
+        boolean next() {
+            if (++position >= size()) {
+                position = size();
+                return false;
+            }
+            int prefix = position % BUCKET_SIZE == 0 ? 0 : readVarint();
+            int suffix = readVarint();
+            length = prefix + suffix;
+            if (length > current.length) {
+                current = Arrays.copyOf(current, Math.max(length, 2 * current.length));
+            }
+            bytes.get(offset, current, prefix, suffix);
+            offset += suffix;
+            return true;
+        }
+
+        byte[] current() {
+            return current;
+        }
+
+        int length() {
+            return length;
+        }
+
+        int id() {
+            return positionToId.get(position);
+        }
+
+        private int readVarint() {
+            int b = bytes.get(offset++);
+            int value = b & 0x7F;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = bytes.get(offset++);
+                value |= (b & 0x7F) << shift;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Construction à partir de chaînes fournies dans l'ordre croissant, sans doublons.
+     */
+    static final class Builder {
+        private byte[] bytes = new byte[1024];
+        private int size;
+        private int[] buckets = new int[16];
+        private int[] positionToId = new int[64];
+        private final int[] idToPosition;
+        private int count;
+        private byte[] previous = new byte[64];
+        private int previousLength;
+
+        /**
+         * @param ids le nombre d'identifiants attribués par le dictionnaire
+         */
+        Builder(int ids) {
+            idToPosition = new int[ids];
+            Arrays.fill(idToPosition, -1);
+        }
+
+        void add(byte[] utf8, int offset, int length, int id) {
+            int prefix = 0;
+            if (count % BUCKET_SIZE == 0) {
+                if (count / BUCKET_SIZE == buckets.length) {
+                    buckets = Arrays.copyOf(buckets, 2 * buckets.length);
+                }
+                buckets[count / BUCKET_SIZE] = size;
+            } else {
+                int common = Math.min(previousLength, length);
+                while (prefix < common && previous[prefix] == utf8[offset + prefix]) {
+                    prefix++;
+                }
+                putVarint(prefix);
+            }
+            putVarint(length - prefix);
+            reserve(length - prefix);
+            System.arraycopy(utf8, offset + prefix, bytes, size, length - prefix);
+            size += length - prefix;
+
+            if (length > previous.length) {
+                previous = Arrays.copyOf(previous, Math.max(length, 2 * previous.length));
+            }
+            System.arraycopy(utf8, offset, previous, 0, length);
+            previousLength = length;
+            if (count == positionToId.length) {
+                positionToId = Arrays.copyOf(positionToId, 2 * positionToId.length);
+            }
+            positionToId[count] = id;
+            idToPosition[id] = count++;
+        }
+
+        FrontCodedStrings build(boolean offHeap) {
+            FrontCodedStrings strings = new FrontCodedStrings(ByteBuffer.wrap(Arrays.copyOf(bytes, size)),
+                    IntBuffer.wrap(Arrays.copyOf(buckets, (count + BUCKET_SIZE - 1) / BUCKET_SIZE)),
+                    IntBuffer.wrap(Arrays.copyOf(positionToId, count)), IntBuffer.wrap(idToPosition));
+            return offHeap ? strings.offHeap() : strings;
+        }
+
+        private void putVarint(int value) {
+            reserve(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) (value | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void reserve(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, size + length));
+            }
+        }
+    }
+}
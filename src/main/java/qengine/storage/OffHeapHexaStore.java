@@ -0,0 +1,23 @@
+package qengine.storage;
+
+import qengine.storage.index.OffHeapMemory;
+import qengine.storage.index.TripleIndex;
+
+/**
+ * HexaStore dont le dictionnaire et les six index sont stockés hors du tas, dans des segments mémoire
+ * alloués par l'API « Foreign Function &amp; Memory » ({@link OffHeapMemory}).
+ * <p>
+ * Les requêtes sont évaluées exactement comme par {@link RDFHexaStore} ; seul l'emplacement des tableaux
+ * change. Le tas ne contient plus que des objets de taille constante par index, ce qui permet de servir
+ * un gros store avec un petit tas et des pauses du ramasse-miettes courtes. Les tableaux intermédiaires
+ * d'un chargement (tri, fusion) passent temporairement par le tas ; les termes déjà décodés y restent,
+ * la fabrique de termes les conservant de toute façon.
+ * <p>
+ * Nécessite {@code --enable-preview} en Java 21.
+ */
+public class OffHeapHexaStore extends RDFHexaStore {
+
+    public OffHeapHexaStore() {
+        super(RDFDictionary.offHeap(), TripleIndex::offHeap);
+    }
+}
@@ -0,0 +1,107 @@
+package qengine.storage;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import qengine.model.RDFTriple;
+import qengine.model.StarQuery;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Requête en étoile préparée : un modèle dont certaines variables, les paramètres, sont remplacées par des
+ * constantes à chaque exécution. Ce qui ne dépend pas des constantes des paramètres n'est fait qu'une fois, à la
+ * préparation ({@link RDFStorage#prepare(StarQuery, List)}).
+ */
+public interface PreparedStarQuery {
+
+    /**
+     * @return le modèle de la requête
+     */
+    StarQuery template();
+
+    /**
+     * @return les paramètres du modèle, dans l'ordre des valeurs de {@link #execute(Term...)}
+     */
+    List<Variable> parameters();
+
+    /**
+     * Exécute la requête avec une constante pour chaque paramètre.
+     *
+     * @param values les constantes, dans l'ordre de {@link #parameters()}
+     * @return un itérateur sur les réponses, qui portent sur les variables réponses du modèle
+     * @throws IllegalArgumentException si le nombre de constantes diffère du nombre de paramètres
+     */
+    Iterator<Substitution> execute(Term... values);
+
+    /**
+     * Vérifie un modèle et ses paramètres : chaque paramètre est une variable du modèle qui n'est pas une
+     * variable réponse, et une autre variable est partagée par tous les patrons.
+     *
+     * @return la variable centrale du modèle, partagée par tous les patrons, paramètres exclus
+     * @throws IllegalArgumentException si le modèle ou ses paramètres ne conviennent pas
+     */
+    static Variable checkTemplate(StarQuery template, List<Variable> parameters) {
+        for (Variable parameter : parameters) {
+            if (template.getAnswerVariables().contains(parameter)) {
+                throw new IllegalArgumentException("Le paramètre " + parameter + " est une variable réponse.");
+            }
+            if (template.getRdfAtoms().stream().noneMatch(triple -> List.of(triple.getTerms()).contains(parameter))) {
+                throw new IllegalArgumentException("Le paramètre " + parameter + " n'apparaît pas dans le modèle.");
+            }
+        }
+        Variable central = template.getCentralVariable();
+        if (!parameters.contains(central)) {
+            return central;
+        }
+        for (Term term : template.getRdfAtoms().getFirst().getTerms()) {
+            if (term instanceof Variable variable && !parameters.contains(variable) && template.getRdfAtoms().stream()
+                    .allMatch(triple -> List.of(triple.getTerms()).contains(variable))) {
+                return variable;
+            }
+        }
+        throw new IllegalArgumentException("Aucune variable du modèle, hors paramètres, n'est partagée par tous ses patrons.");
+    }
+
+    /**
+     * Préparation générique, pour les stores qui n'ont pas de plan à conserver : chaque exécution remplace les
+     * paramètres du modèle par leurs constantes et évalue la requête obtenue.
+     */
+    static PreparedStarQuery substituting(RDFStorage storage, StarQuery template, List<Variable> parameters) {
+        checkTemplate(template, parameters);
+        List<Variable> copy = List.copyOf(parameters);
+        return new PreparedStarQuery() {
+            @Override
+            public StarQuery template() {
+                return template;
+            }
+
+            @Override
+            public List<Variable> parameters() {
+                return copy;
+            }
+
+            @Override
+            public Iterator<Substitution> execute(Term... values) {
+                if (values.length != copy.size()) {
+                    throw new IllegalArgumentException(copy.size() + " constantes attendues, " + values.length + " reçues");
+                }
+                List<RDFTriple> triples = new ArrayList<>(template.getRdfAtoms().size());
+                for (RDFTriple triple : template.getRdfAtoms()) {
+                    Term[] terms = triple.getTerms().clone();
+                    for (int i = 0; i < 3; i++) {
+                        int parameter = copy.indexOf(terms[i]);
+                        if (parameter >= 0) {
+                            terms[i] = values[parameter];
+                        }
+                    }
+                    triples.add(new RDFTriple(terms[0], terms[1], terms[2]));
+                }
+                return storage.match(new StarQuery(template.getLabel(), triples, template.getAnswerVariables(),
+                        template.getLimit()));
+            }
+        };
+    }
+}
@@ -0,0 +1,534 @@
+package qengine.storage;
+
+import fr.boreal.model.logicalElements.api.Literal;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.factory.api.TermFactory;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+
+import qengine.storage.index.OffHeapMemory;
+import qengine.storage.index.RegionFile;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionnaire bidirectionnel associant chaque terme RDF à un identifiant entier dense.
+ * Les identifiants sont attribués dans l'ordre d'insertion, à partir de 0, ce qui permet
+ * de retrouver un terme à partir de son identifiant par simple accès indexé.
+ * <p>
+ * Les littéraux de type chaîne, qui représentent toutes les ressources lues en mode brut
+ * (IRI comme littéraux), sont conservés en UTF-8 dans deux parties :
+ * <ul>
+ *     <li>les termes récents, dans un unique tableau d'octets, retrouvés par une table de hachage sur
+ *     ces octets : un parser peut ainsi encoder un terme directement depuis son tampon de lecture
+ *     ({@link #encodeLiteral(byte[], int, int)}), sans créer ni {@link String} ni {@link Term} ;</li>
+ *     <li>les termes compactés par {@link #compact()}, triés et compressés par préfixe
+ *     ({@link FrontCodedStrings}), retrouvés par dichotomie.</li>
+ * </ul>
+ * Le compactage ne change pas les identifiants. Les autres termes (constantes, littéraux typés) sont
+ * conservés tels quels.
+ * <p>
+ * Le dictionnaire n'est pas thread-safe en écriture : {@link #encode(Term)}, {@link #encodeLiteral(byte[], int, int)},
+ * {@link #compact()} et {@link #mergeInto(RDFDictionary)} ne doivent être appelées que par un seul thread, sans
+ * lecture concurrente. Une fois les écritures terminées (après {@code flush()} du store), {@link #decode(int)},
+ * {@link #label(int)}, {@link #lookup(Term)}, {@link #lookupLiteral(byte[], int, int)} et {@link #size()} peuvent
+ * être appelées par plusieurs threads à la fois : seul {@link #decode(int)} modifie un état, son cache, dont les
+ * défauts sont résolus sous verrou.
+ * <p>
+ * Les octets, les bornes et la table de hachage sont des tampons : un dictionnaire relu par
+ * {@link #read(RegionFile.Reader)} travaille directement sur le fichier projeté en mémoire, et n'est
+ * recopié sur le tas qu'au premier ajout d'un terme. Un dictionnaire créé par {@link #offHeap()} alloue
+ * ces tampons hors du tas ; seul le cache, borné, des termes décodés reste sur le tas.
+ */
+public class RDFDictionary {
+
+    /**
+     * Valeur retournée par {@link #lookup(Term)} lorsque le terme n'est pas dans le dictionnaire.
+     */
+    public static final int NOT_FOUND = -1;
+
+    // Case libre de la table de hachage ; les cases occupées contiennent l'identifiant + 1
+    private static final int FREE = 0;
+
+    private static final byte[] NO_BYTES = new byte[0];
+
+    // Nombre maximal de termes du cache des termes décodés (4 Mo de références au plus)
+    private static final int MAX_DECODED = 1 << 20;
+
+    // Accès aux cases du cache des termes décodés, lues sans verrou
+    private static final VarHandle DECODED_TERM = MethodHandles.arrayElementVarHandle(Term[].class);
+
+    private final TermFactory termFactory = SameObjectTermFactory.instance();
+
+    // Littéraux compactés : ceux dont l'identifiant est inférieur à base
+    private FrontCodedStrings compacted;
+    private int base;
+
+    // Octets UTF-8 des littéraux récents : le terme i occupe [offsets[i - base], offsets[i - base + 1])
+    private ByteBuffer bytes;
+    private IntBuffer offsets;
+    private IntBuffer table;
+    private int size;
+    private int literals;
+
+    // Termes qui ne sont pas des littéraux de type chaîne, identifiés par otherIds
+    private final BitSet otherIds = new BitSet();
+    private final Map<Term, Integer> otherTermToId = new HashMap<>();
+    private final Map<Integer, Term> otherIdToTerm = new HashMap<>();
+
+    // Termes déjà décodés, indexés par identifiant, pour ne pas reconstruire la chaîne à chaque décodage : le
+    // tableau suit la taille du dictionnaire jusqu'à MAX_DECODED termes, au-delà desquels les termes sont décodés
+    // à chaque fois
+    private volatile Term[] decoded = new Term[0];
+
+    // Les tampons sont alloués hors du tas
+    private final boolean offHeap;
+
+    public RDFDictionary() {
+        this(false);
+    }
+
+    private RDFDictionary(boolean offHeap) {
+        this.offHeap = offHeap;
+        this.compacted = FrontCodedStrings.empty();
+        clearRecent();
+    }
+
+    private RDFDictionary(FrontCodedStrings compacted, int base, ByteBuffer bytes, IntBuffer offsets,
+                          IntBuffer table, int size, int literals) {
+        this.compacted = compacted;
+        this.base = base;
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.table = table;
+        this.size = size;
+        this.literals = literals;
+        this.offHeap = false;
+    }
+
+    /**
+     * @return un dictionnaire vide dont les octets, les bornes et la table de hachage sont hors du tas
+     */
+    public static RDFDictionary offHeap() {
+        return new RDFDictionary(true);
+    }
+
+    /**
+     * Relit un dictionnaire écrit par {@link #write(RegionFile.Writer)}, sans copie.
+     *
+     * @param reader le fichier, positionné sur la première région du dictionnaire
+     * @return le dictionnaire relu
+     */
+    public static RDFDictionary read(RegionFile.Reader reader) throws IOException {
+        IntBuffer counts = reader.ints();
+        FrontCodedStrings compacted = FrontCodedStrings.read(reader);
+        ByteBuffer bytes = reader.bytes();
+        IntBuffer offsets = reader.ints();
+        IntBuffer table = reader.ints();
+        int size = counts.get(0);
+        int base = counts.get(2);
+        if (base > size || offsets.limit() != size - base + 1 || Integer.bitCount(table.limit()) != 1
+                || bytes.limit() != offsets.get(size - base)) {
+            throw new IOException("Dictionnaire invalide");
+        }
+        return new RDFDictionary(compacted, base, bytes, offsets, table, size, counts.get(1));
+    }
+
+    /**
+     * Écrit le dictionnaire : ses compteurs, ses termes compactés, puis les octets, les bornes et la table
+     * de hachage de ses termes récents.
+     *
+     * @throws IllegalStateException si le dictionnaire contient des termes qui ne sont pas des littéraux
+     *                               de type chaîne, qui n'ont pas de représentation binaire
+     */
+    public void write(RegionFile.Writer writer) throws IOException {
+        if (!otherIds.isEmpty()) {
+            throw new IllegalStateException("Seuls les littéraux de type chaîne peuvent être écrits sur disque");
+        }
+        writer.ints(IntBuffer.wrap(new int[]{size, literals, base}));
+        compacted.write(writer);
+        writer.bytes(bytes.slice(0, offsets.get(size - base)));
+        writer.ints(offsets.slice(0, size - base + 1));
+        writer.ints(table);
+    }
+
+    /**
+     * Retourne l'identifiant du terme, en l'ajoutant au dictionnaire s'il n'y est pas encore.
+     *
+     * @param term le terme à encoder
+     * @return l'identifiant du terme
+     */
+    public int encode(Term term) {
+        String label = stringValue(term);
+        if (label != null) {
+            byte[] utf8 = label.getBytes(StandardCharsets.UTF_8);
+            return encodeLiteral(utf8, 0, utf8.length);
+        }
+        Integer id = otherTermToId.get(term);
+        if (id != null) {
+            return id;
+        }
+        ensureWritable();
+        int newId = append(NO_BYTES, 0, 0);
+        otherIds.set(newId);
+        otherTermToId.put(term, newId);
+        otherIdToTerm.put(newId, term);
+        return newId;
+    }
+
+    /**
+     * Retourne l'identifiant du littéral dont la valeur est donnée en UTF-8, en l'ajoutant
+     * au dictionnaire s'il n'y est pas encore. Aucun objet n'est créé si le littéral est connu.
+     *
+     * @param utf8   le tampon contenant la valeur du littéral
+     * @param offset la position du premier octet de la valeur
+     * @param length le nombre d'octets de la valeur
+     * @return l'identifiant du littéral
+     */
+    public int encodeLiteral(byte[] utf8, int offset, int length) {
+        int hash = hash(utf8, offset, length);
+        int slot = hash & (table.limit() - 1);
+        while (table.get(slot) != FREE) {
+            int id = table.get(slot) - 1;
+            if (equalsAt(id, utf8, offset, length)) {
+                return id;
+            }
+            slot = (slot + 1) & (table.limit() - 1);
+        }
+        int position = compacted.search(utf8, offset, length);
+        if (position >= 0) {
+            return compacted.id(position);
+        }
+        ensureWritable();
+        int id = append(utf8, offset, length);
+        table.put(slot, id + 1);
+        if (2 * ++literals > table.limit()) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Retourne l'identifiant du terme sans modifier le dictionnaire.
+     *
+     * @param term le terme recherché
+     * @return l'identifiant du terme, ou {@link #NOT_FOUND} s'il est inconnu
+     */
+    public int lookup(Term term) {
+        String label = stringValue(term);
+        if (label != null) {
+            byte[] utf8 = label.getBytes(StandardCharsets.UTF_8);
+            return lookupLiteral(utf8, 0, utf8.length);
+        }
+        Integer id = otherTermToId.get(term);
+        return id == null ? NOT_FOUND : id;
+    }
+
+    /**
+     * Retourne l'identifiant du littéral dont la valeur est donnée en UTF-8, sans modifier le dictionnaire.
+     *
+     * @return l'identifiant du littéral, ou {@link #NOT_FOUND} s'il est inconnu
+     */
+    public int lookupLiteral(byte[] utf8, int offset, int length) {
+        int slot = hash(utf8, offset, length) & (table.limit() - 1);
+        while (table.get(slot) != FREE) {
+            int id = table.get(slot) - 1;
+            if (equalsAt(id, utf8, offset, length)) {
+                return id;
+            }
+            slot = (slot + 1) & (table.limit() - 1);
+        }
+        int position = compacted.search(utf8, offset, length);
+        return position >= 0 ? compacted.id(position) : NOT_FOUND;
+    }
+
+    /**
+     * Retourne le terme associé à un identifiant.
+     *
+     * @param id l'identifiant à décoder
+     * @return le terme correspondant
+     * @throws IndexOutOfBoundsException si l'identifiant n'a jamais été attribué
+     */
+    public Term decode(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Identifiant inconnu : " + id);
+        }
+        Term[] cache = decoded;
+        Term term = id < cache.length ? (Term) DECODED_TERM.getAcquire(cache, id) : null;
+        if (term != null) {
+            return term;
+        }
+        // Le terme est créé sous verrou : la fabrique de termes n'est pas garantie thread-safe. Les termes déjà
+        // décodés restent lus sans verrou, et sont publiés par l'écriture avec sémantique release de leur case
+        synchronized (this) {
+            cache = decoded;
+            if (id >= cache.length && id < MAX_DECODED) {
+                cache = Arrays.copyOf(cache, Math.min(Math.max(id + 1, Math.min(size, 2 * cache.length)), MAX_DECODED));
+                decoded = cache;
+            }
+            term = id < cache.length ? cache[id] : null;
+            if (term == null) {
+                term = otherIds.get(id) ? otherIdToTerm.get(id) : termFactory.createOrGetLiteral(label(id));
+                if (id < cache.length) {
+                    DECODED_TERM.setRelease(cache, id, term);
+                }
+            }
+        }
+        return term;
+    }
+
+    /**
+     * Retourne le libellé d'un identifiant, c'est-à-dire la valeur du littéral ou le libellé du terme.
+     *
+     * @param id l'identifiant à décoder
+     * @return le libellé du terme
+     */
+    public String label(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Identifiant inconnu : " + id);
+        }
+        if (otherIds.get(id)) {
+            return otherIdToTerm.get(id).label();
+        }
+        if (id >= base && bytes.hasArray()) {
+            int start = offsets.get(id - base);
+            return new String(bytes.array(), start, offsets.get(id - base + 1) - start, StandardCharsets.UTF_8);
+        }
+        return new String(utf8(id), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Ajoute tous les termes de ce dictionnaire à un autre dictionnaire, dans l'ordre de leurs identifiants.
+     * Sert à fusionner les dictionnaires locaux construits en parallèle dans le dictionnaire global.
+     *
+     * @param target le dictionnaire qui reçoit les termes
+     * @return la table de correspondance : l'identifiant dans target du terme d'identifiant i est à l'indice i
+     */
+    public int[] mergeInto(RDFDictionary target) {
+        int[] remap = new int[size];
+        for (int id = 0; id < size; id++) {
+            if (otherIds.get(id)) {
+                remap[id] = target.encode(otherIdToTerm.get(id));
+            } else if (id >= base && bytes.hasArray()) {
+                int start = offsets.get(id - base);
+                remap[id] = target.encodeLiteral(bytes.array(), start, offsets.get(id - base + 1) - start);
+            } else {
+                byte[] utf8 = utf8(id);
+                remap[id] = target.encodeLiteral(utf8, 0, utf8.length);
+            }
+        }
+        return remap;
+    }
+
+    /**
+     * Compacte les termes récents : leurs littéraux sont triés et compressés par préfixe avec les littéraux
+     * déjà compactés, puis la table de hachage est vidée. Les identifiants sont inchangés.
+     * <p>
+     * Une recherche parmi les termes compactés étant une dichotomie, plus lente qu'un accès à la table de
+     * hachage, le compactage est destiné à suivre un chargement plutôt qu'à l'accompagner.
+     */
+    public void compact() {
+        int[] recent = new int[literals];
+        int count = 0;
+        for (int id = base; id < size; id++) {
+            if (!otherIds.get(id)) {
+                recent[count++] = id;
+            }
+        }
+        sortRecent(recent, count);
+
+        FrontCodedStrings.Builder builder = new FrontCodedStrings.Builder(size);
+        FrontCodedStrings.Scan previous = compacted.scan();
+        boolean hasPrevious = previous.next();
+        int k = 0;
+        while (hasPrevious || k < count) {
+            byte[] utf8 = k < count ? utf8(recent[k]) : null;
+            if (utf8 == null || hasPrevious
+                    && Arrays.compareUnsigned(previous.current(), 0, previous.length(), utf8, 0, utf8.length) < 0) {
+                builder.add(previous.current(), 0, previous.length(), previous.id());
+                hasPrevious = previous.next();
+            } else {
+                builder.add(utf8, 0, utf8.length, recent[k++]);
+            }
+        }
+        compacted = builder.build(offHeap);
+        base = size;
+        clearRecent();
+    }
+
+    /**
+     * @return le nombre de termes ajoutés depuis le dernier compactage
+     */
+    public int recentSize() {
+        return size - base;
+    }
+
+    /**
+     * @return le nombre de termes distincts du dictionnaire
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return une copie des octets UTF-8 du littéral d'identifiant id
+     */
+    private byte[] utf8(int id) {
+        if (id < base) {
+            return compacted.get(compacted.position(id));
+        }
+        int start = offsets.get(id - base);
+        byte[] utf8 = new byte[offsets.get(id - base + 1) - start];
+        bytes.get(start, utf8);
+        return utf8;
+    }
+
+    /**
+     * Recopie sur le tas les termes récents d'un dictionnaire relu d'un fichier projeté, avant son premier
+     * ajout ; les termes compactés, qui ne sont jamais modifiés, restent projetés.
+     */
+    private void ensureWritable() {
+        if (bytes.isReadOnly()) {
+            bytes = grow(bytes, 2 * Math.max(1024, offsets.get(size - base)));
+            offsets = grow(offsets, 2 * Math.max(64, size - base + 1));
+            table = grow(table, table.limit());
+        }
+    }
+
+    private void clearRecent() {
+        bytes = offHeap ? OffHeapMemory.allocateBytes(1024) : ByteBuffer.allocate(1024);
+        offsets = allocateInts(64);
+        table = allocateInts(128);
+        literals = 0;
+    }
+
+    private int append(byte[] utf8, int offset, int length) {
+        int index = size - base;
+        if (index + 2 > offsets.limit()) {
+            offsets = grow(offsets, 2 * offsets.limit());
+        }
+        int start = offsets.get(index);
+        if (start + length > bytes.limit()) {
+            bytes = grow(bytes, Math.max(2 * bytes.limit(), start + length));
+        }
+        bytes.put(start, utf8, offset, length);
+        offsets.put(index + 1, start + length);
+        return size++;
+    }
+
+    private boolean equalsAt(int id, byte[] utf8, int offset, int length) {
+        int start = offsets.get(id - base);
+        if (otherIds.get(id) || offsets.get(id - base + 1) - start != length) {
+            return false;
+        }
+        if (bytes.hasArray()) {
+            return Arrays.equals(bytes.array(), start, start + length, utf8, offset, offset + length);
+        }
+        for (int k = 0; k < length; k++) {
+            if (bytes.get(start + k) != utf8[offset + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        table = allocateInts(2 * table.limit());
+        for (int id = base; id < size; id++) {
+            if (!otherIds.get(id)) {
+                int start = offsets.get(id - base);
+                int slot = hash(bytes, start, offsets.get(id - base + 1) - start) & (table.limit() - 1);
+                while (table.get(slot) != FREE) {
+                    slot = (slot + 1) & (table.limit() - 1);
+                }
+                table.put(slot, id + 1);
+            }
+        }
+    }
+
+    /**
+     * Trie par fusion des identifiants de littéraux récents dans l'ordre de leurs octets non signés.
+     */
+    private void sortRecent(int[] ids, int count) {
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int from = 0; from < count; from += 2 * width) {
+                int middle = Math.min(from + width, count);
+                int to = Math.min(from + 2 * width, count);
+                int i = from;
+                int j = middle;
+                for (int k = from; k < to; k++) {
+                    buffer[k] = j >= to || i < middle && compareRecent(ids[i], ids[j]) <= 0 ? ids[i++] : ids[j++];
+                }
+            }
+            System.arraycopy(buffer, 0, ids, 0, count);
+        }
+    }
+
+    private int compareRecent(int left, int right) {
+        int leftStart = offsets.get(left - base);
+        int leftEnd = offsets.get(left - base + 1);
+        int rightStart = offsets.get(right - base);
+        int rightEnd = offsets.get(right - base + 1);
+        if (bytes.hasArray()) {
+            return Arrays.compareUnsigned(bytes.array(), leftStart, leftEnd, bytes.array(), rightStart, rightEnd);
+        }
+        int common = Math.min(leftEnd - leftStart, rightEnd - rightStart);
+        for (int k = 0; k < common; k++) {
+            int cmp = Integer.compare(bytes.get(leftStart + k) & 0xFF, bytes.get(rightStart + k) & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(leftEnd - leftStart, rightEnd - rightStart);
+    }
+
+    private ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer grown = offHeap ? OffHeapMemory.allocateBytes(capacity) : ByteBuffer.allocate(capacity);
+        return grown.put(0, buffer, 0, buffer.limit());
+    }
+
+    private IntBuffer grow(IntBuffer buffer, int capacity) {
+        return allocateInts(capacity).put(0, buffer, 0, buffer.limit());
+    }
+
+    private IntBuffer allocateInts(int capacity) {
+        return offHeap ? OffHeapMemory.allocateInts(capacity) : IntBuffer.allocate(capacity);
+    }
+
+    private static int hash(byte[] utf8, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + utf8[i];
+        }
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(ByteBuffer utf8, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + utf8.get(i);
+        }
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return la valeur du terme s'il s'agit d'un littéral de type chaîne, null sinon
+     */
+    private static String stringValue(Term term) {
+        if (term instanceof Literal<?> literal && literal.value() instanceof String value) {
+            return value;
+        }
+        return null;
+    }
+}
@@ -1,46 +1,1382 @@
 package qengine.storage;
 
 import fr.boreal.model.logicalElements.api.*;
-import org.apache.commons.lang3.NotImplementedException;
+import fr.boreal.model.logicalElements.impl.SubstitutionImpl;
 import qengine.model.RDFTriple;
 import qengine.model.StarQuery;
+import qengine.storage.index.IdCursor;
+import qengine.storage.index.IdList;
+import qengine.storage.index.LeapfrogIntersection;
+import qengine.storage.index.RegionFile;
+import qengine.storage.index.TripleBuffer;
+import qengine.storage.index.LayeredIndex;
+import qengine.storage.index.TripleIndex;
+import qengine.storage.index.TripleOrder;
+import qengine.storage.index.TripleScan;
+import qengine.storage.index.TripleSorter;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Implémentation d'un HexaStore pour stocker des RDFAtom.
  * Cette classe utilise six index pour optimiser les recherches.
  * Les index sont basés sur les combinaisons (Sujet, Prédicat, Objet), (Sujet, Objet, Prédicat),
  * (Prédicat, Sujet, Objet), (Prédicat, Objet, Sujet), (Objet, Sujet, Prédicat) et (Objet, Prédicat, Sujet).
+ * <p>
+ * Les termes sont encodés par un {@link RDFDictionary} : les index ne manipulent que des identifiants
+ * entiers, et les termes ne sont décodés qu'au moment de construire les substitutions résultats.
+ * Chaque index est un {@link TripleIndex} stocké dans des tableaux d'entiers (format CSR) ; les ajouts
+ * sont accumulés dans un {@link TripleBuffer} et fusionnés dans les six index à la lecture suivante, d'abord
+ * dans un petit index des ajouts récents ({@link LayeredIndex}) pour ne pas reconstruire les grands index à
+ * chaque lot.
+ * <p>
+ * Un store peut être écrit sur disque ({@link #save(Path)}) puis rouvert ({@link #open(Path)}) sans relire
+ * le fichier N-Triples : le dictionnaire et les index rouverts lisent directement les fichiers projetés en
+ * mémoire, et ne sont recopiés sur le tas qu'au premier ajout.
+ * <p>
+ * Une fois ses triplets indexés, le store peut être interrogé par plusieurs threads à la fois. Les ajouts, et
+ * la première lecture qui les suit puisqu'elle les indexe, ne doivent pas être concurrents d'autres accès ;
+ * {@link #flush()} indexe les triplets ajoutés sans attendre cette lecture.
  */
 public class RDFHexaStore implements RDFStorage {
+
+    // Marque une position non liée (variable) dans un triplet encodé
+    private static final int ANY = -1;
+
+    // Nombres magiques des fichiers écrits par save : « QDIC » et « QIDX »
+    private static final int DICTIONARY_MAGIC = 0x51444943;
+    private static final int INDEX_MAGIC = 0x51494458;
+    private static final String DICTIONARY_FILE = "dictionary.bin";
+    private static final int CHARACTERISTIC_SETS_MAGIC = 0x51435354;
+    private static final String REFLEXIVE_FILE = "reflexive.idx";
+    private static final String CHARACTERISTIC_SETS_FILE = "characteristic_sets.bin";
+
+    private final RDFDictionary dictionary;
+
+    // Emplacement mémoire des index construits (sur le tas par défaut)
+    private final UnaryOperator<TripleIndex> placement;
+
+    private final Map<TripleOrder, LayeredIndex> indexes = new EnumMap<>(TripleOrder.class);
+
+    // Triplets ajoutés depuis la dernière indexation, fusionnés dans les index à la prochaine lecture
+    private final TripleBuffer pending = new TripleBuffer();
+
+    // Statistiques d'estimation des requêtes en étoile, tirées de l'index SPO principal : invalidées (null) lorsqu'il
+    // est reconstruit, et recalculées au besoin ; un store rouvert les relit avec ses index
+    private volatile CharacteristicSets characteristicSets = CharacteristicSets.empty();
+
+    // Triplets dont deux positions portent le même identifiant, seuls candidats des patrons à variable répétée
+    private LayeredIndex reflexive = LayeredIndex.empty();
+
+    public RDFHexaStore() {
+        this(new RDFDictionary(), UnaryOperator.identity());
+    }
+
+    /**
+     * @param dictionary le dictionnaire, vide, du store
+     * @param placement  appliqué à chaque index construit, par exemple pour le recopier hors du tas
+     */
+    RDFHexaStore(RDFDictionary dictionary, UnaryOperator<TripleIndex> placement) {
+        this.dictionary = dictionary;
+        this.placement = placement;
+        for (TripleOrder order : TripleOrder.values()) {
+            indexes.put(order, LayeredIndex.empty());
+        }
+    }
+
+    /**
+     * Rouvre un store écrit par {@link #save(Path)}. Les fichiers sont projetés en mémoire et ne sont pas
+     * relus : l'ouverture ne dépend pas du nombre de triplets, et les pages ne sont chargées qu'à la demande.
+     *
+     * @param directory le répertoire du store
+     * @return le store rouvert, qui accepte de nouveaux ajouts
+     * @throws IOException si un fichier est absent, illisible ou d'un autre format
+     */
+    public static RDFHexaStore open(Path directory) throws IOException {
+        RDFHexaStore store = new RDFHexaStore(
+                RDFDictionary.read(new RegionFile.Reader(directory.resolve(DICTIONARY_FILE), DICTIONARY_MAGIC)),
+                UnaryOperator.identity());
+        for (TripleOrder order : TripleOrder.values()) {
+            store.indexes.put(order, LayeredIndex.of(
+                    TripleIndex.read(new RegionFile.Reader(indexFile(directory, order), INDEX_MAGIC))));
+        }
+        store.reflexive = LayeredIndex.of(
+                TripleIndex.read(new RegionFile.Reader(directory.resolve(REFLEXIVE_FILE), INDEX_MAGIC)));
+        store.characteristicSets = CharacteristicSets.read(
+                new RegionFile.Reader(directory.resolve(CHARACTERISTIC_SETS_FILE), CHARACTERISTIC_SETS_MAGIC));
+        return store;
+    }
+
+    /**
+     * Écrit le dictionnaire, les index et les ensembles caractéristiques du store dans un répertoire, un fichier
+     * par structure,
+     * en remplaçant un store précédemment écrit au même endroit.
+     *
+     * @param directory le répertoire du store, créé au besoin
+     * @throws IOException si l'écriture échoue
+     * @throws IllegalStateException si le store contient des termes qui ne sont pas des littéraux de type chaîne
+     */
+    public void save(Path directory) throws IOException {
+        mergeRecent();
+        Files.createDirectories(directory);
+        try (RegionFile.Writer writer = new RegionFile.Writer(directory.resolve(DICTIONARY_FILE), DICTIONARY_MAGIC)) {
+            dictionary.write(writer);
+        }
+        for (TripleOrder order : TripleOrder.values()) {
+            try (RegionFile.Writer writer = new RegionFile.Writer(indexFile(directory, order), INDEX_MAGIC)) {
+                indexes.get(order).main().write(writer);
+            }
+        }
+        try (RegionFile.Writer writer = new RegionFile.Writer(directory.resolve(REFLEXIVE_FILE), INDEX_MAGIC)) {
+            reflexive.main().write(writer);
+        }
+        try (RegionFile.Writer writer = new RegionFile.Writer(directory.resolve(CHARACTERISTIC_SETS_FILE),
+                CHARACTERISTIC_SETS_MAGIC)) {
+            characteristicSets().write(writer);
+        }
+    }
+
+    private static Path indexFile(Path directory, TripleOrder order) {
+        return directory.resolve(order.name().toLowerCase(Locale.ROOT) + ".idx");
+    }
+
     @Override
     public boolean add(RDFTriple triple) {
-        throw new NotImplementedException();
+        int s = dictionary.encode(triple.getTripleSubject());
+        int p = dictionary.encode(triple.getTriplePredicate());
+        int o = dictionary.encode(triple.getTripleObject());
+
+        if (indexes.get(TripleOrder.SPO).contains(s, p, o)) {
+            return false;
+        }
+        return pending.add(s, p, o);
+    }
+
+    /**
+     * Chargement en masse : les triplets sont encodés dans un tableau d'entiers, puis les six index
+     * sont construits par tri et fusion en une seule passe, au lieu d'ajouter les triplets un par un.
+     *
+     * @param atoms les RDFAtom à ajouter
+     * @return true si au moins un RDFAtom a été ajouté, false s'ils sont tous déjà présents
+     */
+    @Override
+    public boolean addAll(Stream<RDFTriple> atoms) {
+        long sizeBefore = size();
+        TripleArray triples = drainPending();
+        atoms.sequential().forEach(triple -> triples.accept(
+                dictionary.encode(triple.getTripleSubject()),
+                dictionary.encode(triple.getTriplePredicate()),
+                dictionary.encode(triple.getTripleObject())));
+        index(triples.triples, triples.count);
+        return size() > sizeBefore;
+    }
+
+    /**
+     * Chargement en masse depuis une source qui encode elle-même ses triplets, par exemple un parser
+     * qui lit les termes directement dans le dictionnaire.
+     *
+     * @param source la source des triplets
+     * @return true si au moins un triplet a été ajouté, false s'ils sont tous déjà présents
+     * @throws IOException si la source ne peut pas être lue
+     */
+    public boolean addAll(EncodedTripleSource source) throws IOException {
+        long sizeBefore = size();
+        TripleArray triples = drainPending();
+        source.encodeInto(dictionary, triples);
+        index(triples.triples, triples.count);
+        return size() > sizeBefore;
     }
 
     @Override
     public long size() {
-        throw new NotImplementedException();
+        return indexes.get(TripleOrder.SPO).size() + pending.size();
     }
 
+    /**
+     * Parcourt paresseusement les triplets correspondant au patron : chaque substitution est construite,
+     * et ses termes décodés, au moment où {@link Iterator#next()} est appelé.
+     */
     @Override
     public Iterator<Substitution> match(RDFTriple triple) {
-        throw new NotImplementedException();
+        Term[] terms = triple.getTerms();
+        int[] pattern = encodePattern(terms);
+        if (pattern == null) {
+            return Collections.emptyIterator();
+        }
+        List<Variable> variables = new ArrayList<>();
+        int[] slots = slots(terms, variables);
+        Matches matches = new Matches(pattern);
+        return new SubstitutionIterator() {
+            @Override
+            protected Substitution fetch() {
+                while (matches.next()) {
+                    if (consistent(slots, matches.spo)) {
+                        Substitution substitution = new SubstitutionImpl();
+                        for (int i = 0; i < 3; i++) {
+                            if (slots[i] >= 0 && firstSlot(slots, i)) {
+                                substitution.add(variables.get(slots[i]), dictionary.decode(matches.spo[i]));
+                            }
+                        }
+                        return substitution;
+                    }
+                }
+                return null;
+            }
+        };
     }
 
+    /**
+     * Évalue une requête en étoile par intersection de listes triées : pour chaque patron, l'index dont les
+     * clés liées précèdent la position de la variable centrale fournit directement la liste triée de
+     * ses valeurs possibles, et ces listes sont intersectées par {@link LeapfrogIntersection} à partir de
+     * la plus courte. Seuls les patrons ayant d'autres variables que la variable centrale sont ensuite
+     * évalués pour chaque candidat, afin de lier ces variables.
+     * <p>
+     * Les patrons sont ordonnés par cardinalité croissante ({@link #cardinality(int[])}, lue sur les bornes
+     * des index) : un patron sans réponse termine l'évaluation avant toute intersection, et les patrons
+     * les plus sélectifs sont évalués en premier lors de l'extension des candidats. De même, une étoile dont
+     * aucun sujet ne porte tous les prédicats est écartée par les ensembles caractéristiques.
+     * <p>
+     * Les réponses sont produites paresseusement, candidat par candidat ({@link StarIterator}). Une requête
+     * limitée ({@link StarQuery#getLimit()}) s'arrête à sa dernière réponse : lorsque la limite est inférieure
+     * au nombre de candidats du patron le plus sélectif, les listes sont intersectées par sauts, au fil de
+     * l'extension des candidats, plutôt qu'entièrement avant la première réponse
+     * ({@link LeapfrogIntersection#of(List, long)}).
+     */
     @Override
     public Iterator<Substitution> match(StarQuery q) {
-        throw new NotImplementedException();
+        return new StarPlan(q, List.of(), q.getCentralVariable()).execute(new int[0]);
     }
 
+    /**
+     * Compte les réponses d'une requête en étoile sans construire de substitution ni décoder de terme. Les
+     * candidats sont obtenus comme par {@link #match(StarQuery)} ; une requête d'un seul patron dont la seule
+     * variable est la centrale est comptée directement sur les bornes des index, et lorsque les autres
+     * variables n'apparaissent qu'une fois, les liaisons de chaque candidat le sont aussi, sans être énumérées.
+     * Le comptage s'arrête à la limite de la requête.
+     */
+    @Override
+    public long howMany(StarQuery q) {
+        return new StarPlan(q, List.of(), q.getCentralVariable()).count(new int[0]);
+    }
+
+    /**
+     * Cherche une réponse à une requête en étoile sans la construire : l'évaluation s'arrête à la première
+     * liaison complète d'un candidat.
+     */
+    @Override
+    public boolean ask(StarQuery q) {
+        return new StarPlan(q, List.of(), q.getCentralVariable()).ask(new int[0]);
+    }
+
+    /**
+     * Évalue un lot de requêtes en étoile en partageant entre elles la lecture des index. Les patrons de toutes
+     * les requêtes sont d'abord liés ; la liste des candidats d'un patron présent dans plusieurs requêtes (par
+     * exemple {@code ?v0 eligibleRegion Country137}) est ensuite lue et décodée une seule fois ({@link IdList}),
+     * et chacune de ces requêtes en parcourt une copie. Les listes partagées stockées en
+     * {@link qengine.storage.index.RoaringBitmap} sont intersectées par ET logique dans un ordre commun à toutes
+     * les requêtes, et chaque intersection partielle n'est calculée qu'une fois. Les listes des patrons propres
+     * à une requête sont lues paresseusement, comme par {@link #match(StarQuery)}.
+     */
+    @Override
+    public List<Iterator<Substitution>> matchBatch(List<StarQuery> queries) {
+        StarPlan[] plans = new StarPlan[queries.size()];
+        int[][][] bound = new int[queries.size()][][];
+        long[][] cardinalities = new long[queries.size()][];
+        CandidateKey[][] keys = new CandidateKey[queries.size()][];
+        Map<CandidateKey, Integer> uses = new HashMap<>();
+        for (int q = 0; q < plans.length; q++) {
+            StarQuery query = queries.get(q);
+            plans[q] = new StarPlan(query, List.of(), query.getCentralVariable());
+            cardinalities[q] = new long[query.getRdfAtoms().size()];
+            bound[q] = plans[q].bind(new int[0], cardinalities[q]);
+            if (bound[q] != null) {
+                keys[q] = new CandidateKey[bound[q].length];
+                for (int i = 0; i < bound[q].length; i++) {
+                    keys[q][i] = new CandidateKey(bound[q][i], plans[q].centralOrders[i]);
+                    uses.merge(keys[q][i], 1, Integer::sum);
+                }
+            }
+        }
+
+        Map<CandidateKey, IdList> shared = new HashMap<>();
+        Map<List<CandidateKey>, IdList> bitmapIntersections = new HashMap<>();
+        // Les bitmaps d'une requête sont intersectés des plus partagés aux moins partagés, pour que les requêtes
+        // qui ont en commun les premiers partagent aussi leurs intersections
+        Comparator<CandidateKey> byUses = Comparator.comparing((CandidateKey key) -> uses.get(key)).reversed()
+                .thenComparingInt(CandidateKey::p).thenComparingInt(CandidateKey::o).thenComparingInt(CandidateKey::s)
+                .thenComparing(CandidateKey::order);
+        List<Iterator<Substitution>> answers = new ArrayList<>(plans.length);
+        for (int q = 0; q < plans.length; q++) {
+            if (bound[q] == null) {
+                answers.add(Collections.emptyIterator());
+                continue;
+            }
+            int[][] patterns = bound[q];
+            IdList[] lists = new IdList[patterns.length];
+            Set<CandidateKey> bitmaps = new TreeSet<>(byUses);
+            for (int i = 0; i < patterns.length; i++) {
+                CandidateKey key = keys[q][i];
+                if (uses.get(key) > 1) {
+                    lists[i] = shared.computeIfAbsent(key, k -> IdList.of(centralCursor(k.pattern(), k.order())));
+                    if (lists[i].isBitmap()) {
+                        bitmaps.add(key);
+                    }
+                }
+            }
+            IdList intersection = null;
+            List<CandidateKey> prefix = new ArrayList<>(bitmaps.size());
+            for (CandidateKey key : bitmaps) {
+                prefix.add(key);
+                IdList left = intersection;
+                intersection = left == null ? shared.get(key) : bitmapIntersections.computeIfAbsent(List.copyOf(prefix),
+                        k -> IdList.of(LeapfrogIntersection.of(List.of(left.cursor(), shared.get(key).cursor()))));
+            }
+            IdList bitmapIntersection = bitmaps.size() < 2 ? null : intersection;
+
+            // L'intersection des bitmaps remplace leurs listes : elle est fournie pour le premier de leurs patrons
+            CandidateKey[] patternKeys = keys[q];
+            boolean[] intersected = {false};
+            answers.add(plans[q].iterate(patterns, cardinalities[q], i -> {
+                if (bitmapIntersection != null && bitmaps.contains(patternKeys[i])) {
+                    boolean first = !intersected[0];
+                    intersected[0] = true;
+                    return first ? bitmapIntersection.cursor() : null;
+                }
+                return lists[i] != null ? lists[i].cursor() : centralCursor(patterns[i], patternKeys[i].order());
+            }));
+        }
+        return answers;
+    }
+
+    /**
+     * Prépare un modèle de requête en étoile ({@link StarPlan}) : les constantes du modèle sont encodées, et
+     * les emplacements des variables et le choix des index, qui ne dépendent que des positions liées, sont
+     * calculés une fois pour toutes. Chaque exécution n'encode que les constantes des paramètres puis ordonne
+     * les patrons selon leurs cardinalités.
+     */
+    @Override
+    public PreparedStarQuery prepare(StarQuery template, List<Variable> parameters) {
+        return new StarPlan(template, List.copyOf(parameters), PreparedStarQuery.checkTemplate(template, parameters));
+    }
+
+    /**
+     * Estime le nombre de réponses d'une requête en étoile sans l'évaluer, pour ordonner des requêtes,
+     * limiter leur admission ou choisir une stratégie d'évaluation.
+     * <p>
+     * Lorsque la variable centrale est le sujet de tous les patrons et que leurs prédicats sont des constantes,
+     * l'estimation repose sur les {@link CharacteristicSets} ; elle est exacte si les objets sont des variables
+     * distinctes. Sinon, la plus petite cardinalité des patrons sert de majorant.
+     *
+     * @param q la requête en étoile
+     * @return l'estimation, bornée par la limite de la requête, nulle seulement si la requête n'a certainement
+     * aucune réponse
+     */
+    public long estimate(StarQuery q) {
+        if (q.getLimit() == 0) {
+            return 0;
+        }
+        List<RDFTriple> triples = q.getRdfAtoms();
+        Term[][] terms = new Term[triples.size()][];
+        int[][] patterns = new int[triples.size()][];
+        long[] cardinalities = new long[triples.size()];
+        for (int i = 0; i < triples.size(); i++) {
+            terms[i] = triples.get(i).getTerms();
+            patterns[i] = encodePattern(terms[i]);
+            if (patterns[i] == null || (cardinalities[i] = cardinality(patterns[i])) == 0) {
+                return 0;
+            }
+        }
+        Variable central = q.getCentralVariable();
+        return Math.min(q.getLimit(), estimate(central, terms, q.getAnswerVariables().stream().allMatch(central::equals),
+                patterns, cardinalities));
+    }
+
+    /**
+     * @param terms    les termes des patrons, null aux positions des paramètres d'un modèle
+     * @param distinct true si la variable centrale est la seule variable réponse
+     */
+    private long estimate(Variable central, Term[][] terms, boolean distinct, int[][] patterns, long[] cardinalities) {
+        int[] predicates = new int[patterns.length];
+        double[] selectivities = new double[patterns.length];
+        long smallest = Long.MAX_VALUE;
+        boolean subjectStar = true;
+        for (int i = 0; i < patterns.length; i++) {
+            smallest = Math.min(smallest, cardinalities[i]);
+            if (!central.equals(terms[i][0]) || patterns[i][1] == ANY || central.equals(terms[i][2])) {
+                subjectStar = false;
+            } else {
+                predicates[i] = patterns[i][1];
+                selectivities[i] = patterns[i][2] == ANY
+                        ? 1 : (double) cardinalities[i] / indexes.get(TripleOrder.PSO).count(patterns[i][1]);
+            }
+        }
+        // Les ensembles caractéristiques ne couvrent que l'index principal : tant que des ajouts récents n'y sont
+        // pas fusionnés, ils pourraient estimer nulle une requête qui a des réponses
+        if (!subjectStar || indexes.get(TripleOrder.SPO).hasRecent()) {
+            return smallest;
+        }
+        return (long) Math.ceil(characteristicSets().estimate(predicates, selectivities, distinct));
+    }
+
+    /**
+     * Compte les réponses d'un patron sans les parcourir : les bornes des index donnent directement le nombre
+     * de triplets pour chaque combinaison de positions liées ({@link #cardinality(int[])}). Un patron dont
+     * une variable est répétée (par exemple {@code ?x p ?x}) n'est compté que parmi les triplets réflexifs,
+     * conservés à part lors de l'indexation et en pratique très peu nombreux.
+     */
     @Override
     public long howMany(RDFTriple triple) {
-        throw new NotImplementedException();
+        Term[] terms = triple.getTerms();
+        int[] pattern = encodePattern(terms);
+        if (pattern == null) {
+            return 0;
+        }
+        if (!hasRepeatedVariable(terms)) {
+            return cardinality(pattern);
+        }
+        ensureIndexed();
+        int[] slots = slots(terms, new ArrayList<>());
+        long count = 0;
+        for (TripleScan scan = reflexive.scan(); scan.next(); ) {
+            int[] ids = {scan.first(), scan.second(), scan.third()};
+            if ((pattern[0] == ANY || pattern[0] == ids[0]) && (pattern[1] == ANY || pattern[1] == ids[1])
+                    && (pattern[2] == ANY || pattern[2] == ids[2]) && consistent(slots, ids)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return une estimation en octets de la place occupée par les six index (hors dictionnaire)
+     */
+    public long estimateIndexBytes() {
+        ensureIndexed();
+        long bytes = 0;
+        for (LayeredIndex index : indexes.values()) {
+            bytes += index.estimateBytes();
+        }
+        bytes += reflexive.estimateBytes();
+        return bytes;
     }
 
     @Override
     public Collection<RDFTriple> getAtoms() {
-        throw new NotImplementedException();
+        List<RDFTriple> atoms = new ArrayList<>((int) size());
+        Matches matches = new Matches(new int[]{ANY, ANY, ANY});
+        while (matches.next()) {
+            int[] ids = matches.spo;
+            atoms.add(new RDFTriple(dictionary.decode(ids[0]), dictionary.decode(ids[1]), dictionary.decode(ids[2])));
+        }
+        return atoms;
+    }
+
+    /**
+     * Encode les constantes d'un patron de triplet. Les variables sont encodées par {@link #ANY}.
+     *
+     * @param terms les trois termes du patron
+     * @return le patron encodé, ou null si une constante est absente du dictionnaire (aucune réponse possible)
+     */
+    private int[] encodePattern(Term[] terms) {
+        int[] pattern = new int[3];
+        for (int i = 0; i < 3; i++) {
+            if (terms[i] instanceof Variable) {
+                pattern[i] = ANY;
+            } else {
+                pattern[i] = dictionary.lookup(terms[i]);
+                if (pattern[i] == RDFDictionary.NOT_FOUND) {
+                    return null;
+                }
+            }
+        }
+        return pattern;
+    }
+
+    /**
+     * Nombre de triplets correspondant à un patron encodé, lu sur les bornes de l'index dont le préfixe
+     * couvre les positions liées, sans parcourir les triplets. Les variables répétées ne sont pas prises
+     * en compte : la valeur est alors un majorant.
+     */
+    private long cardinality(int[] pattern) {
+        ensureIndexed();
+        int s = pattern[0], p = pattern[1], o = pattern[2];
+        if (s != ANY && p != ANY && o != ANY) {
+            return indexes.get(TripleOrder.SPO).contains(s, p, o) ? 1 : 0;
+        } else if (s != ANY && p != ANY) {
+            return count(TripleOrder.SPO, TripleOrder.PSO, s, p);
+        } else if (s != ANY && o != ANY) {
+            return count(TripleOrder.SOP, TripleOrder.OSP, s, o);
+        } else if (p != ANY && o != ANY) {
+            return count(TripleOrder.POS, TripleOrder.OPS, p, o);
+        } else if (s != ANY) {
+            return indexes.get(TripleOrder.SPO).count(s);
+        } else if (p != ANY) {
+            return indexes.get(TripleOrder.PSO).count(p);
+        } else if (o != ANY) {
+            return indexes.get(TripleOrder.OSP).count(o);
+        }
+        return indexes.get(TripleOrder.SPO).size();
+    }
+
+    /**
+     * Nombre de triplets d'un couple de clés (a, b), lu dans celui des deux index (a, b, ·) et (b, a, ·)
+     * où la recherche du couple est la plus courte, c'est-à-dire où la première clé a le moins de
+     * deuxièmes clés distinctes (par exemple les quelques prédicats d'un objet plutôt que les milliers
+     * d'objets d'un prédicat).
+     */
+    private long count(TripleOrder order, TripleOrder mirror, int a, int b) {
+        LayeredIndex index = indexes.get(order);
+        LayeredIndex mirrorIndex = indexes.get(mirror);
+        return index.degree(a) <= mirrorIndex.degree(b) ? index.count(a, b) : mirrorIndex.count(b, a);
+    }
+
+    /**
+     * Retourne l'index dont les premières clés sont les positions liées d'un patron et la clé suivante la
+     * position de la variable centrale : il fournit la liste triée des valeurs possibles de cette variable.
+     *
+     * @param bound    les positions liées (constantes) du patron
+     * @param position la position (0, 1 ou 2) de la variable centrale
+     */
+    private static TripleOrder centralOrder(boolean[] bound, int position) {
+        int constants = 0;
+        for (boolean b : bound) {
+            if (b) {
+                constants++;
+            }
+        }
+        for (TripleOrder order : TripleOrder.values()) {
+            if (constants == 2 && order.third() == position
+                    || constants == 1 && order.second() == position && bound[order.first()]
+                    || constants == 0 && order.first() == position) {
+                return order;
+            }
+        }
+        throw new IllegalStateException("Aucun index pour la position " + position);
+    }
+
+    /**
+     * Retourne la liste triée des valeurs possibles de la variable centrale d'un patron, lue dans l'index
+     * choisi par {@link #centralOrder}. Les autres variables du patron sont ignorées : la liste peut alors
+     * contenir des valeurs que {@link StarIterator#expand} écartera.
+     *
+     * @param pattern le patron encodé
+     * @param order   l'index choisi pour le patron
+     */
+    private IdCursor centralCursor(int[] pattern, TripleOrder order) {
+        ensureIndexed();
+        LayeredIndex index = indexes.get(order);
+        if (pattern[order.first()] == ANY) {
+            return index.firstCursor();
+        }
+        if (pattern[order.second()] == ANY) {
+            return index.secondCursor(pattern[order.first()]);
+        }
+        return index.thirdCursor(pattern[order.first()], pattern[order.second()]);
+    }
+
+    /**
+     * @return true si la seule variable du patron est la variable centrale, présente une seule fois :
+     * la liste de {@link #centralCursor} est alors exacte et le patron n'a pas à être réévalué
+     */
+    private static boolean bindsOnly(Term[] terms, Variable central) {
+        int occurrences = 0;
+        for (Term term : terms) {
+            if (term instanceof Variable) {
+                if (!term.equals(central)) {
+                    return false;
+                }
+                occurrences++;
+            }
+        }
+        return occurrences == 1;
+    }
+
+    /**
+     * Parcours paresseux des triplets encodés (s, p, o) correspondant à un patron, dans l'index dont
+     * le préfixe couvre les positions liées du patron. Le triplet courant est rangé dans {@link #spo}.
+     */
+    private final class Matches {
+        private final int[] spo = new int[3];
+        private final TripleOrder order;
+        private final TripleScan scan;
+        // Patron entièrement lié : un seul triplet possible, dont la présence est vérifiée à la construction
+        private boolean single;
+
+        private Matches(int[] pattern) {
+            ensureIndexed();
+            int bound = 0;
+            for (int id : pattern) {
+                if (id != ANY) {
+                    bound++;
+                }
+            }
+            if (bound == 3) {
+                order = TripleOrder.SPO;
+                scan = null;
+                single = indexes.get(order).contains(pattern[0], pattern[1], pattern[2]);
+                System.arraycopy(pattern, 0, spo, 0, 3);
+                return;
+            }
+            TripleOrder chosen = TripleOrder.SPO;
+            for (TripleOrder candidate : TripleOrder.values()) {
+                if ((bound < 1 || pattern[candidate.first()] != ANY) && (bound < 2 || pattern[candidate.second()] != ANY)) {
+                    chosen = candidate;
+                    break;
+                }
+            }
+            order = chosen;
+            LayeredIndex index = indexes.get(order);
+            scan = switch (bound) {
+                case 0 -> index.scan();
+                case 1 -> index.scan(pattern[order.first()]);
+                default -> index.scan(pattern[order.first()], pattern[order.second()]);
+            };
+        }
+
+        private boolean next() {
+            if (scan == null) {
+                boolean found = single;
+                single = false;
+                return found;
+            }
+            if (!scan.next()) {
+                return false;
+            }
+            spo[order.first()] = scan.first();
+            spo[order.second()] = scan.second();
+            spo[order.third()] = scan.third();
+            return true;
+        }
+    }
+
+    /**
+     * Plan d'une requête en étoile, ou d'un modèle dont les paramètres seront liés à chaque exécution : tout
+     * ce qui ne dépend pas des constantes des paramètres y est calculé une fois, à la construction. Les
+     * constantes du modèle sont encodées ; chaque variable reçoit un emplacement dans les liaisons, la
+     * variable centrale le premier ; l'index qui fournit les valeurs de la variable centrale est choisi pour
+     * chaque patron ({@link #centralOrder}), de même que les patrons à réévaluer pour lier les autres
+     * variables. L'exécution encode les paramètres, lit les cardinalités des patrons pour les ordonner, puis
+     * évalue la requête comme {@link #match(StarQuery)}.
+     * <p>
+     * Un plan peut être exécuté par plusieurs threads à la fois, dans les mêmes conditions que le store.
+     */
+    private final class StarPlan implements PreparedStarQuery {
+        // Constante du modèle absente du dictionnaire lors de la préparation, cherchée de nouveau à l'exécution
+        private static final int UNKNOWN = -2;
+
+        private final StarQuery template;
+        private final List<Variable> parameters;
+        private final Variable central;
+        // Termes des patrons, null aux positions des paramètres
+        private final Term[][] terms;
+        // Patrons encodés : ANY pour les variables et les paramètres
+        private final int[][] patterns;
+        // Pour chaque position de chaque patron, l'indice du paramètre qui l'occupe, -1 sinon
+        private final int[][] parameterPositions;
+        private final TripleOrder[] centralOrders;
+        private final boolean[] extended;
+        private final int[][] slots;
+        private final List<Variable> variables = new ArrayList<>();
+        private final List<Variable> answerVariables;
+        private final int[] answerSlots;
+        private final boolean distinct;
+        private final boolean complete;
+        private final boolean seenPerCandidate;
+        // Les variables autres que la centrale n'apparaissent qu'une fois : le nombre de liaisons d'un candidat
+        // est le produit des cardinalités des patrons à étendre
+        private final boolean independent;
+        // Aucun patron à étendre : les candidats sont exactement les réponses
+        private final boolean centralOnly;
+        private final long limit;
+
+        private StarPlan(StarQuery template, List<Variable> parameters, Variable central) {
+            this.template = template;
+            this.parameters = parameters;
+            this.central = central;
+            this.limit = template.getLimit();
+            List<RDFTriple> triples = template.getRdfAtoms();
+            int n = triples.size();
+            terms = new Term[n][];
+            patterns = new int[n][3];
+            parameterPositions = new int[n][3];
+            centralOrders = new TripleOrder[n];
+            extended = new boolean[n];
+            slots = new int[n][];
+            variables.add(central);
+            for (int i = 0; i < n; i++) {
+                terms[i] = triples.get(i).getTerms().clone();
+                boolean[] bound = new boolean[3];
+                for (int k = 0; k < 3; k++) {
+                    int parameter = parameters.indexOf(terms[i][k]);
+                    parameterPositions[i][k] = parameter;
+                    if (parameter >= 0) {
+                        terms[i][k] = null;
+                        patterns[i][k] = ANY;
+                        bound[k] = true;
+                    } else if (terms[i][k] instanceof Variable) {
+                        patterns[i][k] = ANY;
+                    } else {
+                        int id = dictionary.lookup(terms[i][k]);
+                        patterns[i][k] = id == RDFDictionary.NOT_FOUND ? UNKNOWN : id;
+                        bound[k] = true;
+                    }
+                }
+                centralOrders[i] = centralOrder(bound, Arrays.asList(terms[i]).indexOf(central));
+                extended[i] = !bindsOnly(terms[i], central);
+                slots[i] = slots(terms[i], variables);
+            }
+            answerVariables = List.copyOf(template.getAnswerVariables());
+            answerSlots = answerVariables.stream().mapToInt(variables::indexOf).toArray();
+            distinct = answerVariables.stream().allMatch(central::equals);
+            complete = Arrays.stream(answerSlots).distinct().count() == variables.size();
+            seenPerCandidate = !complete && answerVariables.contains(central);
+            int[] occurrences = new int[variables.size()];
+            boolean repeated = false;
+            for (int i = 0; i < n; i++) {
+                repeated |= hasRepeatedVariable(terms[i]);
+                for (int slot : slots[i]) {
+                    if (slot > 0) {
+                        occurrences[slot]++;
+                    }
+                }
+            }
+            independent = !repeated && Arrays.stream(occurrences).allMatch(count -> count <= 1);
+            centralOnly = IntStream.range(0, n).noneMatch(i -> extended[i]) && !answerVariables.isEmpty();
+        }
+
+        @Override
+        public StarQuery template() {
+            return template;
+        }
+
+        @Override
+        public List<Variable> parameters() {
+            return parameters;
+        }
+
+        @Override
+        public Iterator<Substitution> execute(Term... values) {
+            if (values.length != parameters.size()) {
+                throw new IllegalArgumentException(parameters.size() + " constantes attendues, " + values.length + " reçues");
+            }
+            int[] ids = new int[values.length];
+            for (int p = 0; p < values.length; p++) {
+                ids[p] = dictionary.lookup(values[p]);
+                if (ids[p] == RDFDictionary.NOT_FOUND) {
+                    return Collections.emptyIterator();
+                }
+            }
+            return execute(ids);
+        }
+
+        /**
+         * @param values les identifiants des constantes des paramètres
+         */
+        private Iterator<Substitution> execute(int[] values) {
+            long[] cardinalities = new long[patterns.length];
+            int[][] bound = bind(values, cardinalities);
+            return bound == null ? Collections.emptyIterator()
+                    : iterate(bound, cardinalities, i -> centralCursor(bound[i], centralOrders[i]));
+        }
+
+        /**
+         * @param values les identifiants des constantes des paramètres
+         * @return le nombre de réponses, compté sans construire de substitution ni décoder de terme
+         */
+        private long count(int[] values) {
+            long[] cardinalities = new long[patterns.length];
+            int[][] bound = bind(values, cardinalities);
+            if (bound == null) {
+                return 0;
+            }
+            if (bound.length == 1 && !extended[0] && !answerVariables.isEmpty()) {
+                // Un seul patron, dont la seule variable est la centrale, projetée : son nombre de triplets
+                return Math.min(cardinalities[0], limit);
+            }
+            if (centralOnly) {
+                // Chaque candidat est une réponse : la taille de l'intersection des candidats
+                return Math.min(LeapfrogIntersection.count(candidates(bound), limit), limit);
+            }
+            return iterate(bound, cardinalities, i -> centralCursor(bound[i], centralOrders[i])).count();
+        }
+
+        /**
+         * @param values les identifiants des constantes des paramètres
+         * @return true si la requête a au moins une réponse, cherchée sans construire de substitution
+         */
+        private boolean ask(int[] values) {
+            long[] cardinalities = new long[patterns.length];
+            int[][] bound = bind(values, cardinalities);
+            if (bound == null || limit == 0) {
+                return false;
+            }
+            if (centralOnly) {
+                return LeapfrogIntersection.count(candidates(bound), 1) > 0;
+            }
+            return iterate(bound, cardinalities, i -> centralCursor(bound[i], centralOrders[i])).any();
+        }
+
+        /**
+         * @return la liste des candidats de chaque patron lié
+         */
+        private List<IdCursor> candidates(int[][] bound) {
+            List<IdCursor> candidates = new ArrayList<>(bound.length);
+            for (int i = 0; i < bound.length; i++) {
+                candidates.add(centralCursor(bound[i], centralOrders[i]));
+            }
+            return candidates;
+        }
+
+        /**
+         * Lie les paramètres et lit la cardinalité de chaque patron.
+         *
+         * @param values        les identifiants des constantes des paramètres
+         * @param cardinalities reçoit la cardinalité de chaque patron
+         * @return les patrons encodés, ou null si la requête n'a certainement aucune réponse
+         */
+        private int[][] bind(int[] values, long[] cardinalities) {
+            if (limit == 0) {
+                return null;
+            }
+            int n = patterns.length;
+            int[][] bound = new int[n][];
+            for (int i = 0; i < n; i++) {
+                bound[i] = patterns[i].clone();
+                for (int k = 0; k < 3; k++) {
+                    if (parameterPositions[i][k] >= 0) {
+                        bound[i][k] = values[parameterPositions[i][k]];
+                    } else if (bound[i][k] == UNKNOWN
+                            && (bound[i][k] = dictionary.lookup(terms[i][k])) == RDFDictionary.NOT_FOUND) {
+                        return null;
+                    }
+                }
+                if ((cardinalities[i] = cardinality(bound[i])) == 0) {
+                    return null;
+                }
+            }
+            return estimate(central, terms, distinct, bound, cardinalities) == 0 ? null : bound;
+        }
+
+        /**
+         * Ordonne les patrons liés par cardinalité croissante et construit l'itérateur des réponses.
+         *
+         * @param cursors fournit la liste des candidats de chaque patron, ou null pour un patron dont les
+         *                candidats sont déjà filtrés par la liste d'un autre patron
+         */
+        private StarIterator iterate(int[][] bound, long[] cardinalities, IntFunction<IdCursor> cursors) {
+            int n = bound.length;
+            // Tri par insertion des patrons, peu nombreux, par cardinalité croissante
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                int j = i;
+                while (j > 0 && cardinalities[order[j - 1]] > cardinalities[i]) {
+                    order[j] = order[j - 1];
+                    j--;
+                }
+                order[j] = i;
+            }
+            List<IdCursor> candidates = new ArrayList<>(n);
+            int[] toExtend = new int[n];
+            int extendedCount = 0;
+            for (int i : order) {
+                IdCursor cursor = cursors.apply(i);
+                if (cursor != null) {
+                    candidates.add(cursor);
+                }
+                if (extended[i]) {
+                    toExtend[extendedCount++] = i;
+                }
+            }
+            return new StarIterator(LeapfrogIntersection.of(candidates, limit), Arrays.copyOf(toExtend, extendedCount),
+                    bound, this);
+        }
+    }
+
+    /**
+     * Liste de candidats d'un patron encodé, lue dans un index donné : clé de partage des listes entre les
+     * requêtes d'un lot.
+     */
+    private record CandidateKey(int s, int p, int o, TripleOrder order) {
+        private CandidateKey(int[] pattern, TripleOrder order) {
+            this(pattern[0], pattern[1], pattern[2], order);
+        }
+
+        private int[] pattern() {
+            return new int[]{s, p, o};
+        }
+    }
+
+    /**
+     * Itérateur dont chaque élément est calculé à la demande par {@link #fetch()}.
+     */
+    private abstract static class SubstitutionIterator implements Iterator<Substitution> {
+        private Substitution next;
+        private boolean done;
+
+        /**
+         * @return la substitution suivante, ou null s'il n'y en a plus
+         */
+        protected abstract Substitution fetch();
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = fetch();
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Substitution next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Substitution result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    /**
+     * Réponses d'une requête en étoile, produites candidat par candidat : seules les liaisons du candidat
+     * courant sont conservées, sous forme de tableaux d'identifiants indexés par variable, et seules les
+     * variables réponses sont décodées, au moment de construire chaque substitution.
+     * <p>
+     * Les doublons dus à la projection ne sont recherchés que lorsqu'ils sont possibles : jamais si toutes
+     * les variables sont projetées, parmi les liaisons d'un même candidat si la variable centrale est
+     * projetée, et parmi toutes les réponses sinon.
+     */
+    private final class StarIterator extends SubstitutionIterator {
+        private final IdCursor candidates;
+        private final int[] toExtend;
+        private final int[][] patterns;
+        private final int[][] slots;
+        private final int variableCount;
+        private final List<Variable> answerVariables;
+        private final int[] answerSlots;
+        private final Set<Projection> seen;
+        private final boolean seenPerCandidate;
+        private final boolean distinct;
+        private final boolean independent;
+        private final long limit;
+
+        private List<int[]> bindings = List.of();
+        private int position;
+        private long produced;
+
+        private StarIterator(IdCursor candidates, int[] toExtend, int[][] patterns, StarPlan plan) {
+            this.candidates = candidates;
+            this.toExtend = toExtend;
+            this.patterns = patterns;
+            this.slots = plan.slots;
+            this.variableCount = plan.variables.size();
+            this.answerVariables = plan.answerVariables;
+            this.answerSlots = plan.answerSlots;
+            this.seenPerCandidate = plan.seenPerCandidate;
+            this.seen = plan.complete ? null : new HashSet<>();
+            this.distinct = plan.distinct;
+            this.independent = plan.independent;
+            this.limit = plan.limit;
+        }
+
+        @Override
+        protected Substitution fetch() {
+            if (produced == limit) {
+                return null;
+            }
+            while (true) {
+                while (position < bindings.size()) {
+                    int[] binding = bindings.get(position++);
+                    if (seen == null || seen.add(new Projection(binding, answerSlots))) {
+                        Substitution substitution = new SubstitutionImpl();
+                        for (int j = 0; j < answerSlots.length; j++) {
+                            substitution.add(answerVariables.get(j), dictionary.decode(binding[answerSlots[j]]));
+                        }
+                        produced++;
+                        return substitution;
+                    }
+                }
+                int candidate = candidates.next();
+                if (candidate == IdCursor.END) {
+                    return null;
+                }
+                if (seenPerCandidate) {
+                    seen.clear();
+                }
+                bindings = expand(candidate);
+                position = 0;
+            }
+        }
+
+        /**
+         * Compte les réponses restantes sans les construire. Un candidat compte pour une réponse s'il est la
+         * seule variable réponse et qu'il a au moins une liaison ; si les variables sont indépendantes, ses
+         * liaisons sont comptées sur les bornes des index, sans être énumérées. Sinon, elles sont calculées
+         * et dédoublonnées comme par {@link #fetch()}, sans décodage. Le comptage s'arrête à la limite de la
+         * requête.
+         */
+        private long count() {
+            if (answerSlots.length == 0) {
+                return any() ? 1 : 0;
+            }
+            long count = 0;
+            for (int candidate = candidates.next(); candidate != IdCursor.END; candidate = candidates.next()) {
+                if (toExtend.length == 0) {
+                    count++;
+                } else if (distinct) {
+                    count += extensible(initial(candidate), 0) ? 1 : 0;
+                } else if (seen == null && independent) {
+                    count += bindingCount(candidate);
+                } else if (seen == null) {
+                    count += expand(candidate).size();
+                } else {
+                    if (seenPerCandidate) {
+                        seen.clear();
+                    }
+                    for (int[] binding : expand(candidate)) {
+                        if (seen.add(new Projection(binding, answerSlots))) {
+                            count++;
+                        }
+                    }
+                }
+                if (count >= limit) {
+                    return limit;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @return true s'il reste au moins une réponse, cherchée candidat par candidat en s'arrêtant à la
+         * première liaison complète
+         */
+        private boolean any() {
+            for (int candidate = candidates.next(); candidate != IdCursor.END; candidate = candidates.next()) {
+                if (extensible(initial(candidate), 0)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return true si la liaison partielle s'étend aux patrons toExtend[k..], en profondeur d'abord
+         */
+        private boolean extensible(int[] partial, int k) {
+            if (k == toExtend.length) {
+                return true;
+            }
+            Matches matches = new Matches(bind(toExtend[k], partial));
+            while (matches.next()) {
+                int[] binding = bindMatch(partial, slots[toExtend[k]], matches.spo);
+                if (binding != null && extensible(binding, k + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return le nombre de liaisons d'un candidat lorsque les variables sont indépendantes : le produit des
+         * cardinalités des patrons à étendre, la variable centrale remplacée par le candidat
+         */
+        private long bindingCount(int candidate) {
+            long count = 1;
+            for (int k = 0; k < toExtend.length && count > 0; k++) {
+                count *= cardinality(bind(toExtend[k], initial(candidate)));
+            }
+            return count;
+        }
+
+        /**
+         * @return les liaisons complètes d'un candidat, obtenues en évaluant les patrons à étendre
+         * une fois leurs variables déjà liées remplacées
+         */
+        private List<int[]> expand(int candidate) {
+            List<int[]> partials = List.of(initial(candidate));
+            for (int k = 0; k < toExtend.length && !partials.isEmpty(); k++) {
+                int[] patternSlots = slots[toExtend[k]];
+                List<int[]> extended = new ArrayList<>();
+                for (int[] partial : partials) {
+                    Matches matches = new Matches(bind(toExtend[k], partial));
+                    while (matches.next()) {
+                        int[] binding = bindMatch(partial, patternSlots, matches.spo);
+                        if (binding != null) {
+                            extended.add(binding);
+                        }
+                    }
+                }
+                partials = extended;
+            }
+            return partials;
+        }
+
+        /**
+         * @return la liaison d'un candidat, dont seule la variable centrale est liée
+         */
+        private int[] initial(int candidate) {
+            int[] initial = new int[variableCount];
+            Arrays.fill(initial, ANY);
+            initial[0] = candidate;
+            return initial;
+        }
+
+        /**
+         * @return le patron i, ses variables déjà liées par partial remplacées par leurs identifiants
+         */
+        private int[] bind(int i, int[] partial) {
+            int[] bound = patterns[i].clone();
+            for (int k = 0; k < 3; k++) {
+                if (slots[i][k] >= 0 && partial[slots[i][k]] != ANY) {
+                    bound[k] = partial[slots[i][k]];
+                }
+            }
+            return bound;
+        }
+    }
+
+    /**
+     * Clé de dédoublonnage : les identifiants des variables réponses d'une liaison.
+     */
+    private record Projection(int[] ids) {
+        private Projection(int[] binding, int[] answerSlots) {
+            this(Arrays.stream(answerSlots).map(slot -> binding[slot]).toArray());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Projection projection && Arrays.equals(ids, projection.ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(ids);
+        }
+    }
+
+    /**
+     * Tableau extensible de triplets encodés, trois entiers par triplet, alimenté lors d'un chargement en masse.
+     */
+    private static final class TripleArray implements TripleIndex.TripleConsumer {
+        private int[] triples;
+        private int count;
+
+        private TripleArray(int[] triples, int count) {
+            this.triples = triples;
+            this.count = count;
+        }
+
+        @Override
+        public void accept(int s, int p, int o) {
+            if (3 * count == triples.length) {
+                triples = Arrays.copyOf(triples, Math.max(3 * 1024, 2 * triples.length));
+            }
+            triples[3 * count] = s;
+            triples[3 * count + 1] = p;
+            triples[3 * count + 2] = o;
+            count++;
+        }
+    }
+
+    /**
+     * Fusionne les triplets en attente dans les six index.
+     */
+    private void ensureIndexed() {
+        if (!pending.isEmpty()) {
+            TripleArray triples = drainPending();
+            index(triples.triples, triples.count);
+        }
+    }
+
+    /**
+     * Indexe les triplets en attente. Les lectures qui suivent ne modifient plus le store.
+     */
+    @Override
+    public void flush() {
+        ensureIndexed();
+    }
+
+    /**
+     * Fusionne les triplets en attente et les ajouts récents dans les six index principaux.
+     */
+    private void mergeRecent() {
+        ensureIndexed();
+        TripleIndex spo = indexes.get(TripleOrder.SPO).main();
+        for (TripleOrder order : TripleOrder.values()) {
+            indexes.put(order, indexes.get(order).flatten(placement));
+        }
+        reflexive = reflexive.flatten(placement);
+        if (indexes.get(TripleOrder.SPO).main() != spo) {
+            characteristicSets = null;
+        }
+    }
+
+    /**
+     * @return les triplets en attente, retirés du tampon, dans un tableau extensible
+     */
+    private TripleArray drainPending() {
+        TripleArray triples = new TripleArray(pending.toArray(), pending.size());
+        pending.clear();
+        return triples;
+    }
+
+    /**
+     * Intègre des triplets encodés (s, p, o) dans les six index. Chaque ordre est trié, dédoublonné
+     * puis fusionné en une passe avec l'index existant ; les six ordres sont traités en parallèle.
+     *
+     * @param triples les triplets, trois entiers par triplet
+     * @param count   le nombre de triplets
+     */
+    private void index(int[] triples, int count) {
+        if (count == 0) {
+            return;
+        }
+        TripleOrder[] orders = TripleOrder.values();
+        LayeredIndex[] built = new LayeredIndex[orders.length];
+        Arrays.stream(orders).parallel().forEach(order -> {
+            int[] ordered = order.permute(triples, count);
+            int distinct = TripleSorter.sortDistinct(ordered, count);
+            built[order.ordinal()] = indexes.get(order).merge(ordered, distinct, placement);
+        });
+        TripleIndex spo = indexes.get(TripleOrder.SPO).main();
+        for (TripleOrder order : orders) {
+            indexes.put(order, built[order.ordinal()]);
+        }
+
+        int[] reflexiveTriples = new int[0];
+        int reflexiveCount = 0;
+        for (int k = 0; k < 3 * count; k += 3) {
+            if (triples[k] == triples[k + 1] || triples[k + 1] == triples[k + 2] || triples[k] == triples[k + 2]) {
+                if (3 * reflexiveCount == reflexiveTriples.length) {
+                    reflexiveTriples = Arrays.copyOf(reflexiveTriples, Math.max(48, 2 * reflexiveTriples.length));
+                }
+                System.arraycopy(triples, k, reflexiveTriples, 3 * reflexiveCount++, 3);
+            }
+        }
+        reflexive = reflexive.merge(reflexiveTriples, TripleSorter.sortDistinct(reflexiveTriples, reflexiveCount), placement);
+        if (indexes.get(TripleOrder.SPO).main() != spo) {
+            characteristicSets = null;
+        }
+
+        // Les termes récents sont compactés dès qu'ils forment un quart du dictionnaire : le coût du compactage
+        // reste proportionnel au nombre de termes chargés
+        if (4 * dictionary.recentSize() >= dictionary.size()) {
+            dictionary.compact();
+        }
+    }
+
+    /**
+     * @return les ensembles caractéristiques des index, recalculés s'ils ont été invalidés depuis leur calcul
+     */
+    private CharacteristicSets characteristicSets() {
+        CharacteristicSets sets = characteristicSets;
+        if (sets == null) {
+            // Calculés une seule fois lorsque des requêtes concurrentes les demandent ensemble
+            synchronized (this) {
+                sets = characteristicSets;
+                if (sets == null) {
+                    sets = CharacteristicSets.of(indexes.get(TripleOrder.SPO).main());
+                    characteristicSets = sets;
+                }
+            }
+        }
+        return sets;
+    }
+
+    /**
+     * @return true si les ensembles caractéristiques sont à jour, sans les recalculer (pour les tests)
+     */
+    boolean hasCharacteristicSets() {
+        return characteristicSets != null;
+    }
+
+    /**
+     * @return true si une même variable apparaît à plusieurs positions du patron
+     */
+    private static boolean hasRepeatedVariable(Term[] terms) {
+        for (int i = 0; i < 3; i++) {
+            for (int j = i + 1; j < 3; j++) {
+                if (terms[i] instanceof Variable && terms[i].equals(terms[j])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Associe à chaque position d'un patron l'indice de sa variable dans variables, complétée au besoin,
+     * ou -1 pour une constante.
+     */
+    private static int[] slots(Term[] terms, List<Variable> variables) {
+        int[] slots = new int[3];
+        for (int i = 0; i < 3; i++) {
+            if (terms[i] instanceof Variable variable) {
+                int slot = variables.indexOf(variable);
+                if (slot < 0) {
+                    slot = variables.size();
+                    variables.add(variable);
+                }
+                slots[i] = slot;
+            } else {
+                slots[i] = -1;
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * @return true si les positions portant une même variable ont le même identifiant dans le triplet
+     */
+    private static boolean consistent(int[] slots, int[] ids) {
+        for (int i = 0; i < 3; i++) {
+            for (int j = i + 1; j < 3; j++) {
+                if (slots[i] >= 0 && slots[i] == slots[j] && ids[i] != ids[j]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true si la position i est la première du patron à porter sa variable
+     */
+    private static boolean firstSlot(int[] slots, int i) {
+        for (int j = 0; j < i; j++) {
+            if (slots[j] == slots[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Complète une liaison partielle avec un triplet encodé.
+     *
+     * @return la nouvelle liaison, ou null si une variable est liée à deux identifiants différents
+     */
+    private static int[] bindMatch(int[] partial, int[] slots, int[] ids) {
+        int[] binding = partial.clone();
+        for (int i = 0; i < 3; i++) {
+            int slot = slots[i];
+            if (slot >= 0) {
+                if (binding[slot] == ANY) {
+                    binding[slot] = ids[i];
+                } else if (binding[slot] != ids[i]) {
+                    return null;
+                }
+            }
+        }
+        return binding;
     }
 }
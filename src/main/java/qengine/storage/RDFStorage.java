@@ -1,10 +1,13 @@
 package qengine.storage;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.stream.Stream;
 
 import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Variable;
 import qengine.model.RDFTriple;
 import qengine.model.StarQuery;
 
@@ -31,11 +34,66 @@ public interface RDFStorage {
 
     /**
      * @param q star query
-     * @return an itérateur de subsitutions décrivrant les réponses à la requete
+     * @return an itérateur de subsitutions décrivrant les réponses à la requete, au plus
+     *          {@link StarQuery#getLimit()}
      */
     Iterator<Substitution> match(StarQuery q);
 
 
+    /**
+     * Compte les réponses d'une requête en étoile. Par défaut, les réponses de {@link #match(StarQuery)} sont
+     * parcourues.
+     *
+     * @param q star query
+     * @return le nombre de réponses à la requête
+     */
+    default long howMany(StarQuery q) {
+        long count = 0;
+        for (Iterator<Substitution> answers = match(q); answers.hasNext(); answers.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param q star query
+     * @return true si la requête a au moins une réponse
+     */
+    default boolean ask(StarQuery q) {
+        return match(q).hasNext();
+    }
+
+    /**
+     * Évalue un lot de requêtes en étoile. Un store peut y partager entre les requêtes le travail qui leur est
+     * commun, comme la lecture des patrons identiques ; par défaut, chaque requête est évaluée par
+     * {@link #match(StarQuery)}.
+     *
+     * @param queries les requêtes du lot
+     * @return les itérateurs des réponses de chaque requête, dans l'ordre du lot
+     */
+    default List<Iterator<Substitution>> matchBatch(List<StarQuery> queries) {
+        List<Iterator<Substitution>> answers = new ArrayList<>(queries.size());
+        for (StarQuery query : queries) {
+            answers.add(match(query));
+        }
+        return answers;
+    }
+
+    /**
+     * Prépare un modèle de requête en étoile, exécuté ensuite autant de fois que voulu avec des constantes
+     * différentes pour ses paramètres. Par défaut, chaque exécution remplace les paramètres par leurs
+     * constantes puis évalue la requête obtenue par {@link #match(StarQuery)}.
+     *
+     * @param template   le modèle de la requête
+     * @param parameters les variables du modèle remplacées par des constantes à chaque exécution
+     * @return la requête préparée
+     * @throws IllegalArgumentException si un paramètre est une variable réponse ou n'apparaît pas dans le modèle,
+     *                                  ou si aucune autre variable n'est partagée par tous les patrons
+     */
+    default PreparedStarQuery prepare(StarQuery template, List<Variable> parameters) {
+        return PreparedStarQuery.substituting(this, template, parameters);
+    }
+
     /**
      * @param a atom
      * @return
@@ -77,4 +135,12 @@ public interface RDFStorage {
     default boolean addAll(Collection<RDFTriple> atoms) {
         return this.addAll(atoms.stream());
     }
+
+    /**
+     * Termine les écritures différées du store, par exemple l'indexation des triplets ajoutés, afin que les
+     * lectures suivantes ne modifient plus le store et puissent être concurrentes. Par défaut, aucune écriture
+     * n'est différée.
+     */
+    default void flush() {
+    }
 }
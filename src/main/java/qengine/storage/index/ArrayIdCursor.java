@@ -0,0 +1,97 @@
+package qengine.storage.index;
+
+import java.nio.IntBuffer;
+
+/**
+ * Curseur sur un intervalle trié d'un tableau d'entiers, sur le tas ou projeté en mémoire, sans copie.
+ * {@link #advance(int)} procède par recherche exponentielle (« galloping ») depuis la position courante,
+ * ce qui rend l'intersection d'une petite liste avec une grande proportionnelle à la petite.
+ */
+public final class ArrayIdCursor implements IdCursor {
+
+    private static final IntBuffer NO_IDS = IntBuffer.wrap(new int[0]);
+
+    private final IntBuffer ids;
+    private final int end;
+    private int position;
+    private int id = -1;
+
+    /**
+     * @param ids  le tableau contenant la liste
+     * @param from la position du premier identifiant de la liste
+     * @param to   la position suivant le dernier identifiant de la liste
+     */
+    public ArrayIdCursor(int[] ids, int from, int to) {
+        this(IntBuffer.wrap(ids), from, to);
+    }
+
+    /**
+     * @param ids  le tampon contenant la liste, lu uniquement par accès absolu
+     * @param from la position du premier identifiant de la liste
+     * @param to   la position suivant le dernier identifiant de la liste
+     */
+    public ArrayIdCursor(IntBuffer ids, int from, int to) {
+        this.ids = ids;
+        this.end = to;
+        this.position = from - 1;
+    }
+
+    /**
+     * @return un curseur sur une liste vide
+     */
+    public static IdCursor empty() {
+        return new ArrayIdCursor(NO_IDS, 0, 0);
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public int next() {
+        return id = ++position < end ? ids.get(position) : END;
+    }
+
+    @Override
+    public int advance(int target) {
+        int low = position + 1;
+        int bound = 1;
+        while (low + bound - 1 < end && ids.get(low + bound - 1) < target) {
+            low += bound;
+            bound <<= 1;
+        }
+        int high = Math.min(low + bound, end);
+        int found = binarySearch(ids, low, high, target);
+        position = found >= 0 ? found : -found - 1;
+        return id = position < end ? ids.get(position) : END;
+    }
+
+    @Override
+    public int size() {
+        return Math.max(0, end - position - 1);
+    }
+
+    /**
+     * Recherche dichotomique dans l'intervalle [from, to) d'un tampon trié, avec le contrat de
+     * {@link java.util.Arrays#binarySearch(int[], int, int, int)}.
+     *
+     * @return la position de key, ou {@code -(point d'insertion) - 1} si key est absente
+     */
+    static int binarySearch(IntBuffer ids, int from, int to, int key) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = ids.get(middle);
+            if (value < key) {
+                low = middle + 1;
+            } else if (value > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,134 @@
+package qengine.storage.index;
+
+/**
+ * Curseur sur un {@link RoaringBitmap}. {@link #advance(int)} cherche le conteneur de la cible par
+ * dichotomie sur les clés, puis saute directement au mot de la cible dans un conteneur bitmap, ou y
+ * cherche par dichotomie dans un conteneur tableau.
+ */
+final class BitmapCursor implements IdCursor {
+
+    private final RoaringBitmap bitmap;
+    private final int containers;
+    private final int total;
+    private int id = -1;
+
+    // Conteneur courant et nombre d'identifiants des conteneurs précédents
+    private int container = -1;
+    private int passed;
+    private int key;
+    private int cardinality;
+    private boolean isBitmap;
+    // Position dans un conteneur tableau ; mot courant et ses bits restants dans un conteneur bitmap
+    private int index;
+    private int word;
+    private long bits;
+
+    BitmapCursor(RoaringBitmap bitmap) {
+        this.bitmap = bitmap;
+        this.containers = bitmap.containers();
+        this.total = bitmap.cardinality();
+        open(0);
+    }
+
+    /**
+     * @return l'ensemble parcouru
+     */
+    RoaringBitmap bitmap() {
+        return bitmap;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public int next() {
+        while (container < containers) {
+            if (isBitmap) {
+                while (bits == 0 && ++word < RoaringBitmap.BITMAP_WORDS) {
+                    bits = bitmap.word(container, word);
+                }
+                if (bits != 0) {
+                    int bit = Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    return id = key | word << 6 | bit;
+                }
+            } else if (++index < cardinality) {
+                return id = key | bitmap.arrayValue(container, index);
+            }
+            passed += cardinality;
+            open(container + 1);
+        }
+        return id = END;
+    }
+
+    @Override
+    public int advance(int target) {
+        int high = target >>> 16;
+        if (container < containers && key >>> 16 < high) {
+            // Premier conteneur dont la clé atteint celle de la cible
+            int low = container + 1;
+            int last = containers;
+            while (low < last) {
+                int middle = (low + last) >>> 1;
+                if (bitmap.key(middle) < high) {
+                    low = middle + 1;
+                } else {
+                    last = middle;
+                }
+            }
+            for (int i = container; i < low; i++) {
+                passed += bitmap.cardinality(i);
+            }
+            open(low);
+        }
+        if (container < containers && key >>> 16 == high) {
+            int low = target & 0xFFFF;
+            if (isBitmap) {
+                if (low >>> 6 != word) {
+                    word = low >>> 6;
+                    bits = bitmap.word(container, word);
+                }
+                bits &= -1L << low;
+            } else {
+                int from = index + 1;
+                int to = cardinality;
+                while (from < to) {
+                    int middle = (from + to) >>> 1;
+                    if (bitmap.arrayValue(container, middle) < low) {
+                        from = middle + 1;
+                    } else {
+                        to = middle;
+                    }
+                }
+                index = from - 1;
+            }
+        }
+        return next();
+    }
+
+    @Override
+    public int size() {
+        return Math.max(0, total - passed - (isBitmap ? 0 : index + 1));
+    }
+
+    /**
+     * Place le curseur avant le premier identifiant du conteneur i.
+     */
+    private void open(int i) {
+        container = i;
+        if (i < containers) {
+            key = bitmap.key(i) << 16;
+            cardinality = bitmap.cardinality(i);
+            isBitmap = bitmap.isBitmap(i);
+            index = -1;
+            word = -1;
+            bits = 0;
+        } else {
+            cardinality = 0;
+            isBitmap = false;
+            index = -1;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package qengine.storage.index;
+
+/**
+ * Parcours d'une liste d'identifiants triés par ordre strictement croissant, par exemple les sujets
+ * associés à un couple (prédicat, objet) dans l'index POS.
+ * <p>
+ * Le curseur est initialement placé avant le premier identifiant ({@link #id()} vaut -1) ;
+ * {@link #next()} et {@link #advance(int)} le font avancer et retournent le nouvel identifiant courant,
+ * ou {@link #END} lorsque la liste est épuisée.
+ */
+public interface IdCursor {
+
+    /**
+     * Identifiant courant d'un curseur épuisé, supérieur à tout identifiant du dictionnaire.
+     */
+    int END = Integer.MAX_VALUE;
+
+    /**
+     * @return l'identifiant courant, -1 avant le premier appel à {@link #next()} ou {@link #advance(int)}
+     */
+    int id();
+
+    /**
+     * Avance sur l'identifiant suivant.
+     *
+     * @return le nouvel identifiant courant, ou {@link #END}
+     */
+    int next();
+
+    /**
+     * Avance sur le premier identifiant supérieur ou égal à target.
+     *
+     * @param target un identifiant strictement supérieur à l'identifiant courant
+     * @return le nouvel identifiant courant, ou {@link #END}
+     */
+    int advance(int target);
+
+    /**
+     * @return une borne supérieure du nombre d'identifiants restant à parcourir, utilisée pour ordonner les intersections
+     */
+    int size();
+}
@@ -0,0 +1,63 @@
+package qengine.storage.index;
+
+import java.util.Arrays;
+
+/**
+ * Liste triée d'identifiants lue une seule fois dans un index puis parcourue par autant de curseurs que voulu,
+ * par exemple la liste des candidats d'un patron commun à plusieurs requêtes d'un lot.
+ * <p>
+ * Une liste compressée est décodée dans un tableau ; un {@link RoaringBitmap} est conservé tel quel, pour que
+ * ses curseurs restent intersectés par ET logique ({@link LeapfrogIntersection}).
+ */
+public final class IdList {
+
+    private final int[] ids;
+    private final int length;
+    private final RoaringBitmap bitmap;
+
+    private IdList(int[] ids, int length, RoaringBitmap bitmap) {
+        this.ids = ids;
+        this.length = length;
+        this.bitmap = bitmap;
+    }
+
+    /**
+     * @param cursor un curseur qui n'a pas encore été parcouru, épuisé par cet appel
+     * @return la liste des identifiants du curseur
+     */
+    public static IdList of(IdCursor cursor) {
+        if (cursor instanceof BitmapCursor bitmap) {
+            return new IdList(null, bitmap.bitmap().cardinality(), bitmap.bitmap());
+        }
+        int[] ids = new int[Math.max(cursor.size(), 1)];
+        int length = 0;
+        for (int id = cursor.next(); id != IdCursor.END; id = cursor.next()) {
+            if (length == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * length);
+            }
+            ids[length++] = id;
+        }
+        return new IdList(ids, length, null);
+    }
+
+    /**
+     * @return un nouveau curseur sur la liste, placé avant son premier identifiant
+     */
+    public IdCursor cursor() {
+        return bitmap != null ? new BitmapCursor(bitmap) : new ArrayIdCursor(ids, 0, length);
+    }
+
+    /**
+     * @return true si la liste est un {@link RoaringBitmap}, dont l'intersection avec un autre est un ET logique
+     */
+    public boolean isBitmap() {
+        return bitmap != null;
+    }
+
+    /**
+     * @return le nombre d'identifiants de la liste
+     */
+    public int size() {
+        return length;
+    }
+}
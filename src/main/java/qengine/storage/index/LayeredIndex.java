@@ -0,0 +1,240 @@
+package qengine.storage.index;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Un index de l'HexaStore suivi des triplets ajoutés depuis sa construction : un grand {@link TripleIndex}
+ * principal et un petit index des ajouts récents, disjoint du premier, interrogés ensemble.
+ * <p>
+ * Fusionner chaque lot d'ajouts dans l'index principal le reconstruirait en entier, pour un coût proportionnel
+ * au nombre total de triplets même lorsque le lot n'en compte qu'un. Les lots sont donc fusionnés dans l'index
+ * des ajouts récents, et celui-ci n'est fusionné dans l'index principal que lorsqu'il en atteint le quart :
+ * comme pour le compactage du dictionnaire, le coût des fusions reste proportionnel au nombre de triplets ajoutés.
+ * <p>
+ * Un index à deux niveaux est immuable, comme les index qui le composent.
+ */
+public final class LayeredIndex {
+
+    // L'index des ajouts récents est fusionné dans l'index principal dès qu'il en atteint le quart
+    private static final int MERGE_RATIO = 4;
+
+    private static final LayeredIndex EMPTY = new LayeredIndex(TripleIndex.empty(), TripleIndex.empty());
+
+    private final TripleIndex main;
+    private final TripleIndex delta;
+
+    private LayeredIndex(TripleIndex main, TripleIndex delta) {
+        this.main = main;
+        this.delta = delta;
+    }
+
+    /**
+     * @return un index vide
+     */
+    public static LayeredIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return un index dont tous les triplets sont dans l'index principal fourni
+     */
+    public static LayeredIndex of(TripleIndex main) {
+        return new LayeredIndex(main, TripleIndex.empty());
+    }
+
+    /**
+     * @return l'index principal, qui ne contient pas les ajouts récents
+     */
+    public TripleIndex main() {
+        return main;
+    }
+
+    /**
+     * @return true si des triplets ajoutés n'ont pas encore été fusionnés dans l'index principal
+     */
+    public boolean hasRecent() {
+        return delta.size() > 0;
+    }
+
+    /**
+     * Retourne un index contenant les triplets de cet index et les triplets fournis. Ceux-ci sont fusionnés dans
+     * l'index des ajouts récents, ou, si celui-ci atteint le quart de l'index principal, l'ensemble est fusionné
+     * dans un nouvel index principal.
+     *
+     * @param triples   des triplets (a, b, c) dans l'ordre de l'index, triés et sans doublons
+     * @param count     le nombre de triplets fournis
+     * @param placement appliqué au nouvel index principal, par exemple pour le recopier hors du tas
+     * @return l'index fusionné
+     */
+    public LayeredIndex merge(int[] triples, int count, UnaryOperator<TripleIndex> placement) {
+        if (count == 0) {
+            return this;
+        }
+        if (MERGE_RATIO * ((long) delta.size() + count) >= main.size()) {
+            TripleIndex merged;
+            if (delta.size() == 0) {
+                merged = main.merge(triples, count);
+            } else {
+                TripleIndex recent = delta.merge(triples, count);
+                merged = main.merge(recent.toArray(), recent.size());
+            }
+            return merged == main ? this : of(placement.apply(merged));
+        }
+        // Les triplets déjà présents dans l'index principal sont écartés : les deux niveaux restent disjoints
+        int[] fresh = new int[3 * count];
+        int n = 0;
+        for (int k = 0; k < 3 * count; k += 3) {
+            if (!main.contains(triples[k], triples[k + 1], triples[k + 2])) {
+                System.arraycopy(triples, k, fresh, 3 * n++, 3);
+            }
+        }
+        return n == 0 ? this : new LayeredIndex(main, delta.merge(fresh, n));
+    }
+
+    /**
+     * @return un index dont tous les triplets sont dans l'index principal
+     */
+    public LayeredIndex flatten(UnaryOperator<TripleIndex> placement) {
+        return delta.size() == 0 ? this : of(placement.apply(main.merge(delta.toArray(), delta.size())));
+    }
+
+    public int size() {
+        return main.size() + delta.size();
+    }
+
+    public boolean contains(int a, int b, int c) {
+        return main.contains(a, b, c) || delta.size() > 0 && delta.contains(a, b, c);
+    }
+
+    /**
+     * @return le nombre de deuxièmes clés associées à la première clé a, majoré lorsqu'une même clé figure
+     * dans les deux niveaux
+     */
+    public int degree(int a) {
+        return main.degree(a) + delta.degree(a);
+    }
+
+    /**
+     * @return le nombre de triplets de première clé a
+     */
+    public int count(int a) {
+        return main.count(a) + delta.count(a);
+    }
+
+    /**
+     * @return le nombre de triplets du couple (a, b)
+     */
+    public int count(int a, int b) {
+        return main.count(a, b) + delta.count(a, b);
+    }
+
+    /**
+     * @return un curseur sur les premières clés présentes dans l'index
+     */
+    public IdCursor firstCursor() {
+        return delta.size() == 0 ? main.firstCursor() : new UnionCursor(main.firstCursor(), delta.firstCursor());
+    }
+
+    /**
+     * @return un curseur sur les deuxièmes clés associées à la première clé a
+     */
+    public IdCursor secondCursor(int a) {
+        return delta.degree(a) == 0
+                ? main.secondCursor(a) : new UnionCursor(main.secondCursor(a), delta.secondCursor(a));
+    }
+
+    /**
+     * @return un curseur sur les troisièmes clés du couple (a, b)
+     */
+    public IdCursor thirdCursor(int a, int b) {
+        return delta.find(a, b) < 0
+                ? main.thirdCursor(a, b) : new UnionCursor(main.thirdCursor(a, b), delta.thirdCursor(a, b));
+    }
+
+    /**
+     * @return un parcours de tous les triplets de l'index
+     */
+    public TripleScan scan() {
+        return delta.size() == 0 ? main.scan() : new MergedScan(main.scan(), delta.scan());
+    }
+
+    /**
+     * @return un parcours des triplets de première clé a
+     */
+    public TripleScan scan(int a) {
+        return delta.count(a) == 0 ? main.scan(a) : new MergedScan(main.scan(a), delta.scan(a));
+    }
+
+    /**
+     * @return un parcours des triplets du couple (a, b)
+     */
+    public TripleScan scan(int a, int b) {
+        return delta.find(a, b) < 0 ? main.scan(a, b) : new MergedScan(main.scan(a, b), delta.scan(a, b));
+    }
+
+    /**
+     * @return une estimation en octets de la place occupée par les deux niveaux
+     */
+    public long estimateBytes() {
+        return MemoryEstimates.object(2 * MemoryEstimates.REFERENCE) + main.estimateBytes() + delta.estimateBytes();
+    }
+
+    /**
+     * Fusion à la volée de deux parcours disjoints, dans l'ordre de l'index.
+     */
+    private static final class MergedScan implements TripleScan {
+        private final TripleScan left;
+        private final TripleScan right;
+        private boolean hasLeft;
+        private boolean hasRight;
+        private boolean started;
+        private TripleScan current;
+
+        private MergedScan(TripleScan left, TripleScan right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean next() {
+            if (!started) {
+                hasLeft = left.next();
+                hasRight = right.next();
+                started = true;
+            } else if (current == left) {
+                hasLeft = left.next();
+            } else if (current == right) {
+                hasRight = right.next();
+            }
+            if (!hasLeft && !hasRight) {
+                current = null;
+                return false;
+            }
+            current = !hasRight || hasLeft && compare(left, right) < 0 ? left : right;
+            return true;
+        }
+
+        private static int compare(TripleScan left, TripleScan right) {
+            int cmp = Integer.compare(left.first(), right.first());
+            if (cmp == 0) {
+                cmp = Integer.compare(left.second(), right.second());
+            }
+            return cmp != 0 ? cmp : Integer.compare(left.third(), right.third());
+        }
+
+        @Override
+        public int first() {
+            return current.first();
+        }
+
+        @Override
+        public int second() {
+            return current.second();
+        }
+
+        @Override
+        public int third() {
+            return current.third();
+        }
+    }
+}
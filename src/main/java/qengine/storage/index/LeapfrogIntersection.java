@@ -0,0 +1,200 @@
+package qengine.storage.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Intersection de plusieurs listes triées d'identifiants par « leapfrog » : le curseur le plus court
+ * propose un candidat, chaque autre curseur saute directement au premier identifiant supérieur ou égal,
+ * et tout dépassement devient le nouveau candidat. Aucune liste n'est matérialisée, et le coût est
+ * dominé par la taille de la plus petite liste grâce aux sauts exponentiels de {@link IdCursor#advance(int)}.
+ * <p>
+ * Les listes stockées en {@link RoaringBitmap} sont d'abord intersectées entre elles par ET logique mot à mot,
+ * bien plus rapide que des sauts dans ces très longues listes, et leur intersection rejoint les autres curseurs.
+ * De même, les plus courtes listes de tailles comparables, dont tous les identifiants devraient être comparés,
+ * sont décodées et intersectées d'un bloc par {@link SortedIntersection} ; les sauts ne sont conservés que
+ * pour les listes beaucoup plus longues que la plus courte.
+ * <p>
+ * L'intersection est elle-même un {@link IdCursor}, parcourant les identifiants communs par ordre croissant.
+ */
+public final class LeapfrogIntersection implements IdCursor {
+
+    /**
+     * Taille de la plus courte liste à partir de laquelle les listes de tailles comparables sont intersectées
+     * d'un bloc plutôt que par sauts.
+     */
+    static final int MIN_BULK_SIZE = 64;
+
+    private final IdCursor[] cursors;
+    private int id = -1;
+
+    private LeapfrogIntersection(IdCursor[] cursors) {
+        this.cursors = cursors;
+    }
+
+    /**
+     * @param cursors les listes à intersecter, dont aucune n'a encore été parcourue
+     * @return un curseur sur leur intersection
+     */
+    public static IdCursor of(List<IdCursor> cursors) {
+        if (cursors.isEmpty()) {
+            return ArrayIdCursor.empty();
+        }
+        if (cursors.size() == 1) {
+            return cursors.get(0);
+        }
+        IdCursor[] sorted = andBitmaps(cursors);
+        Arrays.sort(sorted, Comparator.comparingInt(IdCursor::size));
+        sorted = intersectComparable(sorted);
+        return sorted.length == 1 ? sorted[0] : new LeapfrogIntersection(sorted);
+    }
+
+    /**
+     * Curseur sur l'intersection de plusieurs listes dont seuls les limit premiers identifiants seront lus. Si
+     * limit est inférieure à la taille de la plus courte liste, les listes sont seulement intersectées par sauts,
+     * sans ET logique ni décodage d'un bloc, dont le coût dépend de la longueur des listes et non du nombre
+     * d'identifiants lus ; sinon, comme par {@link #of(List)}.
+     *
+     * @param cursors les listes à intersecter, dont aucune n'a encore été parcourue
+     * @param limit   le nombre d'identifiants communs au-delà duquel l'intersection ne sera plus lue
+     * @return un curseur sur leur intersection
+     */
+    public static IdCursor of(List<IdCursor> cursors, long limit) {
+        if (cursors.size() < 2 || cursors.stream().mapToInt(IdCursor::size).min().orElseThrow() <= limit) {
+            return of(cursors);
+        }
+        IdCursor[] sorted = cursors.toArray(new IdCursor[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(IdCursor::size));
+        return new LeapfrogIntersection(sorted);
+    }
+
+    /**
+     * Taille de l'intersection de plusieurs listes, bornée par limit. Lorsque toutes sont des
+     * {@link RoaringBitmap}, le dernier ET logique est seulement compté ({@link RoaringBitmap#andCardinality}) ;
+     * sinon l'intersection est parcourue sans être conservée. Le comptage s'arrête dès que limit est atteinte.
+     *
+     * @param cursors les listes à intersecter, dont aucune n'a encore été parcourue
+     * @param limit   le nombre d'identifiants au-delà duquel il est inutile de compter
+     * @return la taille de l'intersection, ou une valeur au moins égale à limit si elle l'atteint
+     */
+    public static long count(List<IdCursor> cursors, long limit) {
+        if (cursors.size() > 1 && cursors.stream().allMatch(BitmapCursor.class::isInstance)) {
+            RoaringBitmap and = ((BitmapCursor) cursors.get(0)).bitmap();
+            for (int i = 1; i < cursors.size() - 1; i++) {
+                and = RoaringBitmap.and(and, ((BitmapCursor) cursors.get(i)).bitmap());
+            }
+            return RoaringBitmap.andCardinality(and, ((BitmapCursor) cursors.getLast()).bitmap(), limit);
+        }
+        IdCursor intersection = of(cursors, limit);
+        long count = 0;
+        while (count < limit && intersection.next() != END) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return les curseurs, dont ceux d'au moins deux {@link RoaringBitmap} sont remplacés par un seul curseur
+     * sur leur intersection
+     */
+    private static IdCursor[] andBitmaps(List<IdCursor> cursors) {
+        List<IdCursor> others = new ArrayList<>(cursors.size());
+        RoaringBitmap and = null;
+        int bitmaps = 0;
+        for (IdCursor cursor : cursors) {
+            if (cursor instanceof BitmapCursor bitmap) {
+                and = bitmaps++ == 0 ? bitmap.bitmap() : RoaringBitmap.and(and, bitmap.bitmap());
+            } else {
+                others.add(cursor);
+            }
+        }
+        if (bitmaps < 2) {
+            return cursors.toArray(new IdCursor[0]);
+        }
+        others.add(new BitmapCursor(and));
+        return others.toArray(new IdCursor[0]);
+    }
+
+    /**
+     * @param sorted les curseurs, par taille croissante
+     * @return les curseurs, dont les plus courts de tailles comparables sont remplacés par un seul curseur
+     * sur leur intersection
+     */
+    private static IdCursor[] intersectComparable(IdCursor[] sorted) {
+        int smallest = sorted[0].size();
+        int comparable = 1;
+        while (comparable < sorted.length && smallest >= MIN_BULK_SIZE
+                && sorted[comparable].size() <= SortedIntersection.SKEW * smallest) {
+            comparable++;
+        }
+        if (comparable == 1) {
+            return sorted;
+        }
+        int[] ids = new int[smallest];
+        int length = drain(sorted[0], ids);
+        for (int i = 1; i < comparable && length > 0; i++) {
+            int[] other = new int[sorted[i].size()];
+            int otherLength = drain(sorted[i], other);
+            int[] out = new int[SortedIntersection.outputLength(length, otherLength)];
+            length = SortedIntersection.intersect(ids, length, other, otherLength, out);
+            ids = out;
+        }
+        IdCursor[] remaining = new IdCursor[sorted.length - comparable + 1];
+        remaining[0] = new ArrayIdCursor(ids, 0, length);
+        System.arraycopy(sorted, comparable, remaining, 1, sorted.length - comparable);
+        return remaining;
+    }
+
+    /**
+     * Parcourt un curseur jusqu'au bout et écrit ses identifiants en tête de ids.
+     *
+     * @return le nombre d'identifiants écrits
+     */
+    private static int drain(IdCursor cursor, int[] ids) {
+        int length = 0;
+        for (int id = cursor.next(); id != END; id = cursor.next()) {
+            ids[length++] = id;
+        }
+        return length;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public int next() {
+        return align(cursors[0].next());
+    }
+
+    @Override
+    public int advance(int target) {
+        return align(cursors[0].advance(target));
+    }
+
+    @Override
+    public int size() {
+        return cursors[0].size();
+    }
+
+    /**
+     * Avance les autres curseurs jusqu'à ce que tous soient positionnés sur le même identifiant.
+     */
+    private int align(int candidate) {
+        int i = 1;
+        while (candidate != END && i < cursors.length) {
+            IdCursor cursor = cursors[i];
+            int value = cursor.id() < candidate ? cursor.advance(candidate) : cursor.id();
+            if (value == candidate) {
+                i++;
+            } else {
+                candidate = value == END ? END : cursors[0].advance(value);
+                i = 1;
+            }
+        }
+        return id = candidate;
+    }
+}
@@ -0,0 +1,35 @@
+package qengine.storage.index;
+
+/**
+ * Estimations de taille des objets sur le tas, pour une JVM 64 bits avec références compressées.
+ * Ces valeurs servent uniquement aux rapports d'empreinte mémoire des index.
+ */
+final class MemoryEstimates {
+
+    static final long OBJECT_HEADER = 12;
+    static final long ARRAY_HEADER = 16;
+    static final long REFERENCE = 4;
+
+    private MemoryEstimates() {
+    }
+
+    static long intArray(int length) {
+        return align(ARRAY_HEADER + (long) Integer.BYTES * length);
+    }
+
+    static long byteArray(int length) {
+        return align(ARRAY_HEADER + length);
+    }
+
+    static long referenceArray(int length) {
+        return align(ARRAY_HEADER + REFERENCE * length);
+    }
+
+    static long object(long fieldBytes) {
+        return align(OBJECT_HEADER + fieldBytes);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,52 @@
+package qengine.storage.index;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Allocation de tampons hors du tas, dans des {@link MemorySegment} de l'API « Foreign Function &amp; Memory ».
+ * <p>
+ * Chaque tampon est alloué dans sa propre arène automatique ({@link Arena#ofAuto()}) : la mémoire est
+ * libérée lorsque le tampon n'est plus atteignable, ce qui convient aux index immuables remplacés à chaque
+ * fusion, y compris lorsqu'un itérateur paresseux lit encore l'ancien index. Le ramasse-miettes ne voit que
+ * l'objet tampon, jamais son contenu. Un tampon est limité à 2 Go.
+ * <p>
+ * L'API est en aperçu en Java 21 : cette classe, et elle seule, nécessite {@code --enable-preview}.
+ */
+public final class OffHeapMemory {
+
+    private OffHeapMemory() {
+    }
+
+    /**
+     * @return un tampon de capacity octets hors du tas, initialisé à zéro
+     */
+    public static ByteBuffer allocateBytes(int capacity) {
+        MemorySegment segment = Arena.ofAuto().allocate(Math.max(capacity, 1), Long.BYTES);
+        return segment.asSlice(0, capacity).asByteBuffer().order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * @return un tampon de capacity entiers hors du tas, initialisé à zéro
+     */
+    public static IntBuffer allocateInts(int capacity) {
+        return allocateBytes(Math.multiplyExact(capacity, Integer.BYTES)).asIntBuffer();
+    }
+
+    /**
+     * @return une copie hors du tas des entiers de 0 à {@code ints.limit()}
+     */
+    public static IntBuffer copyOf(IntBuffer ints) {
+        return allocateInts(ints.limit()).put(0, ints, 0, ints.limit());
+    }
+
+    /**
+     * @return une copie hors du tas des octets de 0 à {@code bytes.limit()}, dans le même ordre d'octets
+     */
+    public static ByteBuffer copyOf(ByteBuffer bytes) {
+        return allocateBytes(bytes.limit()).put(0, bytes, 0, bytes.limit()).order(bytes.order());
+    }
+}
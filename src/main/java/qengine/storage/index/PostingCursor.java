@@ -0,0 +1,105 @@
+package qengine.storage.index;
+
+import java.nio.ByteBuffer;
+
+import static qengine.storage.index.PostingLists.BLOCK_SIZE;
+import static qengine.storage.index.PostingLists.SKIP_ENTRY_BYTES;
+
+/**
+ * Curseur sur une liste compressée par {@link PostingLists}, décodée au fil du parcours.
+ * {@link #advance(int)} cherche d'abord dans la table de saut le dernier bloc dont le premier identifiant
+ * ne dépasse pas la cible, puis ne décode que ce bloc. Un même curseur peut être replacé sur une autre
+ * liste ({@link #reset(ByteBuffer, int, int)}), ce qui évite une allocation par liste lors d'un parcours.
+ */
+final class PostingCursor implements IdCursor {
+
+    private ByteBuffer bytes;
+    private int skip;
+    private int data;
+    private int count;
+    private int blocks;
+    private int index;
+    private int position;
+    private int id;
+
+    PostingCursor(ByteBuffer bytes, int pointer, int count) {
+        reset(bytes, pointer, count);
+    }
+
+    /**
+     * Place le curseur avant le premier identifiant d'une liste.
+     *
+     * @param bytes   le tampon contenant la liste
+     * @param pointer la position du premier octet de la liste
+     * @param count   le nombre d'identifiants de la liste
+     */
+    void reset(ByteBuffer bytes, int pointer, int count) {
+        this.bytes = bytes;
+        this.count = count;
+        this.blocks = PostingLists.blocks(count);
+        this.skip = pointer;
+        this.data = blocks > 1 ? pointer + blocks * SKIP_ENTRY_BYTES : pointer;
+        this.position = data;
+        this.index = -1;
+        this.id = -1;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public int next() {
+        if (++index >= count) {
+            index = count;
+            return id = END;
+        }
+        int value = readVarint();
+        return id = (index & (BLOCK_SIZE - 1)) == 0 ? value : id + value;
+    }
+
+    @Override
+    public int advance(int target) {
+        int block = (index + 1) / BLOCK_SIZE;
+        if (block + 1 < blocks && blockFirst(block + 1) <= target) {
+            // Dernier bloc dont le premier identifiant ne dépasse pas la cible
+            int low = block + 1;
+            int high = blocks - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (blockFirst(middle) <= target) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            index = low * BLOCK_SIZE - 1;
+            position = data + bytes.getInt(skip + low * SKIP_ENTRY_BYTES + Integer.BYTES);
+        }
+        int current;
+        do {
+            current = next();
+        } while (current < target);
+        return current;
+    }
+
+    @Override
+    public int size() {
+        return Math.max(0, count - index - 1);
+    }
+
+    private int blockFirst(int block) {
+        return bytes.getInt(skip + block * SKIP_ENTRY_BYTES);
+    }
+
+    private int readVarint() {
+        int b = bytes.get(position++);
+        int value = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = bytes.get(position++);
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+}
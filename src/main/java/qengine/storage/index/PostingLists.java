@@ -0,0 +1,129 @@
+package qengine.storage.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Encodage compressé des listes triées d'identifiants qui forment les feuilles des index
+ * (les troisièmes clés d'un couple).
+ * <p>
+ * Une liste est découpée en blocs de {@link #BLOCK_SIZE} identifiants. Dans un bloc, le premier identifiant
+ * est écrit en entier, les suivants par leur écart au précédent ; chaque valeur est un entier de longueur
+ * variable (7 bits par octet, le bit de poids fort signalant un octet suivant), de sorte qu'un écart
+ * inférieur à 128 n'occupe qu'un octet. Une liste de plusieurs blocs commence par une table de saut :
+ * pour chaque bloc, son premier identifiant et la position de ses octets (deux entiers petit-boutistes),
+ * ce qui permet à {@link PostingCursor#advance(int)} de sauter les blocs sans les décoder.
+ * <p>
+ * Une liste de plus de {@link RoaringBitmap#ARRAY_MAX} identifiants, qui peut remplir au moins un conteneur
+ * bitmap, est écrite en {@link RoaringBitmap} ({@link #isBitmap(int)}) : ces longues listes, celles des
+ * couples (prédicat, objet) peu sélectifs, s'intersectent alors par ET logique mot à mot.
+ */
+final class PostingLists {
+
+    static final int BLOCK_SIZE = 128;
+
+    // Taille d'une entrée de la table de saut : premier identifiant et position du bloc
+    static final int SKIP_ENTRY_BYTES = 2 * Integer.BYTES;
+
+    private PostingLists() {
+    }
+
+    /**
+     * @return true si une liste de count identifiants est écrite en {@link RoaringBitmap}
+     */
+    static boolean isBitmap(int count) {
+        return count > RoaringBitmap.ARRAY_MAX;
+    }
+
+    /**
+     * @return un curseur sur la liste de count identifiants écrite à la position pointer
+     */
+    static IdCursor cursor(ByteBuffer bytes, int pointer, int count) {
+        return isBitmap(count)
+                ? new BitmapCursor(new RoaringBitmap(bytes, pointer))
+                : new PostingCursor(bytes, pointer, count);
+    }
+
+    /**
+     * @return le nombre de blocs d'une liste de count identifiants
+     */
+    static int blocks(int count) {
+        return (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Tampon extensible dans lequel les listes sont écrites les unes à la suite des autres.
+     */
+    static final class Writer {
+        private byte[] bytes = new byte[1024];
+        private int size;
+
+        /**
+         * Écrit une liste triée, sans doublons, et retourne sa position dans le tampon.
+         *
+         * @param ids  le tableau contenant la liste
+         * @param from la position du premier identifiant de la liste
+         * @param to   la position suivant le dernier identifiant de la liste
+         * @return la position du premier octet de la liste
+         */
+        int write(int[] ids, int from, int to) {
+            int start = size;
+            if (isBitmap(to - from)) {
+                ByteBuffer bitmap = RoaringBitmap.encode(ids, from, to);
+                reserve(bitmap.limit());
+                bitmap.get(0, bytes, size, bitmap.limit());
+                size += bitmap.limit();
+                return start;
+            }
+            int blocks = blocks(to - from);
+            int data = start;
+            if (blocks > 1) {
+                data += blocks * SKIP_ENTRY_BYTES;
+                reserve(data - start);
+                size = data;
+            }
+            for (int block = 0; block < blocks; block++) {
+                int first = from + block * BLOCK_SIZE;
+                int last = Math.min(first + BLOCK_SIZE, to);
+                if (blocks > 1) {
+                    putInt(start + block * SKIP_ENTRY_BYTES, ids[first]);
+                    putInt(start + block * SKIP_ENTRY_BYTES + Integer.BYTES, size - data);
+                }
+                putVarint(ids[first]);
+                for (int i = first + 1; i < last; i++) {
+                    putVarint(ids[i] - ids[i - 1]);
+                }
+            }
+            return start;
+        }
+
+        /**
+         * @return le contenu du tampon, en petit-boutiste
+         */
+        ByteBuffer toBuffer() {
+            return ByteBuffer.wrap(Arrays.copyOf(bytes, size)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private void putVarint(int value) {
+            reserve(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) (value | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void putInt(int position, int value) {
+            for (int k = 0; k < Integer.BYTES; k++) {
+                bytes[position + k] = (byte) (value >>> (8 * k));
+            }
+        }
+
+        private void reserve(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, size + length));
+            }
+        }
+    }
+}
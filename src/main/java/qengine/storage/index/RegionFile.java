@@ -0,0 +1,177 @@
+package qengine.storage.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fichier binaire formé d'une suite de régions (tableaux d'entiers ou d'octets), relu par projection
+ * en mémoire ({@link FileChannel#map}) : les régions relues sont des vues sur le fichier, sans copie ni
+ * désérialisation, et les pages ne sont chargées par le système qu'au premier accès.
+ * <p>
+ * Format : un entête (nombre magique, version), puis pour chaque région sa taille en octets sur 8 octets
+ * suivie de son contenu, complété pour que la région suivante reste alignée sur 8 octets. Tous les entiers
+ * sont en petit-boutiste. Un fichier est projeté d'un bloc et ne peut donc pas dépasser 2 Go.
+ */
+public final class RegionFile {
+
+    /**
+     * Version du format, à incrémenter à chaque changement incompatible.
+     */
+    public static final int VERSION = 4;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int ALIGNMENT = 8;
+
+    private RegionFile() {
+    }
+
+    /**
+     * Écriture séquentielle des régions d'un fichier.
+     */
+    public static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer staging = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+
+        /**
+         * Crée (ou remplace) le fichier et écrit son entête.
+         *
+         * @param file  le fichier à écrire
+         * @param magic le nombre magique identifiant le contenu du fichier
+         */
+        public Writer(Path file, int magic) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            staging.putInt(magic).putInt(VERSION);
+        }
+
+        /**
+         * Écrit une région d'entiers : les entiers de 0 à {@code ints.limit()}.
+         */
+        public void ints(IntBuffer ints) throws IOException {
+            int length = ints.limit();
+            startRegion((long) Integer.BYTES * length);
+            for (int i = 0; i < length; i++) {
+                reserve(Integer.BYTES);
+                staging.putInt(ints.get(i));
+            }
+            pad();
+        }
+
+        /**
+         * Écrit une région d'octets : les octets de 0 à {@code bytes.limit()}.
+         */
+        public void bytes(ByteBuffer bytes) throws IOException {
+            int length = bytes.limit();
+            startRegion(length);
+            for (int position = 0; position < length; ) {
+                reserve(1);
+                int chunk = Math.min(staging.remaining(), length - position);
+                staging.put(staging.position(), bytes, position, chunk);
+                staging.position(staging.position() + chunk);
+                position += chunk;
+            }
+            pad();
+        }
+
+        private void startRegion(long byteLength) throws IOException {
+            reserve(Long.BYTES);
+            staging.putLong(byteLength);
+        }
+
+        private void pad() throws IOException {
+            while (staging.position() % ALIGNMENT != 0) {
+                reserve(1);
+                staging.put((byte) 0);
+            }
+        }
+
+        private void reserve(int bytes) throws IOException {
+            if (staging.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            staging.flip();
+            while (staging.hasRemaining()) {
+                channel.write(staging);
+            }
+            staging.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Lecture des régions d'un fichier projeté en mémoire, dans l'ordre de leur écriture.
+     */
+    public static final class Reader {
+        private final ByteBuffer mapped;
+        private int position = HEADER_BYTES;
+
+        /**
+         * Projette le fichier en mémoire en lecture seule et vérifie son entête.
+         *
+         * @param file  le fichier à lire
+         * @param magic le nombre magique attendu
+         * @throws IOException si le fichier ne peut pas être projeté ou n'a pas le format attendu
+         */
+        public Reader(Path file, int magic) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Fichier trop volumineux pour être projeté : " + file);
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                mapped = buffer.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            if (mapped.limit() < HEADER_BYTES || mapped.getInt(0) != magic) {
+                throw new IOException("Fichier invalide : " + file);
+            }
+            if (mapped.getInt(Integer.BYTES) != VERSION) {
+                throw new IOException("Version de format non supportée (" + mapped.getInt(Integer.BYTES) + ") : " + file);
+            }
+        }
+
+        /**
+         * @return une vue en lecture seule sur la région d'entiers suivante
+         */
+        public IntBuffer ints() throws IOException {
+            return nextRegion().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+
+        /**
+         * @return une vue en lecture seule sur la région d'octets suivante
+         */
+        public ByteBuffer bytes() throws IOException {
+            return nextRegion();
+        }
+
+        private ByteBuffer nextRegion() throws IOException {
+            if (position + Long.BYTES > mapped.limit()) {
+                throw new IOException("Fichier tronqué : région manquante à la position " + position);
+            }
+            long length = mapped.getLong(position);
+            int start = position + Long.BYTES;
+            if (length < 0 || start + length > mapped.limit()) {
+                throw new IOException("Fichier tronqué : région de " + length + " octets à la position " + start);
+            }
+            position = (int) ((start + length + ALIGNMENT - 1) & -ALIGNMENT);
+            return mapped.slice(start, (int) length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
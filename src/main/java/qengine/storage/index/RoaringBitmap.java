@@ -0,0 +1,318 @@
+package qengine.storage.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Ensemble d'identifiants compressé par conteneurs, sur le modèle des bitmaps « Roaring », pour les très
+ * longues feuilles d'index (par exemple les sujets d'un couple (rdf:type, classe) dans l'index POS).
+ * <p>
+ * Les identifiants sont répartis en conteneurs selon leurs 16 bits de poids fort. Un conteneur d'au plus
+ * {@link #ARRAY_MAX} identifiants est un tableau trié de leurs 16 bits de poids faible ; au-delà, c'est un
+ * bitmap de 2<sup>16</sup> bits ({@link #BITMAP_WORDS} mots de 64 bits), qui occupe alors moins de place.
+ * L'intersection de deux ensembles ({@link #and(RoaringBitmap, RoaringBitmap)}) procède conteneur par
+ * conteneur, par ET logique mot à mot entre deux bitmaps.
+ * <p>
+ * Format, en petit-boutiste à partir de la position de l'ensemble : le nombre de conteneurs, puis pour chaque
+ * conteneur sa clé (les 16 bits de poids fort), son nombre d'identifiants et la position de son contenu
+ * relative au début de l'ensemble, puis le contenu des conteneurs.
+ */
+final class RoaringBitmap {
+
+    static final int ARRAY_MAX = 4096;
+    static final int BITMAP_WORDS = 1 << 10;
+
+    private static final int ENTRY_BYTES = 3 * Integer.BYTES;
+
+    private final ByteBuffer bytes;
+    private final int pointer;
+
+    /**
+     * @param bytes   le tampon contenant l'ensemble, en petit-boutiste, lu uniquement par accès absolu
+     * @param pointer la position du premier octet de l'ensemble
+     */
+    RoaringBitmap(ByteBuffer bytes, int pointer) {
+        this.bytes = bytes;
+        this.pointer = pointer;
+    }
+
+    /**
+     * @return le nombre de conteneurs
+     */
+    int containers() {
+        return bytes.getInt(pointer);
+    }
+
+    /**
+     * @return les 16 bits de poids fort des identifiants du conteneur i
+     */
+    int key(int i) {
+        return bytes.getInt(pointer + Integer.BYTES + i * ENTRY_BYTES);
+    }
+
+    /**
+     * @return le nombre d'identifiants du conteneur i
+     */
+    int cardinality(int i) {
+        return bytes.getInt(pointer + 2 * Integer.BYTES + i * ENTRY_BYTES);
+    }
+
+    /**
+     * @return le nombre total d'identifiants
+     */
+    int cardinality() {
+        int total = 0;
+        for (int i = 0; i < containers(); i++) {
+            total += cardinality(i);
+        }
+        return total;
+    }
+
+    /**
+     * @return true si le conteneur i est un bitmap, false s'il est un tableau
+     */
+    boolean isBitmap(int i) {
+        return cardinality(i) > ARRAY_MAX;
+    }
+
+    /**
+     * @return les 16 bits de poids faible du k-ième identifiant du conteneur tableau i
+     */
+    int arrayValue(int i, int k) {
+        return bytes.getShort(content(i) + k * Short.BYTES) & 0xFFFF;
+    }
+
+    /**
+     * @return le mot w du conteneur bitmap i
+     */
+    long word(int i, int w) {
+        return bytes.getLong(content(i) + w * Long.BYTES);
+    }
+
+    private int content(int i) {
+        return pointer + bytes.getInt(pointer + 3 * Integer.BYTES + i * ENTRY_BYTES);
+    }
+
+    /**
+     * Encode une liste triée, sans doublons.
+     *
+     * @param ids  le tableau contenant la liste
+     * @param from la position du premier identifiant de la liste
+     * @param to   la position suivant le dernier identifiant de la liste
+     * @return l'ensemble encodé, en petit-boutiste
+     */
+    static ByteBuffer encode(int[] ids, int from, int to) {
+        int containers = 0;
+        int size = Integer.BYTES;
+        for (int start = from; start < to; ) {
+            int end = containerEnd(ids, start, to);
+            containers++;
+            size += ENTRY_BYTES + contentBytes(end - start);
+            start = end;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, containers);
+        int content = Integer.BYTES + containers * ENTRY_BYTES;
+        int i = 0;
+        for (int start = from; start < to; i++) {
+            int end = containerEnd(ids, start, to);
+            putEntry(buffer, i, ids[start] >>> 16, end - start, content);
+            if (end - start > ARRAY_MAX) {
+                for (int k = start; k < end; k++) {
+                    int low = ids[k] & 0xFFFF;
+                    int position = content + (low >>> 6) * Long.BYTES;
+                    buffer.putLong(position, buffer.getLong(position) | 1L << low);
+                }
+            } else {
+                for (int k = start; k < end; k++) {
+                    buffer.putShort(content + (k - start) * Short.BYTES, (short) ids[k]);
+                }
+            }
+            content += contentBytes(end - start);
+            start = end;
+        }
+        return buffer;
+    }
+
+    /**
+     * Intersection de deux ensembles. Seuls les conteneurs de même clé sont comparés : deux bitmaps par ET
+     * mot à mot, un tableau et un bitmap par test de chaque valeur du tableau, deux tableaux par fusion.
+     *
+     * @return un nouvel ensemble, sur le tas
+     */
+    static RoaringBitmap and(RoaringBitmap left, RoaringBitmap right) {
+        int[] keys = new int[Math.min(left.containers(), right.containers())];
+        long[][] bitmaps = new long[keys.length][];
+        short[][] arrays = new short[keys.length][];
+        int[] cardinalities = new int[keys.length];
+        int count = 0;
+        for (int i = 0, j = 0; i < left.containers() && j < right.containers(); ) {
+            int cmp = Integer.compare(left.key(i), right.key(j));
+            if (cmp < 0) {
+                i++;
+            } else if (cmp > 0) {
+                j++;
+            } else {
+                if (left.isBitmap(i) && right.isBitmap(j)) {
+                    long[] words = new long[BITMAP_WORDS];
+                    int cardinality = 0;
+                    for (int w = 0; w < BITMAP_WORDS; w++) {
+                        words[w] = left.word(i, w) & right.word(j, w);
+                        cardinality += Long.bitCount(words[w]);
+                    }
+                    if (cardinality > ARRAY_MAX) {
+                        bitmaps[count] = words;
+                    } else {
+                        arrays[count] = toArray(words, cardinality);
+                    }
+                    cardinalities[count] = cardinality;
+                } else {
+                    arrays[count] = left.isBitmap(i) ? filter(right, j, left, i) : filter(left, i, right, j);
+                    cardinalities[count] = arrays[count].length;
+                }
+                if (cardinalities[count] > 0) {
+                    keys[count++] = left.key(i);
+                }
+                i++;
+                j++;
+            }
+        }
+
+        int size = Integer.BYTES + count * ENTRY_BYTES;
+        for (int i = 0; i < count; i++) {
+            size += contentBytes(cardinalities[i]);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, count);
+        int content = Integer.BYTES + count * ENTRY_BYTES;
+        for (int i = 0; i < count; i++) {
+            putEntry(buffer, i, keys[i], cardinalities[i], content);
+            if (bitmaps[i] != null) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    buffer.putLong(content + w * Long.BYTES, bitmaps[i][w]);
+                }
+            } else {
+                for (int k = 0; k < arrays[i].length; k++) {
+                    buffer.putShort(content + k * Short.BYTES, arrays[i][k]);
+                }
+            }
+            content += contentBytes(cardinalities[i]);
+        }
+        return new RoaringBitmap(buffer, 0);
+    }
+
+    /**
+     * Taille de l'intersection de deux ensembles, comptée conteneur par conteneur comme dans
+     * {@link #and(RoaringBitmap, RoaringBitmap)} mais sans la construire.
+     *
+     * @param limit le compte au-delà duquel les conteneurs suivants ne sont pas examinés
+     * @return la taille de l'intersection, ou le compte des premiers conteneurs s'il atteint limit
+     */
+    static long andCardinality(RoaringBitmap left, RoaringBitmap right, long limit) {
+        long count = 0;
+        for (int i = 0, j = 0; i < left.containers() && j < right.containers() && count < limit; ) {
+            int cmp = Integer.compare(left.key(i), right.key(j));
+            if (cmp < 0) {
+                i++;
+            } else if (cmp > 0) {
+                j++;
+            } else {
+                if (left.isBitmap(i) && right.isBitmap(j)) {
+                    for (int w = 0; w < BITMAP_WORDS; w++) {
+                        count += Long.bitCount(left.word(i, w) & right.word(j, w));
+                    }
+                } else if (left.isBitmap(i) || right.isBitmap(j)) {
+                    RoaringBitmap array = left.isBitmap(i) ? right : left;
+                    RoaringBitmap bitmap = left.isBitmap(i) ? left : right;
+                    int a = left.isBitmap(i) ? j : i;
+                    int b = left.isBitmap(i) ? i : j;
+                    for (int k = 0; k < array.cardinality(a); k++) {
+                        int low = array.arrayValue(a, k);
+                        count += bitmap.word(b, low >>> 6) >>> low & 1;
+                    }
+                } else {
+                    for (int k = 0, l = 0; k < left.cardinality(i) && l < right.cardinality(j); ) {
+                        int order = Integer.compare(left.arrayValue(i, k), right.arrayValue(j, l));
+                        if (order == 0) {
+                            count++;
+                        }
+                        if (order <= 0) {
+                            k++;
+                        }
+                        if (order >= 0) {
+                            l++;
+                        }
+                    }
+                }
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return les valeurs du conteneur tableau i de array présentes dans le conteneur j de other
+     */
+    private static short[] filter(RoaringBitmap array, int i, RoaringBitmap other, int j) {
+        short[] values = new short[Math.min(array.cardinality(i), other.cardinality(j))];
+        int count = 0;
+        if (other.isBitmap(j)) {
+            for (int k = 0; k < array.cardinality(i); k++) {
+                int low = array.arrayValue(i, k);
+                if ((other.word(j, low >>> 6) & 1L << low) != 0) {
+                    values[count++] = (short) low;
+                }
+            }
+        } else {
+            for (int k = 0, l = 0; k < array.cardinality(i) && l < other.cardinality(j); ) {
+                int cmp = Integer.compare(array.arrayValue(i, k), other.arrayValue(j, l));
+                if (cmp == 0) {
+                    values[count++] = (short) array.arrayValue(i, k);
+                }
+                if (cmp <= 0) {
+                    k++;
+                }
+                if (cmp >= 0) {
+                    l++;
+                }
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    private static short[] toArray(long[] words, int cardinality) {
+        short[] values = new short[cardinality];
+        int count = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                values[count++] = (short) (w << 6 | Long.numberOfTrailingZeros(word));
+            }
+        }
+        return values;
+    }
+
+    private static void putEntry(ByteBuffer buffer, int i, int key, int cardinality, int content) {
+        int entry = Integer.BYTES + i * ENTRY_BYTES;
+        buffer.putInt(entry, key);
+        buffer.putInt(entry + Integer.BYTES, cardinality);
+        buffer.putInt(entry + 2 * Integer.BYTES, content);
+    }
+
+    /**
+     * @return la position suivant le dernier identifiant du conteneur qui commence à start
+     */
+    private static int containerEnd(int[] ids, int start, int to) {
+        int key = ids[start] >>> 16;
+        int end = start + 1;
+        while (end < to && ids[end] >>> 16 == key) {
+            end++;
+        }
+        return end;
+    }
+
+    private static int contentBytes(int cardinality) {
+        return cardinality > ARRAY_MAX ? BITMAP_WORDS * Long.BYTES : cardinality * Short.BYTES;
+    }
+}
@@ -0,0 +1,120 @@
+package qengine.storage.index;
+
+/**
+ * Intersection de deux listes triées d'identifiants, sans doublons, matérialisées dans des tableaux.
+ * <p>
+ * Lorsque les deux listes ont des tailles comparables, tous leurs identifiants doivent être comparés :
+ * l'intersection est alors calculée par le noyau vectoriel ({@link VectorIntersection}) si le module
+ * {@code jdk.incubator.vector} est présent, par fusion scalaire sinon. Lorsque l'une des listes est plus de
+ * {@link #SKEW} fois plus longue que l'autre, chaque identifiant de la plus courte est cherché dans la plus
+ * longue par recherche exponentielle (« galloping »), sans parcourir cette dernière.
+ */
+public final class SortedIntersection {
+
+    /**
+     * Rapport de tailles au-delà duquel l'intersection procède par recherche exponentielle.
+     */
+    public static final int SKEW = 32;
+
+    private static final boolean VECTOR = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private SortedIntersection() {
+    }
+
+    /**
+     * @return true si le noyau vectoriel est disponible
+     */
+    public static boolean isVectorized() {
+        return VECTOR;
+    }
+
+    /**
+     * @return la taille minimale du tableau de sortie de {@link #intersect(int[], int, int[], int, int[])}
+     */
+    public static int outputLength(int leftLength, int rightLength) {
+        return Math.min(leftLength, rightLength) + (VECTOR ? VectorIntersection.padding() : 0);
+    }
+
+    /**
+     * Intersection de deux listes triées sans doublons, par la méthode la plus adaptée à leurs tailles.
+     *
+     * @param left        la première liste, dans les leftLength premières cases
+     * @param leftLength  la taille de la première liste
+     * @param right       la seconde liste, dans les rightLength premières cases
+     * @param rightLength la taille de la seconde liste
+     * @param out         le tableau qui reçoit l'intersection, d'au moins
+     *                    {@link #outputLength(int, int)} cases
+     * @return le nombre d'identifiants communs, écrits par ordre croissant en tête de out
+     */
+    public static int intersect(int[] left, int leftLength, int[] right, int rightLength, int[] out) {
+        if (leftLength > SKEW * rightLength) {
+            return gallop(right, rightLength, left, leftLength, out);
+        }
+        if (rightLength > SKEW * leftLength) {
+            return gallop(left, leftLength, right, rightLength, out);
+        }
+        return VECTOR
+                ? VectorIntersection.intersect(left, leftLength, right, rightLength, out)
+                : merge(left, 0, leftLength, right, 0, rightLength, out, 0);
+    }
+
+    /**
+     * Intersection par fusion scalaire, quelle que soit la taille des listes.
+     */
+    public static int scalar(int[] left, int leftLength, int[] right, int rightLength, int[] out) {
+        return merge(left, 0, leftLength, right, 0, rightLength, out, 0);
+    }
+
+    /**
+     * Intersection par recherche exponentielle de chaque identifiant de la plus courte liste dans la plus longue.
+     */
+    public static int gallop(int[] shorter, int shorterLength, int[] longer, int longerLength, int[] out) {
+        int count = 0;
+        int low = 0;
+        for (int i = 0; i < shorterLength && low < longerLength; i++) {
+            int target = shorter[i];
+            int bound = 1;
+            while (low + bound - 1 < longerLength && longer[low + bound - 1] < target) {
+                low += bound;
+                bound <<= 1;
+            }
+            int high = Math.min(low + bound, longerLength);
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (longer[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            if (low < longerLength && longer[low] == target) {
+                out[count++] = target;
+                low++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Fusion scalaire de left[i..leftLength) et right[j..rightLength), à la suite des count premiers
+     * identifiants de out.
+     *
+     * @return le nombre total d'identifiants de out
+     */
+    static int merge(int[] left, int i, int leftLength, int[] right, int j, int rightLength, int[] out, int count) {
+        while (i < leftLength && j < rightLength) {
+            int a = left[i];
+            int b = right[j];
+            if (a == b) {
+                out[count++] = a;
+            }
+            if (a <= b) {
+                i++;
+            }
+            if (b <= a) {
+                j++;
+            }
+        }
+        return count;
+    }
+}
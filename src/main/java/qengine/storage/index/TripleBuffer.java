@@ -0,0 +1,112 @@
+package qengine.storage.index;
+
+import java.util.Arrays;
+
+/**
+ * Ensemble de triplets encodés en attente d'indexation.
+ * Les triplets sont rangés par groupes de trois entiers dans un tableau, dans l'ordre d'ajout,
+ * et une table de hachage à adressage ouvert sur leurs positions permet de détecter les doublons
+ * sans créer d'objet par triplet.
+ */
+public final class TripleBuffer {
+
+    // Case libre de la table ; les cases occupées contiennent la position du triplet + 1
+    private static final int FREE = 0;
+
+    private int[] triples = new int[3 * 8];
+    private int[] table = new int[16];
+    private int size;
+
+    /**
+     * Ajoute le triplet (s, p, o) s'il n'est pas déjà dans le tampon.
+     *
+     * @return true si le triplet a été ajouté
+     */
+    public boolean add(int s, int p, int o) {
+        int slot = slotOf(s, p, o);
+        while (table[slot] != FREE) {
+            if (matches(table[slot] - 1, s, p, o)) {
+                return false;
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+        if (3 * size == triples.length) {
+            triples = Arrays.copyOf(triples, 2 * triples.length);
+        }
+        triples[3 * size] = s;
+        triples[3 * size + 1] = p;
+        triples[3 * size + 2] = o;
+        table[slot] = ++size;
+        if (2 * size > table.length) {
+            rehash();
+        }
+        return true;
+    }
+
+    /**
+     * @return true si le triplet (s, p, o) est dans le tampon
+     */
+    public boolean contains(int s, int p, int o) {
+        int slot = slotOf(s, p, o);
+        while (table[slot] != FREE) {
+            if (matches(table[slot] - 1, s, p, o)) {
+                return true;
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+        return false;
+    }
+
+    /**
+     * @return le nombre de triplets du tampon
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true si le tampon est vide
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return une copie des triplets (s, p, o) du tampon, trois entiers par triplet, dans l'ordre d'ajout
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(triples, 3 * size);
+    }
+
+    /**
+     * Vide le tampon et libère la place qu'il occupait.
+     */
+    public void clear() {
+        triples = new int[3 * 8];
+        table = new int[16];
+        size = 0;
+    }
+
+    private boolean matches(int position, int s, int p, int o) {
+        int k = 3 * position;
+        return triples[k] == s && triples[k + 1] == p && triples[k + 2] == o;
+    }
+
+    private int slotOf(int s, int p, int o) {
+        int h = (s * 31 + p) * 31 + o;
+        h *= 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (table.length - 1);
+    }
+
+    private void rehash() {
+        table = new int[2 * table.length];
+        for (int position = 0; position < size; position++) {
+            int k = 3 * position;
+            int slot = slotOf(triples[k], triples[k + 1], triples[k + 2]);
+            while (table[slot] != FREE) {
+                slot = (slot + 1) & (table.length - 1);
+            }
+            table[slot] = position + 1;
+        }
+    }
+}
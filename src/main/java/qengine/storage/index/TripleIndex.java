@@ -0,0 +1,497 @@
+package qengine.storage.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.function.IntConsumer;
+
+/**
+ * Un des six index de l'HexaStore, pour un ordre donné des positions (par exemple SPO).
+ * <p>
+ * L'index est stocké au format CSR (« compressed sparse row ») dans quatre tableaux d'entiers et un tableau
+ * d'octets, sans aucun objet par clé ni par triplet :
+ * <ul>
+ *     <li>{@code firstOffsets[a] .. firstOffsets[a + 1]} : l'intervalle des couples (a, b) dans {@code secondKeys},
+ *     indexé directement par l'identifiant a ;</li>
+ *     <li>{@code secondKeys[j]} : la deuxième clé b du couple j, triée pour une même première clé ;</li>
+ *     <li>{@code secondOffsets[j] .. secondOffsets[j + 1]} : les rangs des troisièmes clés du couple j, dont la
+ *     différence donne leur nombre sans décodage ;</li>
+ *     <li>{@code leafPointers[j]} : la position dans {@code leaves} de la liste des troisièmes clés du couple j,
+ *     triée et compressée par {@link PostingLists} (écarts de longueur variable, blocs et table de saut, ou
+ *     {@link RoaringBitmap} pour les plus longues) ; lorsque le couple n'a qu'une troisième clé, cas le plus
+ *     fréquent, c'est cette clé elle-même.</li>
+ * </ul>
+ * Un index est immuable : les ajouts produisent un nouvel index par fusion ({@link #merge(int[], int)}).
+ * <p>
+ * Les tableaux sont manipulés au travers d'{@link IntBuffer} : un index construit en mémoire enveloppe des
+ * tableaux du tas, un index relu par {@link #read(RegionFile.Reader)} lit directement les régions d'un fichier
+ * projeté en mémoire, un index copié par {@link #offHeap()} lit de la mémoire hors du tas, et les requêtes
+ * s'exécutent de la même façon dans tous les cas.
+ */
+public final class TripleIndex {
+
+    // Les tampons ne sont lus que par accès absolu : ils peuvent être partagés entre index
+    private static final IntBuffer NO_FIRST = IntBuffer.wrap(new int[]{0});
+    private static final IntBuffer NO_SECOND = IntBuffer.wrap(new int[]{0});
+    private static final IntBuffer NO_IDS = IntBuffer.wrap(new int[0]);
+    private static final ByteBuffer NO_LEAVES = ByteBuffer.wrap(new byte[0]).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final IntBuffer firstOffsets;
+    private final IntBuffer secondKeys;
+    private final IntBuffer secondOffsets;
+    private final IntBuffer leafPointers;
+    private final ByteBuffer leaves;
+
+    private TripleIndex(IntBuffer firstOffsets, IntBuffer secondKeys, IntBuffer secondOffsets,
+                        IntBuffer leafPointers, ByteBuffer leaves) {
+        this.firstOffsets = firstOffsets;
+        this.secondKeys = secondKeys;
+        this.secondOffsets = secondOffsets;
+        this.leafPointers = leafPointers;
+        this.leaves = leaves;
+    }
+
+    /**
+     * @return un index vide
+     */
+    public static TripleIndex empty() {
+        return new TripleIndex(NO_FIRST, NO_IDS, NO_SECOND, NO_IDS, NO_LEAVES);
+    }
+
+    /**
+     * Construit un index en une passe à partir de triplets déjà triés et sans doublons.
+     *
+     * @param triples les triplets (a, b, c) dans l'ordre de l'index, trois entiers par triplet
+     * @param count   le nombre de triplets
+     * @return l'index correspondant
+     */
+    public static TripleIndex fromSorted(int[] triples, int count) {
+        if (count == 0) {
+            return empty();
+        }
+        int maxFirst = triples[3 * (count - 1)];
+        int pairs = 0;
+        for (int i = 0; i < count; i++) {
+            int k = 3 * i;
+            if (i == 0 || triples[k] != triples[k - 3] || triples[k + 1] != triples[k - 2]) {
+                pairs++;
+            }
+        }
+
+        int[] firstOffsets = new int[maxFirst + 2];
+        int[] secondKeys = new int[pairs];
+        int[] secondOffsets = new int[pairs + 1];
+        int[] leafPointers = new int[pairs];
+        int[] thirds = new int[count];
+
+        int j = -1;
+        for (int i = 0; i < count; i++) {
+            int k = 3 * i;
+            int a = triples[k];
+            if (i == 0 || a != triples[k - 3] || triples[k + 1] != triples[k - 2]) {
+                j++;
+                secondKeys[j] = triples[k + 1];
+                secondOffsets[j] = i;
+                firstOffsets[a + 1] = j + 1;
+            }
+            thirds[i] = triples[k + 2];
+        }
+        secondOffsets[pairs] = count;
+        PostingLists.Writer leaves = new PostingLists.Writer();
+        for (j = 0; j < pairs; j++) {
+            leafPointers[j] = secondOffsets[j + 1] - secondOffsets[j] == 1
+                    ? thirds[secondOffsets[j]]
+                    : leaves.write(thirds, secondOffsets[j], secondOffsets[j + 1]);
+        }
+        // Les premières clés absentes reprennent la borne de la clé précédente
+        for (int a = 1; a < firstOffsets.length; a++) {
+            firstOffsets[a] = Math.max(firstOffsets[a], firstOffsets[a - 1]);
+        }
+        return new TripleIndex(IntBuffer.wrap(firstOffsets), IntBuffer.wrap(secondKeys),
+                IntBuffer.wrap(secondOffsets), IntBuffer.wrap(leafPointers), leaves.toBuffer());
+    }
+
+    /**
+     * Retourne un nouvel index contenant les triplets de cet index et les triplets fournis.
+     *
+     * @param triples des triplets (a, b, c) dans l'ordre de l'index, triés et sans doublons
+     * @param count   le nombre de triplets fournis
+     * @return l'index fusionné
+     */
+    public TripleIndex merge(int[] triples, int count) {
+        if (count == 0) {
+            return this;
+        }
+        if (size() == 0) {
+            return fromSorted(triples, count);
+        }
+        int[] merged = new int[3 * (size() + count)];
+        int n = 0;
+        int i = 0;
+        int[] current = new int[3];
+        Scan scan = scan();
+        boolean hasCurrent = scan.next(current);
+        while (hasCurrent || i < count) {
+            int cmp = !hasCurrent ? 1 : i == count ? -1 : compare(current, triples, 3 * i);
+            int source;
+            int[] array;
+            if (cmp <= 0) {
+                array = current;
+                source = 0;
+            } else {
+                array = triples;
+                source = 3 * i;
+            }
+            merged[3 * n] = array[source];
+            merged[3 * n + 1] = array[source + 1];
+            merged[3 * n + 2] = array[source + 2];
+            n++;
+            if (cmp <= 0) {
+                hasCurrent = scan.next(current);
+            }
+            if (cmp >= 0) {
+                i++;
+            }
+        }
+        return fromSorted(merged, n);
+    }
+
+    /**
+     * @return les triplets de l'index, dans l'ordre de l'index, trois entiers par triplet
+     */
+    public int[] toArray() {
+        int[] triples = new int[3 * size()];
+        int[] current = new int[3];
+        Scan scan = scan();
+        for (int k = 0; scan.next(current); k += 3) {
+            System.arraycopy(current, 0, triples, k, 3);
+        }
+        return triples;
+    }
+
+    /**
+     * @return une copie de l'index dont les tableaux sont alloués hors du tas ({@link OffHeapMemory})
+     */
+    public TripleIndex offHeap() {
+        return new TripleIndex(OffHeapMemory.copyOf(firstOffsets), OffHeapMemory.copyOf(secondKeys),
+                OffHeapMemory.copyOf(secondOffsets), OffHeapMemory.copyOf(leafPointers), OffHeapMemory.copyOf(leaves));
+    }
+
+    /**
+     * Relit un index écrit par {@link #write(RegionFile.Writer)}, sans copie : l'index lit directement
+     * les régions du fichier projeté.
+     *
+     * @param reader le fichier, positionné sur la première région de l'index
+     * @return l'index relu
+     */
+    public static TripleIndex read(RegionFile.Reader reader) throws IOException {
+        IntBuffer firstOffsets = reader.ints();
+        IntBuffer secondKeys = reader.ints();
+        IntBuffer secondOffsets = reader.ints();
+        IntBuffer leafPointers = reader.ints();
+        ByteBuffer leaves = reader.bytes();
+        if (firstOffsets.limit() == 0 || secondOffsets.limit() != secondKeys.limit() + 1
+                || leafPointers.limit() != secondKeys.limit()) {
+            throw new IOException("Index invalide");
+        }
+        return new TripleIndex(firstOffsets, secondKeys, secondOffsets, leafPointers, leaves);
+    }
+
+    /**
+     * Écrit les tableaux de l'index, chacun dans une région du fichier.
+     */
+    public void write(RegionFile.Writer writer) throws IOException {
+        writer.ints(firstOffsets);
+        writer.ints(secondKeys);
+        writer.ints(secondOffsets);
+        writer.ints(leafPointers);
+        writer.bytes(leaves);
+    }
+
+    /**
+     * @return le nombre de triplets de l'index
+     */
+    public int size() {
+        return secondOffsets.get(secondOffsets.limit() - 1);
+    }
+
+    /**
+     * @return true si le triplet (a, b, c) est présent
+     */
+    public boolean contains(int a, int b, int c) {
+        int j = find(a, b);
+        return j >= 0 && c >= 0 && leaf(j).advance(c) == c;
+    }
+
+    /**
+     * @return la position du couple (a, b) parmi les couples de l'index, ou -1 s'il est absent
+     */
+    public int find(int a, int b) {
+        if (a < 0 || a >= firstOffsets.limit() - 1) {
+            return -1;
+        }
+        int j = ArrayIdCursor.binarySearch(secondKeys, firstOffsets.get(a), firstOffsets.get(a + 1), b);
+        return j >= 0 ? j : -1;
+    }
+
+    /**
+     * @return la position du premier couple de première clé a
+     */
+    public int firstStart(int a) {
+        return a < 0 || a >= firstOffsets.limit() - 1 ? 0 : firstOffsets.get(a);
+    }
+
+    /**
+     * @return la position suivant le dernier couple de première clé a
+     */
+    public int firstEnd(int a) {
+        return a < 0 || a >= firstOffsets.limit() - 1 ? 0 : firstOffsets.get(a + 1);
+    }
+
+    /**
+     * @return la deuxième clé du couple j
+     */
+    public int secondKey(int j) {
+        return secondKeys.get(j);
+    }
+
+    /**
+     * @return le nombre de deuxièmes clés distinctes associées à la première clé a
+     */
+    public int degree(int a) {
+        return firstEnd(a) - firstStart(a);
+    }
+
+    /**
+     * @return le nombre de triplets de première clé a, lu sur les bornes de l'index
+     */
+    public int count(int a) {
+        return secondOffsets.get(firstEnd(a)) - secondOffsets.get(firstStart(a));
+    }
+
+    /**
+     * @return le nombre de triplets du couple (a, b)
+     */
+    public int count(int a, int b) {
+        int j = find(a, b);
+        return j < 0 ? 0 : secondOffsets.get(j + 1) - secondOffsets.get(j);
+    }
+
+    /**
+     * @return la position de la première troisième clé du couple j
+     */
+    public int leafStart(int j) {
+        return secondOffsets.get(j);
+    }
+
+    /**
+     * @return la position suivant la dernière troisième clé du couple j
+     */
+    public int leafEnd(int j) {
+        return secondOffsets.get(j + 1);
+    }
+
+    /**
+     * @return un curseur sur les premières clés présentes dans l'index
+     */
+    public IdCursor firstCursor() {
+        int[] firsts = new int[firstOffsets.limit() - 1];
+        int count = 0;
+        for (int a = 0; a < firstOffsets.limit() - 1; a++) {
+            if (firstOffsets.get(a) < firstOffsets.get(a + 1)) {
+                firsts[count++] = a;
+            }
+        }
+        return new ArrayIdCursor(firsts, 0, count);
+    }
+
+    /**
+     * @return un curseur sur les deuxièmes clés associées à la première clé a
+     */
+    public IdCursor secondCursor(int a) {
+        return new ArrayIdCursor(secondKeys, firstStart(a), firstEnd(a));
+    }
+
+    /**
+     * @return un curseur sur les troisièmes clés du couple (a, b)
+     */
+    public IdCursor thirdCursor(int a, int b) {
+        int j = find(a, b);
+        return j < 0 ? ArrayIdCursor.empty() : leaf(j);
+    }
+
+    /**
+     * @return un curseur sur les troisièmes clés du couple j
+     */
+    private IdCursor leaf(int j) {
+        int count = secondOffsets.get(j + 1) - secondOffsets.get(j);
+        return count == 1 ? new ArrayIdCursor(leafPointers, j, j + 1) : PostingLists.cursor(leaves, leafPointers.get(j), count);
+    }
+
+    /**
+     * Applique une action à chaque troisième clé du couple (a, b), dans l'ordre croissant.
+     */
+    public void forEachThird(int a, int b, IntConsumer action) {
+        int j = find(a, b);
+        if (j >= 0) {
+            IdCursor leaf = leaf(j);
+            for (int c = leaf.next(); c != IdCursor.END; c = leaf.next()) {
+                action.accept(c);
+            }
+        }
+    }
+
+    /**
+     * Applique une action à chaque triplet de l'index dont la première clé est a.
+     */
+    public void forEach(int a, TripleConsumer action) {
+        for (int j = firstStart(a); j < firstEnd(a); j++) {
+            int b = secondKeys.get(j);
+            IdCursor leaf = leaf(j);
+            for (int c = leaf.next(); c != IdCursor.END; c = leaf.next()) {
+                action.accept(a, b, c);
+            }
+        }
+    }
+
+    /**
+     * Applique une action à chaque triplet de l'index, dans l'ordre de l'index.
+     */
+    public void forEach(TripleConsumer action) {
+        for (int a = 0; a < firstOffsets.limit() - 1; a++) {
+            forEach(a, action);
+        }
+    }
+
+    /**
+     * @return une estimation en octets de la place occupée par l'index
+     */
+    public long estimateBytes() {
+        return MemoryEstimates.object(5 * MemoryEstimates.REFERENCE)
+                + MemoryEstimates.intArray(firstOffsets.limit()) + MemoryEstimates.intArray(secondKeys.limit())
+                + MemoryEstimates.intArray(secondOffsets.limit()) + MemoryEstimates.intArray(leafPointers.limit())
+                + MemoryEstimates.byteArray(leaves.limit());
+    }
+
+    private static int compare(int[] left, int[] right, int offset) {
+        for (int k = 0; k < 3; k++) {
+            int cmp = Integer.compare(left[k], right[offset + k]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Parcours paresseux des triplets de l'index, dans l'ordre de l'index, sans allocation par triplet.
+     */
+    public final class Scan implements TripleScan {
+        private int a;
+        private int j;
+        private int i;
+        private final int end;
+        private int third;
+        // Troisièmes clés du couple j, décodées au fil du parcours lorsqu'il en a plusieurs
+        private IdCursor leaf;
+        private PostingCursor postings;
+        private int leafPair = -1;
+
+        private Scan(int a, int j, int start, int end) {
+            this.a = a;
+            this.j = j;
+            this.i = start - 1;
+            this.end = end;
+        }
+
+        @Override
+        public boolean next() {
+            if (++i >= end) {
+                i = end;
+                return false;
+            }
+            while (i >= secondOffsets.get(j + 1)) {
+                j++;
+            }
+            while (j >= firstOffsets.get(a + 1)) {
+                a++;
+            }
+            int count = secondOffsets.get(j + 1) - secondOffsets.get(j);
+            if (count == 1) {
+                third = leafPointers.get(j);
+                return true;
+            }
+            if (j != leafPair) {
+                if (PostingLists.isBitmap(count)) {
+                    leaf = PostingLists.cursor(leaves, leafPointers.get(j), count);
+                } else if (postings == null) {
+                    leaf = postings = new PostingCursor(leaves, leafPointers.get(j), count);
+                } else {
+                    postings.reset(leaves, leafPointers.get(j), count);
+                    leaf = postings;
+                }
+                leafPair = j;
+            }
+            third = leaf.next();
+            return true;
+        }
+
+        boolean next(int[] triple) {
+            if (!next()) {
+                return false;
+            }
+            triple[0] = a;
+            triple[1] = secondKeys.get(j);
+            triple[2] = third;
+            return true;
+        }
+
+        @Override
+        public int first() {
+            return a;
+        }
+
+        @Override
+        public int second() {
+            return secondKeys.get(j);
+        }
+
+        @Override
+        public int third() {
+            return third;
+        }
+    }
+
+    /**
+     * @return un parcours de tous les triplets de l'index
+     */
+    public Scan scan() {
+        return new Scan(0, 0, 0, size());
+    }
+
+    /**
+     * @return un parcours des triplets de première clé a
+     */
+    public Scan scan(int a) {
+        int from = firstStart(a);
+        int to = firstEnd(a);
+        return from == to ? new Scan(0, 0, 0, 0) : new Scan(a, from, secondOffsets.get(from), secondOffsets.get(to));
+    }
+
+    /**
+     * @return un parcours des triplets du couple (a, b)
+     */
+    public Scan scan(int a, int b) {
+        int j = find(a, b);
+        return j < 0 ? new Scan(0, 0, 0, 0) : new Scan(a, j, secondOffsets.get(j), secondOffsets.get(j + 1));
+    }
+
+    /**
+     * Action appliquée à un triplet d'identifiants, dans l'ordre de l'index.
+     */
+    @FunctionalInterface
+    public interface TripleConsumer {
+        void accept(int a, int b, int c);
+    }
+}
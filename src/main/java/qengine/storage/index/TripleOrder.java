@@ -0,0 +1,61 @@
+package qengine.storage.index;
+
+/**
+ * Les six ordres de positions (sujet = 0, prédicat = 1, objet = 2) des index de l'HexaStore.
+ */
+public enum TripleOrder {
+    SPO(0, 1, 2),
+    SOP(0, 2, 1),
+    PSO(1, 0, 2),
+    POS(1, 2, 0),
+    OSP(2, 0, 1),
+    OPS(2, 1, 0);
+
+    private final int first;
+    private final int second;
+    private final int third;
+
+    TripleOrder(int first, int second, int third) {
+        this.first = first;
+        this.second = second;
+        this.third = third;
+    }
+
+    /**
+     * @return la position (0, 1 ou 2) du triplet (s, p, o) utilisée comme première clé
+     */
+    public int first() {
+        return first;
+    }
+
+    /**
+     * @return la position du triplet (s, p, o) utilisée comme deuxième clé
+     */
+    public int second() {
+        return second;
+    }
+
+    /**
+     * @return la position du triplet (s, p, o) stockée au dernier niveau
+     */
+    public int third() {
+        return third;
+    }
+
+    /**
+     * Réordonne des triplets (s, p, o) consécutifs dans l'ordre de cet index.
+     *
+     * @param spo   les triplets, trois entiers par triplet
+     * @param count le nombre de triplets
+     * @return un nouveau tableau de triplets (première, deuxième, troisième clé)
+     */
+    public int[] permute(int[] spo, int count) {
+        int[] result = new int[3 * count];
+        for (int i = 0, k = 0; i < count; i++, k += 3) {
+            result[k] = spo[k + first];
+            result[k + 1] = spo[k + second];
+            result[k + 2] = spo[k + third];
+        }
+        return result;
+    }
+}
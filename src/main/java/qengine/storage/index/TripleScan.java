@@ -0,0 +1,22 @@
+package qengine.storage.index;
+
+/**
+ * Parcours paresseux de triplets d'identifiants (a, b, c), dans l'ordre d'un index.
+ * Après chaque appel à {@link #next()} qui retourne true, le triplet courant est donné par
+ * {@link #first()}, {@link #second()} et {@link #third()}.
+ */
+public interface TripleScan {
+
+    /**
+     * Avance sur le triplet suivant.
+     *
+     * @return false si le parcours est terminé
+     */
+    boolean next();
+
+    int first();
+
+    int second();
+
+    int third();
+}
@@ -0,0 +1,104 @@
+package qengine.storage.index;
+
+import java.util.Arrays;
+
+/**
+ * Tri des triplets encodés, stockés par groupes de trois entiers consécutifs dans un tableau.
+ * Le tri est un tri par base (radix sort LSD) sur 16 bits, stable, en O(n) par passe :
+ * il évite de créer un objet par triplet comme le ferait un tri par comparateur.
+ */
+public final class TripleSorter {
+
+    private static final int RADIX_BITS = 16;
+    private static final int BUCKETS = 1 << RADIX_BITS;
+    private static final int MASK = BUCKETS - 1;
+
+    private TripleSorter() {
+    }
+
+    /**
+     * Trie les triplets dans l'ordre lexicographique (a, b, c) puis supprime les doublons.
+     *
+     * @param triples les triplets, trois entiers positifs par triplet ; le tableau est modifié
+     * @param count   le nombre de triplets
+     * @return le nombre de triplets distincts, rangés en tête du tableau
+     */
+    public static int sortDistinct(int[] triples, int count) {
+        sort(triples, count);
+        return distinct(triples, count);
+    }
+
+    /**
+     * Trie les triplets dans l'ordre lexicographique (a, b, c).
+     *
+     * @param triples les triplets, trois entiers positifs par triplet ; le tableau est modifié
+     * @param count   le nombre de triplets
+     */
+    public static void sort(int[] triples, int count) {
+        if (count < 2) {
+            return;
+        }
+        int[] source = triples;
+        int[] buffer = new int[3 * count];
+        int[] histogram = new int[BUCKETS];
+
+        // Passes stables de la clé la moins significative (c) à la plus significative (a)
+        for (int position = 2; position >= 0; position--) {
+            int max = 0;
+            for (int i = position; i < 3 * count; i += 3) {
+                max |= source[i];
+            }
+            for (int shift = 0; shift < Integer.SIZE - 1 && (shift == 0 || (max >>> shift) != 0); shift += RADIX_BITS) {
+                countingPass(source, buffer, count, position, shift, histogram);
+                int[] swap = source;
+                source = buffer;
+                buffer = swap;
+            }
+        }
+        if (source != triples) {
+            System.arraycopy(source, 0, triples, 0, 3 * count);
+        }
+    }
+
+    /**
+     * Supprime les doublons consécutifs d'un tableau de triplets trié.
+     *
+     * @return le nombre de triplets distincts, rangés en tête du tableau
+     */
+    public static int distinct(int[] triples, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        int distinct = 1;
+        for (int i = 1; i < count; i++) {
+            int k = 3 * i;
+            int last = 3 * (distinct - 1);
+            if (triples[k] != triples[last] || triples[k + 1] != triples[last + 1] || triples[k + 2] != triples[last + 2]) {
+                int target = 3 * distinct++;
+                triples[target] = triples[k];
+                triples[target + 1] = triples[k + 1];
+                triples[target + 2] = triples[k + 2];
+            }
+        }
+        return distinct;
+    }
+
+    private static void countingPass(int[] source, int[] target, int count, int position, int shift, int[] histogram) {
+        Arrays.fill(histogram, 0);
+        for (int i = position; i < 3 * count; i += 3) {
+            histogram[(source[i] >>> shift) & MASK]++;
+        }
+        int sum = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            int c = histogram[b];
+            histogram[b] = sum;
+            sum += c;
+        }
+        for (int k = 0; k < 3 * count; k += 3) {
+            int t = 3 * histogram[(source[k + position] >>> shift) & MASK]++;
+            target[t] = source[k];
+            target[t + 1] = source[k + 1];
+            target[t + 2] = source[k + 2];
+        }
+    }
+}
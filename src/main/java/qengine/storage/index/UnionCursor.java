@@ -0,0 +1,54 @@
+package qengine.storage.index;
+
+/**
+ * Union de deux listes triées d'identifiants, parcourue sans les copier : l'identifiant courant est le plus
+ * petit des identifiants courants des deux curseurs, et un identifiant présent dans les deux n'est vu qu'une fois.
+ */
+final class UnionCursor implements IdCursor {
+
+    private final IdCursor left;
+    private final IdCursor right;
+    private int id = -1;
+
+    UnionCursor(IdCursor left, IdCursor right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public int next() {
+        if (id == END) {
+            return END;
+        }
+        if (left.id() <= id) {
+            left.next();
+        }
+        if (right.id() <= id) {
+            right.next();
+        }
+        id = Math.min(left.id(), right.id());
+        return id;
+    }
+
+    @Override
+    public int advance(int target) {
+        if (left.id() < target) {
+            left.advance(target);
+        }
+        if (right.id() < target) {
+            right.advance(target);
+        }
+        id = Math.min(left.id(), right.id());
+        return id;
+    }
+
+    @Override
+    public int size() {
+        return left.size() + right.size();
+    }
+}
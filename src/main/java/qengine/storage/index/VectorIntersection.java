@@ -0,0 +1,76 @@
+package qengine.storage.index;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Noyau vectoriel de {@link SortedIntersection}, sur l'API « Vector » ({@code jdk.incubator.vector}).
+ * <p>
+ * Les deux listes sont parcourues par blocs d'autant d'identifiants que le processeur compare en une
+ * instruction (8 en AVX2, 16 en AVX-512). Chaque identifiant du bloc de gauche est comparé à tous ceux du
+ * bloc de droite en comparant le bloc de gauche à chacune des rotations du bloc de droite ; les
+ * identifiants trouvés sont compactés en tête d'un vecteur et écrits d'un coup. Le bloc dont le dernier
+ * identifiant est le plus petit est ensuite remplacé par le suivant, comme dans une fusion.
+ * <p>
+ * Cette classe n'est chargée que si le module incubateur est présent ({@code --add-modules jdk.incubator.vector}).
+ */
+final class VectorIntersection {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    // Rotations d'un vecteur d'une à LANES - 1 positions
+    private static final VectorShuffle<Integer>[] ROTATIONS = rotations();
+
+    private VectorIntersection() {
+    }
+
+    /**
+     * @return le nombre d'identifiants qu'un appel à {@link #intersect} peut écrire au-delà de l'intersection
+     */
+    static int padding() {
+        return LANES;
+    }
+
+    /**
+     * Intersection de deux listes triées sans doublons, avec le contrat de
+     * {@link SortedIntersection#intersect(int[], int, int[], int, int[])}. Le tableau out doit avoir
+     * {@link #padding()} cases de plus que la plus courte des deux listes.
+     */
+    static int intersect(int[] left, int leftLength, int[] right, int rightLength, int[] out) {
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i + LANES <= leftLength && j + LANES <= rightLength) {
+            IntVector a = IntVector.fromArray(SPECIES, left, i);
+            IntVector b = IntVector.fromArray(SPECIES, right, j);
+            VectorMask<Integer> found = a.compare(VectorOperators.EQ, b);
+            for (VectorShuffle<Integer> rotation : ROTATIONS) {
+                found = found.or(a.compare(VectorOperators.EQ, b.rearrange(rotation)));
+            }
+            a.compress(found).intoArray(out, count);
+            count += found.trueCount();
+            int leftLast = left[i + LANES - 1];
+            int rightLast = right[j + LANES - 1];
+            if (leftLast <= rightLast) {
+                i += LANES;
+            }
+            if (rightLast <= leftLast) {
+                j += LANES;
+            }
+        }
+        return SortedIntersection.merge(left, i, leftLength, right, j, rightLength, out, count);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static VectorShuffle<Integer>[] rotations() {
+        VectorShuffle<Integer>[] rotations = new VectorShuffle[LANES - 1];
+        for (int r = 1; r < LANES; r++) {
+            rotations[r - 1] = VectorShuffle.iota(SPECIES, r, 1, true);
+        }
+        return rotations;
+    }
+}
@@ -0,0 +1,77 @@
+package qengine.workload;
+
+import java.util.Arrays;
+
+/**
+ * Latences d'un ensemble d'exécutions, en nanosecondes, et leurs centiles.
+ */
+public final class LatencyStats {
+
+    private long[] latencies = new long[16];
+    private int count;
+    private boolean sorted = true;
+
+    /**
+     * Ajoute la latence d'une exécution.
+     */
+    public void add(long nanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+        sorted = false;
+    }
+
+    /**
+     * @return le nombre d'exécutions
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return la somme des latences
+     */
+    public long total() {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += latencies[i];
+        }
+        return total;
+    }
+
+    /**
+     * @return la latence moyenne, 0 s'il n'y a aucune exécution
+     */
+    public double mean() {
+        return count == 0 ? 0 : (double) total() / count;
+    }
+
+    /**
+     * Centile par la méthode du rang le plus proche : la plus petite latence dont au moins une fraction p des
+     * exécutions ne dépasse pas la valeur.
+     *
+     * @param p la fraction, entre 0 exclu et 1 inclus (0.95 pour le 95e centile)
+     * @return le centile, 0 s'il n'y a aucune exécution
+     */
+    public long percentile(double p) {
+        if (p <= 0 || p > 1) {
+            throw new IllegalArgumentException("Fraction hors de ]0, 1] : " + p);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(latencies, 0, count);
+            sorted = true;
+        }
+        return latencies[(int) Math.ceil(p * count) - 1];
+    }
+
+    /**
+     * @return la plus grande latence, 0 s'il n'y a aucune exécution
+     */
+    public long max() {
+        return percentile(1);
+    }
+}
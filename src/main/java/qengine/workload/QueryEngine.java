@@ -0,0 +1,75 @@
+package qengine.workload;
+
+import fr.boreal.model.formula.api.FOFormula;
+import fr.boreal.model.kb.api.FactBase;
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.queryEvaluation.api.FOQueryEvaluator;
+import fr.boreal.query_evaluation.generic.GenericFOQueryEvaluator;
+import qengine.model.StarQuery;
+import qengine.storage.PreparedStarQuery;
+import qengine.storage.RDFStorage;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.StreamSupport;
+
+/**
+ * Moteur évaluant les requêtes d'une charge de travail.
+ */
+@FunctionalInterface
+public interface QueryEngine {
+
+    /**
+     * @param query la requête en étoile
+     * @return un itérateur sur ses réponses
+     */
+    Iterator<Substitution> evaluate(StarQuery query);
+
+    /**
+     * @return le moteur qui évalue les requêtes sur un store RDF
+     */
+    static QueryEngine of(RDFStorage storage) {
+        return storage::match;
+    }
+
+    /**
+     * Moteur qui évalue chaque requête par un modèle préparé ({@link RDFStorage#prepare}) : la première requête
+     * d'un modèle le prépare, les suivantes ne font que l'exécuter avec leurs constantes. La décomposition de
+     * chaque requête en modèle et constantes ({@link Workload#parameterize}) est conservée par requête, et n'est
+     * donc faite qu'une fois pour les requêtes d'une charge de travail exécutée plusieurs fois.
+     */
+    static QueryEngine prepared(RDFStorage storage) {
+        Map<String, PreparedStarQuery> templates = new ConcurrentHashMap<>();
+        Map<StarQuery, Workload.Instance> instances = new ConcurrentHashMap<>();
+        return query -> {
+            Workload.Instance instance = instances.computeIfAbsent(query, Workload::parameterize);
+            return templates.computeIfAbsent(instance.key(),
+                    key -> storage.prepare(instance.template(), instance.parameters())).execute(instance.values());
+        };
+    }
+
+    /**
+     * @return le moteur de référence : l'évaluateur générique d'Integraal sur une base de faits. Il ne connaît pas
+     * la limite d'une requête : ses réponses sont alors dédoublonnées sur les variables réponses puis tronquées
+     */
+    static QueryEngine integraal(FactBase factBase) {
+        FOQueryEvaluator<FOFormula> evaluator = GenericFOQueryEvaluator.defaultInstance();
+        return query -> {
+            Iterator<Substitution> answers = evaluator.evaluate(query.asFOQuery(), factBase);
+            if (!query.hasLimit()) {
+                return answers;
+            }
+            Set<List<Term>> seen = new HashSet<>();
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(answers, Spliterator.ORDERED), false)
+                    .filter(answer -> seen.add(query.getAnswerVariables().stream().map(answer::createImageOf).toList()))
+                    .limit(query.getLimit()).iterator();
+        };
+    }
+}
@@ -0,0 +1,147 @@
+package qengine.workload;
+
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.factory.api.TermFactory;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import fr.boreal.model.query.api.Query;
+import qengine.model.RDFTriple;
+import qengine.model.StarQuery;
+import qengine.parser.StarQuerySparQLParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Charge de travail : les requêtes en étoile d'un fichier de requêtes, dans l'ordre du fichier, chacune
+ * rattachée à son modèle ({@link #template(StarQuery)}).
+ */
+public final class Workload {
+
+    private final List<StarQuery> queries;
+    private final List<String> templates;
+
+    public Workload(List<StarQuery> queries) {
+        this.queries = List.copyOf(queries);
+        this.templates = queries.stream().map(Workload::template).toList();
+    }
+
+    /**
+     * Lit les requêtes en étoile d'un fichier ; les autres requêtes sont ignorées.
+     *
+     * @param queryFile chemin vers le fichier de requêtes SparQL
+     * @throws IOException si le fichier ne peut pas être lu
+     */
+    public static Workload load(String queryFile) throws IOException {
+        List<StarQuery> queries = new ArrayList<>();
+        try (StarQuerySparQLParser parser = new StarQuerySparQLParser(queryFile)) {
+            while (parser.hasNext()) {
+                Query query = parser.next();
+                if (query instanceof StarQuery starQuery) {
+                    queries.add(starQuery);
+                }
+            }
+        }
+        return new Workload(queries);
+    }
+
+    /**
+     * Modèle d'une requête : ses patrons dans l'ordre, où les variables et les prédicats sont conservés et les
+     * autres constantes remplacées par {@code %c}. Les requêtes WatDiv d'un même modèle ne diffèrent que par
+     * ces constantes, par exemple {@code ?v0 eligibleRegion %c} pour toutes les requêtes
+     * {@code ?v0 <http://schema.org/eligibleRegion> <.../Country137>}. Les IRI sont abrégées à leur dernier
+     * segment.
+     */
+    public static String template(StarQuery query) {
+        StringJoiner template = new StringJoiner(" . ");
+        for (RDFTriple triple : query.getRdfAtoms()) {
+            Term[] terms = triple.getTerms();
+            template.add(term(terms[0], false) + " " + term(terms[1], true) + " " + term(terms[2], false));
+        }
+        return template.toString();
+    }
+
+    /**
+     * Requête exprimée comme un modèle, dont les constantes autres que les prédicats sont des paramètres, et
+     * les constantes de ces paramètres.
+     *
+     * @param key        clé du modèle, la même pour toutes les requêtes du modèle dont les patrons sont dans
+     *                   le même ordre
+     * @param template   le modèle, dont les paramètres sont des variables {@code ?_p0}, {@code ?_p1}...
+     * @param parameters les paramètres, dans l'ordre de leur apparition dans les patrons
+     * @param values     les constantes de la requête, dans l'ordre des paramètres
+     */
+    public record Instance(String key, StarQuery template, List<Variable> parameters, Term[] values) {
+    }
+
+    /**
+     * @return la requête exprimée comme un modèle et les constantes de ses paramètres, comme
+     * {@link #template(StarQuery)} l'abrège
+     */
+    public static Instance parameterize(StarQuery query) {
+        TermFactory factory = SameObjectTermFactory.instance();
+        List<RDFTriple> triples = new ArrayList<>(query.getRdfAtoms().size());
+        List<Variable> parameters = new ArrayList<>();
+        List<Term> values = new ArrayList<>();
+        StringJoiner key = new StringJoiner(" . ", "", " | " + query.getAnswerVariables()
+                + (query.hasLimit() ? " LIMIT " + query.getLimit() : ""));
+        for (RDFTriple triple : query.getRdfAtoms()) {
+            Term[] terms = triple.getTerms().clone();
+            for (int k = 0; k < 3; k += 2) {
+                if (!(terms[k] instanceof Variable)) {
+                    values.add(terms[k]);
+                    terms[k] = factory.createOrGetVariable("?_p" + parameters.size());
+                    parameters.add((Variable) terms[k]);
+                }
+            }
+            triples.add(new RDFTriple(terms[0], terms[1], terms[2]));
+            key.add(terms[0].label() + " " + terms[1].label() + " " + terms[2].label());
+        }
+        StarQuery template = new StarQuery(key.toString(), triples, query.getAnswerVariables(), query.getLimit());
+        return new Instance(key.toString(), template, List.copyOf(parameters), values.toArray(new Term[0]));
+    }
+
+    private static String term(Term term, boolean predicate) {
+        if (term instanceof Variable) {
+            return term.label();
+        }
+        if (!predicate) {
+            return "%c";
+        }
+        String label = term.label();
+        int end = label.endsWith(">") ? label.length() - 1 : label.length();
+        int start = Math.max(label.lastIndexOf('/', end - 1), label.lastIndexOf('#', end - 1)) + 1;
+        return label.substring(start, end);
+    }
+
+    /**
+     * @return le nombre de requêtes
+     */
+    public int size() {
+        return queries.size();
+    }
+
+    /**
+     * @return la i-ème requête du fichier
+     */
+    public StarQuery query(int i) {
+        return queries.get(i);
+    }
+
+    /**
+     * @return le modèle de la i-ème requête du fichier
+     */
+    public String template(int i) {
+        return templates.get(i);
+    }
+
+    /**
+     * @return les modèles distincts, par ordre de première apparition
+     */
+    public List<String> templates() {
+        return List.copyOf(new LinkedHashSet<>(templates));
+    }
+}
@@ -0,0 +1,200 @@
+package qengine.workload;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import qengine.model.StarQuery;
+import qengine.storage.RDFStorage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Exécution d'une charge de travail par un moteur : chaque requête est évaluée et toutes ses réponses sont
+ * parcourues, ce qui mesure aussi l'évaluation paresseuse des moteurs qui produisent leurs réponses à la demande.
+ * <p>
+ * Les requêtes peuvent être évaluées en parallèle : autant de threads virtuels que le degré de parallélisme
+ * demandé prennent tour à tour la prochaine requête non évaluée, de sorte qu'une requête longue n'en retarde
+ * pas d'autres déjà attribuées. Le moteur doit alors accepter des lectures concurrentes, ce qui est le cas
+ * d'un store qui n'est pas modifié pendant l'exécution ({@link #evaluate(RDFStorage, List, int)}).
+ */
+public final class WorkloadExecutor {
+
+    /**
+     * Mesures d'un passage sur toute la charge de travail.
+     *
+     * @param latencies la latence de chaque requête, en nanosecondes, dans l'ordre de la charge
+     * @param answers   le nombre de réponses de chaque requête
+     * @param wallNanos la durée totale du passage
+     */
+    public record Round(long[] latencies, long[] answers, long wallNanos) {
+    }
+
+    /**
+     * Réponses d'une requête et durée de son évaluation.
+     *
+     * @param answers      les réponses, dans l'ordre où le moteur les a produites
+     * @param latencyNanos la durée de l'évaluation et du parcours des réponses, en nanosecondes
+     */
+    public record Result(List<Substitution> answers, long latencyNanos) {
+    }
+
+    private WorkloadExecutor() {
+    }
+
+    /**
+     * @return le degré de parallélisme par défaut : le nombre de processeurs disponibles
+     */
+    public static int defaultParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Évalue une fois chaque requête, dans l'ordre de la charge de travail.
+     */
+    public static Round run(QueryEngine engine, Workload workload) {
+        return run(engine, workload, 1);
+    }
+
+    /**
+     * Évalue une fois chaque requête, avec au plus parallelism requêtes évaluées à la fois.
+     */
+    public static Round run(QueryEngine engine, Workload workload, int parallelism) {
+        long[] latencies = new long[workload.size()];
+        long[] answers = new long[workload.size()];
+        long start = System.nanoTime();
+        forEach(workload.size(), parallelism, i -> {
+            long queryStart = System.nanoTime();
+            answers[i] = drain(engine.evaluate(workload.query(i)));
+            latencies[i] = System.nanoTime() - queryStart;
+        });
+        return new Round(latencies, answers, System.nanoTime() - start);
+    }
+
+    /**
+     * Évalue des requêtes sur un store qui n'est pas modifié pendant l'évaluation, avec au plus parallelism
+     * requêtes évaluées à la fois, et conserve leurs réponses. Les écritures différées du store (l'indexation des
+     * triplets en attente de l'HexaStore), que des lectures concurrentes ne pourraient pas faire sans se gêner,
+     * sont terminées ici par {@link RDFStorage#flush()} avant de répartir les requêtes.
+     *
+     * @return le résultat de chaque requête, dans l'ordre des requêtes
+     */
+    public static List<Result> evaluate(RDFStorage storage, List<StarQuery> queries, int parallelism) {
+        storage.flush();
+        return evaluate(QueryEngine.of(storage), queries, parallelism);
+    }
+
+    /**
+     * Évalue des requêtes avec au plus parallelism requêtes évaluées à la fois, et conserve leurs réponses.
+     *
+     * @return le résultat de chaque requête, dans l'ordre des requêtes
+     */
+    public static List<Result> evaluate(QueryEngine engine, List<StarQuery> queries, int parallelism) {
+        Result[] results = new Result[queries.size()];
+        forEach(queries.size(), parallelism, i -> {
+            long start = System.nanoTime();
+            List<Substitution> answers = new ArrayList<>();
+            engine.evaluate(queries.get(i)).forEachRemaining(answers::add);
+            results[i] = new Result(answers, System.nanoTime() - start);
+        });
+        return List.of(results);
+    }
+
+    /**
+     * Applique la tâche à 0, 1, ..., count - 1 : en séquence si parallelism vaut 1, sinon sur parallelism
+     * threads virtuels qui se partagent les indices au fur et à mesure. Les écritures des tâches sont visibles
+     * au retour.
+     *
+     * @throws RuntimeException la première exception levée par une tâche, les autres tâches étant abandonnées
+     */
+    private static void forEach(int count, int parallelism, IntConsumer task) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Degré de parallélisme invalide : " + parallelism);
+        }
+        if (parallelism == 1 || count <= 1) {
+            for (int i = 0; i < count; i++) {
+                task.accept(i);
+            }
+            return;
+        }
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < Math.min(parallelism, count); w++) {
+                workers.add(executor.submit(() -> {
+                    try {
+                        for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                            task.accept(i);
+                        }
+                    } catch (RuntimeException | Error e) {
+                        // Les autres threads s'arrêtent après leur requête en cours
+                        next.set(count);
+                        throw e;
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Évaluation interrompue", e);
+        }
+    }
+
+    private static long drain(Iterator<Substitution> answers) {
+        long count = 0;
+        while (answers.hasNext()) {
+            answers.next();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Ensembles de réponses de chaque requête, pour comparer deux moteurs : chaque réponse est réduite aux
+     * images des variables réponses, dans leur ordre, ce qui ne dépend ni des autres variables que le moteur
+     * aurait liées ni de l'ordre des réponses ou de leurs doublons.
+     */
+    public static List<Set<List<Term>>> answers(QueryEngine engine, Workload workload) {
+        return answers(engine, workload, false);
+    }
+
+    /**
+     * Ensembles de réponses de chaque requête, comme {@link #answers(QueryEngine, Workload)}.
+     *
+     * @param unlimited true pour évaluer les requêtes limitées sans leur limite, afin d'obtenir toutes les réponses
+     *                  dont une requête limitée ne doit renvoyer qu'une partie
+     */
+    public static List<Set<List<Term>>> answers(QueryEngine engine, Workload workload, boolean unlimited) {
+        List<Set<List<Term>>> answers = new ArrayList<>(workload.size());
+        for (int i = 0; i < workload.size(); i++) {
+            StarQuery query = workload.query(i);
+            if (unlimited && query.hasLimit()) {
+                query = new StarQuery(query.getLabel(), query.getRdfAtoms(), query.getAnswerVariables());
+            }
+            Set<List<Term>> set = new HashSet<>();
+            for (Iterator<Substitution> it = engine.evaluate(query); it.hasNext(); ) {
+                Substitution substitution = it.next();
+                List<Term> answer = new ArrayList<>(query.getAnswerVariables().size());
+                for (Variable variable : query.getAnswerVariables()) {
+                    answer.add(substitution.createImageOf(variable));
+                }
+                set.add(answer);
+            }
+            answers.add(set);
+        }
+        return answers;
+    }
+}
@@ -0,0 +1,229 @@
+package qengine.workload;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rapport d'exécution d'une charge de travail : pour chaque moteur et chaque phase (tours à froid ou à chaud),
+ * les centiles de latence par modèle de requête et, sur la ligne {@link #ALL}, pour toute la charge avec son
+ * débit. Il s'affiche en tableau et s'écrit en CSV ou en JSON, pour comparer les mesures d'une version à l'autre.
+ */
+public final class WorkloadReport {
+
+    /**
+     * Modèle des lignes qui portent sur toute la charge de travail.
+     */
+    public static final String ALL = "ALL";
+
+    private static final String[] COLUMNS = {"engine", "phase", "template", "executions",
+            "p50_us", "p95_us", "p99_us", "max_us", "mean_us", "queries_per_s"};
+
+    /**
+     * Une ligne du rapport.
+     *
+     * @param throughput le débit en requêtes par seconde, sur la ligne {@link #ALL} seulement (0 sinon)
+     */
+    public record Row(String engine, String phase, String template, LatencyStats stats, double throughput) {
+    }
+
+    private final Map<String, String> parameters = new LinkedHashMap<>();
+    private final List<Row> rows = new ArrayList<>();
+    private final List<String> mismatches = new ArrayList<>();
+
+    /**
+     * Ajoute un paramètre de la mesure (fichiers, nombre de triplets, libellé de la version...), repris dans
+     * l'en-tête du tableau et dans le JSON.
+     */
+    public void parameter(String name, Object value) {
+        parameters.put(name, String.valueOf(value));
+    }
+
+    /**
+     * Ajoute les lignes d'une phase : une par modèle, dans l'ordre de {@link Workload#templates()}, puis la
+     * ligne {@link #ALL}.
+     *
+     * @param rounds les passages de la phase sur toute la charge de travail
+     */
+    public void add(String engine, String phase, Workload workload, List<WorkloadExecutor.Round> rounds) {
+        Map<String, LatencyStats> byTemplate = new LinkedHashMap<>();
+        for (String template : workload.templates()) {
+            byTemplate.put(template, new LatencyStats());
+        }
+        LatencyStats all = new LatencyStats();
+        long wallNanos = 0;
+        for (WorkloadExecutor.Round round : rounds) {
+            for (int i = 0; i < workload.size(); i++) {
+                byTemplate.get(workload.template(i)).add(round.latencies()[i]);
+                all.add(round.latencies()[i]);
+            }
+            wallNanos += round.wallNanos();
+        }
+        byTemplate.forEach((template, stats) -> rows.add(new Row(engine, phase, template, stats, 0)));
+        rows.add(new Row(engine, phase, ALL, all, wallNanos == 0 ? 0 : all.count() * 1e9 / wallNanos));
+    }
+
+    /**
+     * Signale une requête dont les réponses diffèrent d'un moteur à l'autre.
+     */
+    public void mismatch(String description) {
+        mismatches.add(description);
+    }
+
+    /**
+     * @return les lignes, dans l'ordre d'ajout
+     */
+    public List<Row> rows() {
+        return List.copyOf(rows);
+    }
+
+    /**
+     * @return les requêtes dont les réponses diffèrent
+     */
+    public List<String> mismatches() {
+        return List.copyOf(mismatches);
+    }
+
+    /**
+     * Affiche les lignes {@link #ALL} et, pour chaque phase, ses modèles les plus lents au 99e centile.
+     *
+     * @param slowest le nombre de modèles affichés par phase
+     */
+    public void print(PrintStream out, int slowest) {
+        parameters.forEach((name, value) -> out.printf("%-10s : %s%n", name, value));
+        out.printf("%n%-12s %-6s %8s %10s %10s %10s %10s %10s%n",
+                "moteur", "phase", "exécutions", "p50 µs", "p95 µs", "p99 µs", "max µs", "requêtes/s");
+        for (Row row : rows) {
+            if (row.template().equals(ALL)) {
+                LatencyStats s = row.stats();
+                out.printf(Locale.ROOT, "%-12s %-6s %8d %10.1f %10.1f %10.1f %10.1f %10.0f%n", row.engine(),
+                        row.phase(), s.count(), micros(s.percentile(0.5)), micros(s.percentile(0.95)),
+                        micros(s.percentile(0.99)), micros(s.max()), row.throughput());
+            }
+        }
+        if (slowest > 0) {
+            List<Row> templates = new ArrayList<>();
+            for (Row row : rows) {
+                if (!row.template().equals(ALL)) {
+                    templates.add(row);
+                } else {
+                    printSlowest(out, row, templates, slowest);
+                    templates.clear();
+                }
+            }
+        }
+        out.printf("%nRéponses différentes : %d%n", mismatches.size());
+        mismatches.forEach(mismatch -> out.println("  " + mismatch));
+    }
+
+    private static void printSlowest(PrintStream out, Row all, List<Row> templates, int slowest) {
+        out.printf("%n%s, %s : modèles les plus lents (p99 µs)%n", all.engine(), all.phase());
+        templates.stream()
+                .sorted((a, b) -> Long.compare(b.stats().percentile(0.99), a.stats().percentile(0.99)))
+                .limit(slowest)
+                .forEach(row -> out.printf(Locale.ROOT, "  %10.1f  %s%n",
+                        micros(row.stats().percentile(0.99)), row.template()));
+    }
+
+    /**
+     * Écrit toutes les lignes en CSV, une ligne d'en-tête puis une ligne par modèle et par phase.
+     */
+    public void writeCsv(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file)) {
+            out.write(String.join(",", COLUMNS));
+            out.write('\n');
+            for (Row row : rows) {
+                List<String> values = new ArrayList<>(List.of(csv(row.engine()), csv(row.phase()), csv(row.template())));
+                values.addAll(numbers(row));
+                out.write(String.join(",", values));
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Écrit le rapport en JSON : les paramètres, les lignes (mêmes champs que le CSV) et les requêtes dont
+     * les réponses diffèrent.
+     */
+    public void writeJson(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file)) {
+            out.write("{\n  \"parameters\": {");
+            String separator = "\n";
+            for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+                out.write(separator + "    " + json(parameter.getKey()) + ": " + json(parameter.getValue()));
+                separator = ",\n";
+            }
+            out.write("\n  },\n  \"rows\": [");
+            separator = "\n";
+            for (Row row : rows) {
+                List<String> numbers = numbers(row);
+                StringBuilder object = new StringBuilder("    {\"engine\": ").append(json(row.engine()))
+                        .append(", \"phase\": ").append(json(row.phase()))
+                        .append(", \"template\": ").append(json(row.template()));
+                for (int i = 0; i < numbers.size(); i++) {
+                    object.append(", \"").append(COLUMNS[i + 3]).append("\": ").append(numbers.get(i));
+                }
+                out.write(separator + object.append('}'));
+                separator = ",\n";
+            }
+            out.write("\n  ],\n  \"mismatches\": [");
+            separator = "\n";
+            for (String mismatch : mismatches) {
+                out.write(separator + "    " + json(mismatch));
+                separator = ",\n";
+            }
+            out.write("\n  ]\n}\n");
+        }
+    }
+
+    private static List<String> numbers(Row row) {
+        LatencyStats s = row.stats();
+        return List.of(String.valueOf(s.count()),
+                format(micros(s.percentile(0.5))), format(micros(s.percentile(0.95))),
+                format(micros(s.percentile(0.99))), format(micros(s.max())), format(s.mean() / 1e3),
+                format(row.throughput()));
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1e3;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+        StringBuilder escaped = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.append('"').toString();
+    }
+}
@@ -0,0 +1,81 @@
+package qengine.model;
+
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.factory.api.TermFactory;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link CanonicalStarQuery}.
+ */
+class CanonicalStarQueryTest {
+
+    private final TermFactory termFactory = SameObjectTermFactory.instance();
+    private final Term likes = termFactory.createOrGetLiteral("http://example.org/likes");
+    private final Term type = termFactory.createOrGetLiteral("http://example.org/type");
+    private final Term book = termFactory.createOrGetLiteral("http://example.org/book");
+
+    @Test
+    void testIgnoresLabelPatternOrderAndVariableNames() {
+        Variable x = termFactory.createOrGetVariable("?x");
+        Variable t = termFactory.createOrGetVariable("?t");
+        Variable y = termFactory.createOrGetVariable("?y");
+        Variable u = termFactory.createOrGetVariable("?u");
+        StarQuery first = new StarQuery("première",
+                List.of(new RDFTriple(x, likes, book), new RDFTriple(x, type, t)), List.of(x, t));
+        StarQuery second = new StarQuery("seconde",
+                List.of(new RDFTriple(y, type, u), new RDFTriple(y, likes, book)), List.of(u, y));
+
+        assertNotEquals(first, second);
+        CanonicalStarQuery canonical = CanonicalStarQuery.of(first);
+        assertEquals(canonical, CanonicalStarQuery.of(second));
+        assertEquals(canonical.hashCode(), CanonicalStarQuery.of(second).hashCode());
+
+        // Les variables de chaque requête sont numérotées de la même manière
+        assertEquals(List.of(x, t), canonical.variables());
+        assertEquals(List.of(y, u), CanonicalStarQuery.of(second).variables());
+        assertEquals(-1, canonical.indexOf(y));
+    }
+
+    @Test
+    void testDistinguishesConstantsAndAnswerVariables() {
+        Variable x = termFactory.createOrGetVariable("?x");
+        Variable t = termFactory.createOrGetVariable("?t");
+        Term film = termFactory.createOrGetLiteral("http://example.org/film");
+        List<RDFTriple> triples = List.of(new RDFTriple(x, likes, book), new RDFTriple(x, type, t));
+
+        CanonicalStarQuery canonical = CanonicalStarQuery.of(new StarQuery("q", triples, List.of(x)));
+        assertNotEquals(canonical, CanonicalStarQuery.of(new StarQuery("q", triples, List.of(x, t))));
+        assertNotEquals(canonical, CanonicalStarQuery.of(new StarQuery("q",
+                List.of(new RDFTriple(x, likes, film), new RDFTriple(x, type, t)), List.of(x))));
+        assertEquals(canonical, CanonicalStarQuery.of(new StarQuery("q", triples, List.of(x, x))));
+    }
+
+    @Test
+    void testIgnoresOrderOfSamePredicatePatterns() {
+        Variable x = termFactory.createOrGetVariable("?x");
+        Variable y = termFactory.createOrGetVariable("?y");
+        Variable z = termFactory.createOrGetVariable("?z");
+        RDFTriple likesY = new RDFTriple(x, likes, y);
+        RDFTriple likesZ = new RDFTriple(x, likes, z);
+
+        // Les deux patrons ne se distinguent que par leur variable, dont seule ?y est une variable réponse
+        CanonicalStarQuery canonical = CanonicalStarQuery.of(new StarQuery("q1", List.of(likesY, likesZ), List.of(x, y)));
+        CanonicalStarQuery reordered = CanonicalStarQuery.of(new StarQuery("q2", List.of(likesZ, likesY), List.of(x, y)));
+        assertEquals(canonical, reordered);
+        assertEquals(canonical.hashCode(), reordered.hashCode());
+        assertEquals(List.of(x, y, z), canonical.variables());
+        assertEquals(List.of(x, y, z), reordered.variables());
+
+        // Une variable partagée avec un autre patron distingue aussi les patrons confondus par le tri
+        RDFTriple typeY = new RDFTriple(x, type, y);
+        assertEquals(CanonicalStarQuery.of(new StarQuery("q1", List.of(likesY, likesZ, typeY), List.of(x))),
+                CanonicalStarQuery.of(new StarQuery("q2", List.of(typeY, likesZ, likesY), List.of(x))));
+        assertNotEquals(canonical, CanonicalStarQuery.of(new StarQuery("q3", List.of(likesY, likesZ), List.of(x, y, z))));
+    }
+}
@@ -113,6 +113,28 @@ class StarQueryTest {
         assertEquals(query1.hashCode(), query2.hashCode(), "Deux requêtes identiques doivent avoir le même hashCode.");
     }
 
+    @Test
+    void testStarQueryLimit() {
+        Variable centralVariable = termFactory.createOrGetVariable("?x");
+        Term predicate = termFactory.createOrGetLiteral("http://example.org/predicate");
+        Term object = termFactory.createOrGetLiteral("http://example.org/object");
+
+        List<RDFTriple> rdfAtoms = List.of(new RDFTriple(centralVariable, predicate, object));
+        Collection<Variable> answerVariables = List.of(centralVariable);
+
+        StarQuery unlimited = new StarQuery("Requête étoile", rdfAtoms, answerVariables);
+        StarQuery limited = new StarQuery("Requête étoile", rdfAtoms, answerVariables, 100);
+
+        assertFalse(unlimited.hasLimit(), "Une requête construite sans limite ne doit pas être limitée.");
+        assertEquals(StarQuery.NO_LIMIT, unlimited.getLimit());
+        assertTrue(limited.hasLimit());
+        assertEquals(100, limited.getLimit());
+        assertNotEquals(unlimited, limited, "Deux requêtes de limites différentes ne doivent pas être égales.");
+        assertThrows(IllegalArgumentException.class,
+                () -> new StarQuery("Requête étoile", rdfAtoms, answerVariables, -1),
+                "Une limite négative doit lever une exception.");
+    }
+
     @Test
     void testStarQueryToString() {
         Variable centralVariable = termFactory.createOrGetVariable("?x");
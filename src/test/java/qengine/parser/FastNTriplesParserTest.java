@@ -0,0 +1,147 @@
+package qengine.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qengine.model.RDFTriple;
+import qengine.storage.RDFDictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe FastNTriplesParser.
+ */
+class FastNTriplesParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testParseValidRDFAtoms() throws Exception {
+        File rdfFile = new File("src/test/resources/sample_data.nt");
+        try (FastNTriplesParser parser = new FastNTriplesParser(rdfFile)) {
+            assertTrue(parser.hasNext(), "Le parser devrait trouver des triplets RDF.");
+
+            RDFTriple atom1 = parser.next();
+            assertEquals("http://example.org/subject1", atom1.getTerms()[0].label(), "Sujet incorrect.");
+            assertEquals("http://example.org/predicate1", atom1.getTerms()[1].label(), "Prédicat incorrect.");
+            assertEquals("http://example.org/object1", atom1.getTerms()[2].label(), "Objet incorrect.");
+
+            RDFTriple atom2 = parser.next();
+            assertEquals("http://example.org/subject2", atom2.getTerms()[0].label(), "Sujet incorrect.");
+
+            assertFalse(parser.hasNext(), "Le parser ne devrait plus avoir de triplets RDF.");
+            assertThrows(NoSuchElementException.class, parser::next, "Un appel à next() sans triplets restants devrait lever une exception.");
+        }
+    }
+
+    @Test
+    void testSameTriplesAsRDFTriplesParser() throws Exception {
+        File rdfFile = new File("data/sample_data.nt");
+        List<RDFTriple> expected;
+        try (RDFTriplesParser parser = new RDFTriplesParser(rdfFile)) {
+            expected = parser.getRDFAtoms().toList();
+        }
+        try (FastNTriplesParser parser = new FastNTriplesParser(rdfFile)) {
+            assertEquals(expected, parser.getRDFAtoms().toList(), "Les deux parsers doivent produire les mêmes triplets.");
+        }
+    }
+
+    @Test
+    void testParseEmptyFile() throws Exception {
+        try (FastNTriplesParser parser = new FastNTriplesParser(new File("src/test/resources/empty.nt"))) {
+            assertFalse(parser.hasNext(), "Le parser ne devrait pas trouver de triplets dans un fichier vide.");
+        }
+    }
+
+    @Test
+    void testMalformedLine() throws Exception {
+        try (FastNTriplesParser parser = new FastNTriplesParser(new File("src/test/resources/malformed.nt"))) {
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, parser::hasNext);
+            assertTrue(exception.getMessage().startsWith("Ligne 1"), "L'erreur doit indiquer la ligne fautive.");
+        }
+    }
+
+    @Test
+    void testLiteralsEscapesCommentsAndBlankNodes() throws Exception {
+        File file = write("""
+                # commentaire
+
+                <http://ex.org/s> <http://ex.org/p> "a\\"b\\\\c\\td" .
+                _:b0 <http://ex.org/p> "chat"@fr .
+                <http://ex.org/s> <http://ex.org/p> "42"^^<http://www.w3.org/2001/XMLSchema#integer> . # fin
+                <http://ex.org/\\u00e9> <http://ex.org/p> "\\U0001F600é"\r
+                """.replace("\"\r\n", "\" .\r\n"));
+        try (FastNTriplesParser parser = new FastNTriplesParser(file)) {
+            List<String> labels = new ArrayList<>();
+            while (parser.hasNext()) {
+                for (var term : parser.next().getTerms()) {
+                    labels.add(term.label());
+                }
+            }
+            assertEquals(List.of(
+                    "http://ex.org/s", "http://ex.org/p", "a\"b\\c\td",
+                    "b0", "http://ex.org/p", "chat",
+                    "http://ex.org/s", "http://ex.org/p", "42",
+                    "http://ex.org/é", "http://ex.org/p", "\uD83D\uDE00é"), labels);
+        }
+    }
+
+    @Test
+    void testSmallWindowAndByteRanges() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            content.append("<http://ex.org/s").append(i).append("> <http://ex.org/p> \"o").append(i % 7).append("\" .\n");
+        }
+        File file = write(content.toString());
+        long size = file.length();
+        long middle = content.indexOf("\n", content.length() / 2) + 1;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<RDFTriple> whole = collect(new FastNTriplesParser(channel, false, 0, size, 64));
+            assertEquals(200, whole.size());
+
+            List<RDFTriple> ranges = collect(new FastNTriplesParser(channel, 0, middle));
+            ranges.addAll(collect(new FastNTriplesParser(channel, middle, size)));
+            assertEquals(whole, ranges, "La lecture par plages doit couvrir exactement le fichier.");
+            assertTrue(channel.isOpen(), "Un parser sur plage ne doit pas fermer le canal partagé.");
+        }
+    }
+
+    @Test
+    void testEncodeInto() throws Exception {
+        RDFDictionary dictionary = new RDFDictionary();
+        List<int[]> triples = new ArrayList<>();
+        try (FastNTriplesParser parser = new FastNTriplesParser(new File("src/test/resources/sample_data.nt"))) {
+            parser.encodeInto(dictionary, (s, p, o) -> triples.add(new int[]{s, p, o}));
+        }
+        assertEquals(2, triples.size());
+        assertEquals(6, dictionary.size());
+        assertEquals("http://example.org/subject1", dictionary.label(triples.get(0)[0]));
+        assertEquals("http://example.org/object2", dictionary.label(triples.get(1)[2]));
+    }
+
+    private File write(String content) throws IOException {
+        Path path = Files.createTempFile(tempDir, "data", ".nt");
+        Files.writeString(path, content, StandardCharsets.UTF_8);
+        return path.toFile();
+    }
+
+    private static List<RDFTriple> collect(FastNTriplesParser parser) {
+        List<RDFTriple> triples = new ArrayList<>();
+        try (parser) {
+            parser.forEachRemaining(atom -> triples.add((RDFTriple) atom));
+        }
+        return triples;
+    }
+}
@@ -0,0 +1,66 @@
+package qengine.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qengine.storage.RDFDictionary;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe ParallelNTriplesParser.
+ */
+class ParallelNTriplesParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSameIdsAsSequentialParser() throws Exception {
+        StringBuilder content = new StringBuilder("# données de test\n");
+        for (int i = 0; i < 1000; i++) {
+            content.append("<http://ex.org/s").append(i % 97).append("> <http://ex.org/p").append(i % 5)
+                    .append("> \"o").append(i % 31).append("\" .\n");
+        }
+        File file = Files.writeString(tempDir.resolve("data.nt"), content).toFile();
+
+        RDFDictionary sequentialDictionary = new RDFDictionary();
+        List<String> sequential = new ArrayList<>();
+        try (FastNTriplesParser parser = new FastNTriplesParser(file)) {
+            parser.encodeInto(sequentialDictionary, (s, p, o) -> sequential.add(s + " " + p + " " + o));
+        }
+
+        for (int parallelism : new int[]{1, 3, 8}) {
+            RDFDictionary parallelDictionary = new RDFDictionary();
+            List<String> parallel = new ArrayList<>();
+            new ParallelNTriplesParser(file, parallelism)
+                    .encodeInto(parallelDictionary, (s, p, o) -> parallel.add(s + " " + p + " " + o));
+
+            assertEquals(sequential, parallel, "La lecture parallèle doit produire les mêmes triplets encodés.");
+            assertEquals(sequentialDictionary.size(), parallelDictionary.size());
+            for (int id = 0; id < parallelDictionary.size(); id++) {
+                assertEquals(sequentialDictionary.label(id), parallelDictionary.label(id));
+            }
+        }
+    }
+
+    @Test
+    void testEmptyFile() throws Exception {
+        RDFDictionary dictionary = new RDFDictionary();
+        new ParallelNTriplesParser(new File("src/test/resources/empty.nt"), 4)
+                .encodeInto(dictionary, (s, p, o) -> fail("Aucun triplet ne devrait être lu."));
+        assertEquals(0, dictionary.size());
+    }
+
+    @Test
+    void testMalformedFile() {
+        ParallelNTriplesParser parser = new ParallelNTriplesParser(new File("src/test/resources/malformed.nt"), 2);
+        assertThrows(IllegalArgumentException.class, () -> parser.encodeInto(new RDFDictionary(), (s, p, o) -> { }));
+        assertThrows(IllegalArgumentException.class, () -> new ParallelNTriplesParser(new File("x.nt"), 0));
+    }
+}
@@ -126,4 +126,79 @@ class StarQuerySparQLParserTest {
         }
     }
 
+    @Test
+    void testParseLimit() throws IOException {
+        String limitQueryFile = "src/test/resources/limit_query.queryset";
+
+        try (StarQuerySparQLParser parser = new StarQuerySparQLParser(limitQueryFile)) {
+            StarQuery sameLine = (StarQuery) parser.next();
+            StarQuery nextLine = (StarQuery) parser.next();
+            StarQuery unlimited = (StarQuery) parser.next();
+            StarQuery zero = (StarQuery) parser.next();
+            assertFalse(parser.hasNext(), "Une clause LIMIT ne devrait pas être lue comme une requête.");
+
+            assertEquals(100, sameLine.getLimit(), "La limite sur la ligne de l'accolade devrait être lue.");
+            assertEquals(5, nextLine.getLimit(), "La limite sur la ligne suivante devrait être lue.");
+            assertFalse(unlimited.hasLimit());
+            assertEquals(StarQuery.NO_LIMIT, unlimited.getLimit());
+            assertEquals(0, zero.getLimit());
+            assertEquals(sameLine.getRdfAtoms(), unlimited.getRdfAtoms());
+        }
+    }
+
+    @Test
+    void testParseOffsetIsRejected() throws IOException {
+        String offsetQueryFile = "src/test/resources/offset_query.queryset";
+
+        try (StarQuerySparQLParser parser = new StarQuerySparQLParser(offsetQueryFile)) {
+            RuntimeException exception = assertThrows(RuntimeException.class, parser::next,
+                    "Une clause OFFSET devrait lever une exception.");
+            assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        }
+    }
+
+    @Test
+    void testQueriesAfterAnOffsetAreRead() throws IOException {
+        String offsetQueryFile = "src/test/resources/offset_then_query.queryset";
+
+        try (StarQuerySparQLParser parser = new StarQuerySparQLParser(offsetQueryFile)) {
+            RuntimeException sameLine = assertThrows(RuntimeException.class, parser::next);
+            assertInstanceOf(IllegalArgumentException.class, sameLine.getCause());
+            RuntimeException nextLine = assertThrows(RuntimeException.class, parser::next,
+                    "Une clause OFFSET sur la ligne suivante devrait être rattachée à sa requête.");
+            assertInstanceOf(IllegalArgumentException.class, nextLine.getCause());
+
+            StarQuery limited = (StarQuery) parser.next();
+            StarQuery unlimited = (StarQuery) parser.next();
+            assertFalse(parser.hasNext());
+            assertEquals(3, limited.getLimit());
+            assertFalse(unlimited.hasLimit());
+        }
+    }
+
+    @Test
+    void testRepeatedQueriesAreParsedOnce() throws IOException {
+        String repeatedQueryFile = "src/test/resources/repeated_query.queryset";
+
+        try (StarQuerySparQLParser parser = new StarQuerySparQLParser(repeatedQueryFile)) {
+            Query first = parser.next();
+            Query second = parser.next();
+            Query third = parser.next();
+            assertFalse(parser.hasNext());
+
+            assertNotSame(first, second);
+            assertSame(first, third, "Une requête déjà lue devrait être reprise du cache.");
+            assertEquals(1, parser.cacheHits());
+        }
+
+        try (StarQuerySparQLParser parser = new StarQuerySparQLParser(repeatedQueryFile, 0)) {
+            Query first = parser.next();
+            parser.next();
+            Query third = parser.next();
+
+            assertNotSame(first, third, "Sans cache, chaque requête lue devrait être analysée.");
+            assertEquals(first, third);
+            assertEquals(0, parser.cacheHits());
+        }
+    }
 }
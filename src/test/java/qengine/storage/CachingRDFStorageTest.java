@@ -0,0 +1,210 @@
+package qengine.storage;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.factory.api.TermFactory;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import fr.boreal.model.logicalElements.impl.SubstitutionImpl;
+import org.junit.jupiter.api.Test;
+import qengine.model.RDFTriple;
+import qengine.model.StarQuery;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link CachingRDFStorage}.
+ */
+class CachingRDFStorageTest {
+
+    private final TermFactory termFactory = SameObjectTermFactory.instance();
+    private final Term likes = termFactory.createOrGetLiteral("http://example.org/likes");
+    private final Term type = termFactory.createOrGetLiteral("http://example.org/type");
+    private final Term book = termFactory.createOrGetLiteral("http://example.org/book");
+    private final Term person = termFactory.createOrGetLiteral("http://example.org/Person");
+    private final Term alice = termFactory.createOrGetLiteral("http://example.org/alice");
+    private final Term bob = termFactory.createOrGetLiteral("http://example.org/bob");
+
+    private CachingRDFStorage storage(long capacity) {
+        RDFHexaStore store = new RDFHexaStore();
+        store.addAll(List.of(new RDFTriple(alice, likes, book), new RDFTriple(alice, type, person),
+                new RDFTriple(bob, likes, book)));
+        return new CachingRDFStorage(store, capacity);
+    }
+
+    private StarQuery query(String label, Variable central, Variable type, boolean reversed) {
+        List<RDFTriple> triples = new ArrayList<>(List.of(new RDFTriple(central, likes, book),
+                new RDFTriple(central, this.type, type)));
+        if (reversed) {
+            triples = triples.reversed();
+        }
+        return new StarQuery(label, triples, List.of(central, type));
+    }
+
+    private static Set<Substitution> answers(Iterator<Substitution> it) {
+        Set<Substitution> answers = new HashSet<>();
+        it.forEachRemaining(answers::add);
+        return answers;
+    }
+
+    @Test
+    void testEquivalentQueriesShareAnswers() {
+        CachingRDFStorage storage = storage(CachingRDFStorage.DEFAULT_CAPACITY);
+        Variable x = termFactory.createOrGetVariable("?x");
+        Variable t = termFactory.createOrGetVariable("?t");
+        Variable y = termFactory.createOrGetVariable("?y");
+        Variable u = termFactory.createOrGetVariable("?u");
+
+        Set<Substitution> first = answers(storage.match(query("q1", x, t, false)));
+        assertEquals(0, storage.hits());
+        assertEquals(1, storage.misses());
+        assertEquals(1, first.size());
+
+        Set<Substitution> second = answers(storage.match(query("q2", y, u, true)));
+        assertEquals(1, storage.hits(), "Même requête au label, à l'ordre et aux variables près.");
+        assertEquals(answers(storage.match(query("q3", y, u, false))), second);
+        assertEquals(1, second.size());
+        Substitution answer = second.iterator().next();
+        assertEquals(alice, answer.createImageOf(y));
+        assertEquals(person, answer.createImageOf(u));
+    }
+
+    @Test
+    void testReorderedSamePredicatePatternsShareAnswers() {
+        CachingRDFStorage storage = storage(CachingRDFStorage.DEFAULT_CAPACITY);
+        storage.add(new RDFTriple(alice, likes, person));
+        Variable x = termFactory.createOrGetVariable("?x");
+        Variable y = termFactory.createOrGetVariable("?y");
+        Variable z = termFactory.createOrGetVariable("?z");
+        RDFTriple likesY = new RDFTriple(x, likes, y);
+        RDFTriple likesZ = new RDFTriple(x, likes, z);
+
+        Set<Substitution> first = answers(storage.match(new StarQuery("q1", List.of(likesY, likesZ), List.of(x, y))));
+        Set<Substitution> second = answers(storage.match(new StarQuery("q2", List.of(likesZ, likesY), List.of(x, y))));
+        assertEquals(1, storage.hits(), "Même requête à l'ordre des patrons de même prédicat près.");
+        assertEquals(1, storage.cachedQueries());
+        assertEquals(first, second);
+        assertEquals(3, second.size());
+        Substitution aliceLikesPerson = new SubstitutionImpl();
+        aliceLikesPerson.add(x, alice);
+        aliceLikesPerson.add(y, person);
+        assertTrue(second.contains(aliceLikesPerson));
+    }
+
+    @Test
+    void testCountsFromCache() {
+        CachingRDFStorage storage = storage(CachingRDFStorage.DEFAULT_CAPACITY);
+        Variable x = termFactory.createOrGetVariable("?x");
+        StarQuery likesBook = new StarQuery("q1", List.of(new RDFTriple(x, likes, book)), List.of(x));
+
+        assertEquals(2, storage.howMany(likesBook));
+        assertTrue(storage.ask(likesBook));
+        assertEquals(0, storage.cachedQueries(), "Compter ne remplit pas le cache.");
+        answers(storage.match(likesBook));
+        long hits = storage.hits();
+        assertEquals(2, storage.howMany(likesBook));
+        assertTrue(storage.ask(likesBook));
+        assertEquals(hits + 2, storage.hits());
+        assertFalse(storage.ask(new StarQuery("q2", List.of(new RDFTriple(x, likes, person)), List.of(x))));
+    }
+
+    @Test
+    void testAddInvalidates() {
+        CachingRDFStorage storage = storage(CachingRDFStorage.DEFAULT_CAPACITY);
+        Variable x = termFactory.createOrGetVariable("?x");
+        Variable t = termFactory.createOrGetVariable("?t");
+        assertEquals(1, answers(storage.match(query("q", x, t, false))).size());
+        assertEquals(1, storage.cachedQueries());
+
+        assertFalse(storage.add(new RDFTriple(alice, likes, book)), "Un triplet déjà présent ne vide pas le cache.");
+        assertEquals(1, storage.cachedQueries());
+
+        assertTrue(storage.add(new RDFTriple(bob, type, person)));
+        assertEquals(0, storage.cachedQueries());
+        assertEquals(2, answers(storage.match(query("q", x, t, false))).size());
+        assertEquals(2, storage.misses());
+    }
+
+    @Test
+    void testOnlyCompleteReadsAreCached() {
+        CachingRDFStorage storage = storage(CachingRDFStorage.DEFAULT_CAPACITY);
+        Variable x = termFactory.createOrGetVariable("?x");
+        StarQuery likesBook = new StarQuery("q", List.of(new RDFTriple(x, likes, book)), List.of(x));
+
+        Iterator<Substitution> partial = storage.match(likesBook);
+        partial.next();
+        assertEquals(0, storage.cachedQueries(), "Une lecture partielle n'est pas mise en cache.");
+
+        Iterator<Substitution> stale = storage.match(likesBook);
+        storage.add(new RDFTriple(termFactory.createOrGetLiteral("http://example.org/carol"), likes, book));
+        answers(stale);
+        assertEquals(0, storage.cachedQueries(), "Des réponses lues avant un ajout ne sont pas mises en cache.");
+
+        assertEquals(3, answers(storage.match(likesBook)).size());
+        assertEquals(1, storage.cachedQueries());
+    }
+
+    @Test
+    void testLimitedQueriesReadCachedAnswers() {
+        CachingRDFStorage storage = storage(CachingRDFStorage.DEFAULT_CAPACITY);
+        Variable x = termFactory.createOrGetVariable("?x");
+        StarQuery likesBook = new StarQuery("q", List.of(new RDFTriple(x, likes, book)), List.of(x));
+        StarQuery first = new StarQuery("q LIMIT 1", List.of(new RDFTriple(x, likes, book)), List.of(x), 1);
+
+        assertEquals(1, answers(storage.match(first)).size());
+        assertEquals(0, storage.cachedQueries(), "Les réponses d'une requête limitée ne sont pas mises en cache.");
+
+        Set<Substitution> all = answers(storage.match(likesBook));
+        assertEquals(1, storage.cachedQueries());
+        long hits = storage.hits();
+        Set<Substitution> limited = answers(storage.match(first));
+        assertEquals(1, limited.size());
+        assertTrue(all.containsAll(limited));
+        assertEquals(1, storage.howMany(first));
+        assertFalse(storage.ask(new StarQuery("q LIMIT 0", List.of(new RDFTriple(x, likes, book)), List.of(x), 0)));
+        assertEquals(hits + 3, storage.hits());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        // Chaque requête compte pour ses réponses plus une
+        CachingRDFStorage storage = storage(5);
+        Variable x = termFactory.createOrGetVariable("?x");
+        Variable t = termFactory.createOrGetVariable("?t");
+        StarQuery likesBook = new StarQuery("q1", List.of(new RDFTriple(x, likes, book)), List.of(x));
+        StarQuery types = new StarQuery("q2", List.of(new RDFTriple(x, type, t)), List.of(x, t));
+        StarQuery star = query("q3", x, t, false);
+
+        answers(storage.match(likesBook));
+        answers(storage.match(types));
+        answers(storage.match(likesBook));
+        assertEquals(2, storage.cachedQueries());
+        answers(storage.match(star));
+        assertEquals(2, storage.cachedQueries(), "types, le moins récemment lu, est évincé.");
+        long misses = storage.misses();
+        answers(storage.match(likesBook));
+        answers(storage.match(types));
+        assertEquals(misses + 1, storage.misses());
+    }
+    @Test
+    void testPreparedQueriesSubstituteParameters() {
+        CachingRDFStorage storage = storage(CachingRDFStorage.DEFAULT_CAPACITY);
+        Variable x = termFactory.createOrGetVariable("?x");
+        Variable o = termFactory.createOrGetVariable("?o");
+        PreparedStarQuery prepared = storage.prepare(
+                new StarQuery("t", List.of(new RDFTriple(x, likes, o)), List.of(x)), List.of(o));
+
+        Set<Substitution> expected = answers(storage.match(new StarQuery("q", List.of(new RDFTriple(x, likes, book)), List.of(x))));
+        assertEquals(2, expected.size());
+        assertEquals(expected, answers(prepared.execute(book)));
+        assertTrue(storage.hits() > 0, "L'instance préparée passe par le cache.");
+        assertFalse(prepared.execute(person).hasNext());
+        assertThrows(IllegalArgumentException.class, () -> prepared.execute(book, person));
+    }
+}
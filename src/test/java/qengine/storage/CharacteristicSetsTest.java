@@ -0,0 +1,66 @@
+package qengine.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qengine.storage.index.RegionFile;
+import qengine.storage.index.TripleIndex;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link CharacteristicSets}.
+ */
+class CharacteristicSetsTest {
+
+    // Sujets 1 et 2 : prédicats {10, 11} ; sujet 3 : prédicats {10} ; le sujet 1 porte deux objets pour 11
+    private static final int[] SPO = {
+            1, 10, 100, 1, 11, 101, 1, 11, 102,
+            2, 10, 100, 2, 11, 103,
+            3, 10, 104};
+
+    @Test
+    void testGroupsSubjectsByPredicateSet() {
+        CharacteristicSets sets = CharacteristicSets.of(TripleIndex.fromSorted(SPO, 6));
+        assertEquals(2, sets.size(), "Deux ensembles caractéristiques distincts : {10, 11} et {10}.");
+        assertEquals(0, CharacteristicSets.empty().size());
+    }
+
+    @Test
+    void testEstimate() {
+        CharacteristicSets sets = CharacteristicSets.of(TripleIndex.fromSorted(SPO, 6));
+
+        // Objets variables : l'estimation est exacte
+        assertEquals(3, sets.estimate(new int[]{10}, new double[]{1}, true), 1e-9);
+        assertEquals(2, sets.estimate(new int[]{10, 11}, new double[]{1, 1}, true), 1e-9);
+        assertEquals(3, sets.estimate(new int[]{10, 11}, new double[]{1, 1}, false), 1e-9,
+                "Le sujet 1 produit deux combinaisons, le sujet 2 une seule.");
+
+        // Prédicat inconnu ou combinaison absente
+        assertEquals(0, sets.estimate(new int[]{12}, new double[]{1}, true));
+        assertEquals(0, sets.estimate(new int[]{11, 12}, new double[]{1, 1}, true));
+
+        // Objet constant : pondération par la sélectivité
+        assertEquals(1.5, sets.estimate(new int[]{10}, new double[]{0.5}, true), 1e-9);
+    }
+
+    @Test
+    void testWriteAndRead(@TempDir Path directory) throws IOException {
+        CharacteristicSets sets = CharacteristicSets.of(TripleIndex.fromSorted(SPO, 6));
+        Path file = directory.resolve("characteristic_sets.bin");
+        try (RegionFile.Writer writer = new RegionFile.Writer(file, 0)) {
+            sets.write(writer);
+        }
+        CharacteristicSets read = CharacteristicSets.read(new RegionFile.Reader(file, 0));
+        assertEquals(2, read.size());
+        assertEquals(3, read.estimate(new int[]{10, 11}, new double[]{1, 1}, false), 1e-9);
+        assertEquals(0, read.estimate(new int[]{12}, new double[]{1}, true));
+
+        try (RegionFile.Writer writer = new RegionFile.Writer(file, 0)) {
+            CharacteristicSets.empty().write(writer);
+        }
+        assertEquals(0, CharacteristicSets.read(new RegionFile.Reader(file, 0)).size());
+    }
+}
@@ -0,0 +1,75 @@
+package qengine.storage;
+
+import fr.boreal.model.logicalElements.api.*;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import qengine.model.RDFTriple;
+import qengine.model.StarQuery;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link OffHeapHexaStore}, comparée à {@link RDFHexaStore}.
+ */
+public class OffHeapHexaStoreTest {
+    private static final Variable VAR_X = SameObjectTermFactory.instance().createOrGetVariable("?x");
+    private static final Variable VAR_Y = SameObjectTermFactory.instance().createOrGetVariable("?y");
+
+    private static Literal<String> literal(String value) {
+        return SameObjectTermFactory.instance().createOrGetLiteral(value);
+    }
+
+    /**
+     * Assez de termes pour faire grandir les tampons du dictionnaire et sa table de hachage hors du tas.
+     */
+    private static List<RDFTriple> triples() {
+        List<RDFTriple> triples = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            triples.add(new RDFTriple(literal("subject" + i), literal("predicate" + i % 3), literal("object" + i % 7)));
+            triples.add(new RDFTriple(literal("subject" + i), literal("label"), literal("un libellé un peu plus long n°" + i)));
+        }
+        triples.add(new RDFTriple(literal("subject1"), literal("predicate1"), literal("subject1")));
+        return triples;
+    }
+
+    @Test
+    public void testSameAnswersAsHeapStore() {
+        RDFHexaStore heap = new RDFHexaStore();
+        RDFHexaStore offHeap = new OffHeapHexaStore();
+        assertTrue(heap.addAll(triples().stream()));
+        assertTrue(offHeap.addAll(triples().stream()));
+
+        assertEquals(heap.size(), offHeap.size());
+        assertEquals(new HashSet<>(heap.getAtoms()), new HashSet<>(offHeap.getAtoms()));
+
+        RDFTriple pattern = new RDFTriple(VAR_X, literal("predicate1"), literal("object3"));
+        assertEquals(heap.howMany(pattern), offHeap.howMany(pattern));
+        assertEquals(1, offHeap.howMany(new RDFTriple(VAR_X, literal("predicate1"), VAR_X)));
+
+        StarQuery star = new StarQuery("q1", List.of(
+                new RDFTriple(VAR_X, literal("predicate2"), literal("object4")),
+                new RDFTriple(VAR_X, literal("label"), VAR_Y)), List.of(VAR_X, VAR_Y));
+        List<Substitution> expected = new ArrayList<>();
+        heap.match(star).forEachRemaining(expected::add);
+        List<Substitution> actual = new ArrayList<>();
+        offHeap.match(star).forEachRemaining(actual::add);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+        assertEquals(heap.estimate(star), offHeap.estimate(star));
+    }
+
+    @Test
+    public void testAddAfterIndexing() {
+        RDFHexaStore store = new OffHeapHexaStore();
+        store.addAll(triples());
+        long size = store.size();
+
+        // Les ajouts suivants fusionnent les nouveaux triplets dans des index recopiés hors du tas
+        assertFalse(store.add(new RDFTriple(literal("subject1"), literal("label"), literal("un libellé un peu plus long n°1"))));
+        assertTrue(store.add(new RDFTriple(literal("subject1"), literal("label"), literal("nouveau"))));
+        assertEquals(size + 1, store.size());
+        assertEquals(2, store.howMany(new RDFTriple(literal("subject1"), literal("label"), VAR_Y)));
+    }
+}
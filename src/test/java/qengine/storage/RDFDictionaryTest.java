@@ -0,0 +1,147 @@
+package qengine.storage;
+
+import fr.boreal.model.logicalElements.api.Literal;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qengine.storage.index.RegionFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link RDFDictionary}.
+ */
+class RDFDictionaryTest {
+    private static final Literal<String> TERM_1 = SameObjectTermFactory.instance().createOrGetLiteral("term1");
+    private static final Literal<String> TERM_2 = SameObjectTermFactory.instance().createOrGetLiteral("term2");
+
+    @Test
+    void testEncodeAssignsDenseIds() {
+        RDFDictionary dictionary = new RDFDictionary();
+        assertEquals(0, dictionary.encode(TERM_1), "Le premier terme devrait recevoir l'identifiant 0.");
+        assertEquals(1, dictionary.encode(TERM_2), "Le second terme devrait recevoir l'identifiant 1.");
+        assertEquals(0, dictionary.encode(TERM_1), "Un terme déjà encodé devrait conserver son identifiant.");
+        assertEquals(2, dictionary.size(), "Le dictionnaire devrait contenir deux termes.");
+    }
+
+    @Test
+    void testDecode() {
+        RDFDictionary dictionary = new RDFDictionary();
+        int id = dictionary.encode(TERM_2);
+        assertEquals(TERM_2, dictionary.decode(id), "Le décodage devrait retourner le terme encodé.");
+        assertThrows(IndexOutOfBoundsException.class, () -> dictionary.decode(42));
+    }
+
+    @Test
+    void testConcurrentDecode() throws Exception {
+        RDFDictionary dictionary = new RDFDictionary();
+        for (int i = 0; i < 10_007; i++) {
+            dictionary.encodeLiteral(("term" + i).getBytes(StandardCharsets.UTF_8), 0, ("term" + i).length());
+        }
+
+        // Après les écritures, plusieurs threads décodent tous les identifiants, dans des ordres différents (le nombre
+        // de termes est premier)
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Term[]>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int step = 2 * t + 1;
+                results.add(executor.submit(() -> {
+                    Term[] terms = new Term[dictionary.size()];
+                    for (int k = 0; k < terms.length; k++) {
+                        int id = (int) ((long) k * step % terms.length);
+                        terms[id] = dictionary.decode(id);
+                    }
+                    return terms;
+                }));
+            }
+            Term[] first = results.get(0).get();
+            for (Future<Term[]> result : results) {
+                Term[] terms = result.get();
+                for (int id = 0; id < terms.length; id++) {
+                    assertEquals("term" + id, terms[id].label());
+                    assertSame(first[id], terms[id], "Un identifiant doit toujours être décodé en le même terme.");
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testLookupDoesNotInsert() {
+        RDFDictionary dictionary = new RDFDictionary();
+        assertEquals(RDFDictionary.NOT_FOUND, dictionary.lookup(TERM_1), "Un terme inconnu ne devrait pas être trouvé.");
+        assertEquals(0, dictionary.size(), "lookup ne devrait pas modifier le dictionnaire.");
+        dictionary.encode(TERM_1);
+        assertEquals(0, dictionary.lookup(TERM_1));
+    }
+
+    @Test
+    void testMergeInto() {
+        RDFDictionary global = new RDFDictionary();
+        global.encode(TERM_2);
+        RDFDictionary local = new RDFDictionary();
+        local.encode(TERM_1);
+        local.encode(TERM_2);
+
+        int[] remap = local.mergeInto(global);
+        assertArrayEquals(new int[]{1, 0}, remap, "Chaque identifiant local devrait correspondre à l'identifiant global du terme.");
+        assertEquals(TERM_1, global.decode(remap[0]));
+        assertEquals(2, global.size(), "Un terme déjà présent ne devrait pas être ajouté une seconde fois.");
+    }
+
+    @Test
+    void testCompactKeepsIds(@TempDir Path directory) throws IOException {
+        RDFDictionary dictionary = new RDFDictionary();
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            // Préfixes communs, ordre d'insertion différent de l'ordre trié et octets non ASCII
+            labels.add("http://db.uwaterloo.ca/~galuc/wsdbm/" + (i % 2 == 0 ? "User" : "Produ\u00e9t") + (97 - i));
+        }
+        for (String label : labels) {
+            dictionary.encode(SameObjectTermFactory.instance().createOrGetLiteral(label));
+        }
+        dictionary.compact();
+        assertEquals(0, dictionary.recentSize(), "Le compactage devrait vider les termes récents.");
+
+        labels.add("http://db.uwaterloo.ca/~galuc/wsdbm/Retailer0");
+        assertEquals(100, dictionary.encode(SameObjectTermFactory.instance().createOrGetLiteral(labels.get(100))),
+                "Un terme ajouté après compactage devrait recevoir l'identifiant suivant.");
+        assertEquals(3, dictionary.encode(SameObjectTermFactory.instance().createOrGetLiteral(labels.get(3))),
+                "Un terme compacté devrait être retrouvé à l'encodage.");
+        assertCompactedLabels(labels, dictionary);
+
+        dictionary.compact();
+        assertCompactedLabels(labels, dictionary);
+
+        Path file = directory.resolve("dictionary.bin");
+        try (RegionFile.Writer writer = new RegionFile.Writer(file, 0)) {
+            dictionary.write(writer);
+        }
+        RDFDictionary reopened = RDFDictionary.read(new RegionFile.Reader(file, 0));
+        assertCompactedLabels(labels, reopened);
+        assertEquals(101, reopened.encode(TERM_1), "Un dictionnaire relu devrait accepter de nouveaux termes.");
+    }
+
+    private static void assertCompactedLabels(List<String> labels, RDFDictionary dictionary) {
+        assertEquals(labels.size(), dictionary.size());
+        assertEquals(RDFDictionary.NOT_FOUND, dictionary.lookup(TERM_2));
+        for (int id = 0; id < labels.size(); id++) {
+            byte[] utf8 = labels.get(id).getBytes(StandardCharsets.UTF_8);
+            assertEquals(labels.get(id), dictionary.label(id));
+            assertEquals(id, dictionary.lookupLiteral(utf8, 0, utf8.length));
+            assertEquals(labels.get(id), dictionary.decode(id).label());
+        }
+    }
+}
@@ -3,11 +3,17 @@ package qengine.storage;
 import fr.boreal.model.logicalElements.api.*;
 import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
 import fr.boreal.model.logicalElements.impl.SubstitutionImpl;
-import org.apache.commons.lang3.NotImplementedException;
 import qengine.model.RDFTriple;
+import qengine.model.StarQuery;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,6 +30,7 @@ public class RDFHexaStoreTest {
     private static final Literal<String> OBJECT_3 = SameObjectTermFactory.instance().createOrGetLiteral("object3");
     private static final Variable VAR_X = SameObjectTermFactory.instance().createOrGetVariable("?x");
     private static final Variable VAR_Y = SameObjectTermFactory.instance().createOrGetVariable("?y");
+    private static final Variable VAR_Z = SameObjectTermFactory.instance().createOrGetVariable("?z");
 
 
     @Test
@@ -54,19 +61,125 @@ public class RDFHexaStoreTest {
         assertTrue(atoms.contains(rdfAtom2), "La base devrait contenir le second RDFAtom ajouté.");
     }
 
+    @Test
+    public void testAddAllMergesWithExistingAtoms() {
+        RDFHexaStore store = new RDFHexaStore();
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1));
+        store.match(new RDFTriple(VAR_X, VAR_Y, VAR_Z)); // force l'indexation du premier triplet
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_2, OBJECT_2)); // reste en attente
+
+        // Doublons dans le flux, avec les triplets indexés et avec les triplets en attente
+        List<RDFTriple> batch = List.of(
+                new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1),
+                new RDFTriple(SUBJECT_2, PREDICATE_2, OBJECT_2),
+                new RDFTriple(SUBJECT_1, PREDICATE_2, OBJECT_3),
+                new RDFTriple(SUBJECT_1, PREDICATE_2, OBJECT_3));
+        assertTrue(store.addAll(batch.stream()), "Un nouveau triplet devrait être ajouté.");
+        assertEquals(3, store.size(), "Les doublons ne devraient pas être comptés.");
+        assertFalse(store.addAll(batch.stream()), "Aucun triplet nouveau ne devrait être ajouté.");
+        assertEquals(2, store.howMany(new RDFTriple(SUBJECT_1, VAR_X, VAR_Y)));
+    }
+
+    @Test
+    public void testAddAllMatchesIncrementalAdd() {
+        SameObjectTermFactory factory = SameObjectTermFactory.instance();
+        Random random = new Random(7);
+        List<RDFTriple> triples = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            triples.add(new RDFTriple(factory.createOrGetLiteral("s" + random.nextInt(300)),
+                    factory.createOrGetLiteral("p" + random.nextInt(5)),
+                    factory.createOrGetLiteral("o" + random.nextInt(100))));
+        }
+        RDFHexaStore bulk = new RDFHexaStore();
+        bulk.addAll(triples.stream());
+        RDFHexaStore incremental = new RDFHexaStore();
+        triples.forEach(incremental::add);
+
+        assertEquals(new HashSet<>(triples).size(), bulk.size());
+        assertEquals(new HashSet<>(incremental.getAtoms()), new HashSet<>(bulk.getAtoms()));
+        RDFTriple pattern = new RDFTriple(VAR_X, factory.createOrGetLiteral("p3"), factory.createOrGetLiteral("o42"));
+        assertEquals(incremental.howMany(pattern), bulk.howMany(pattern));
+    }
+
+    @Test
+    public void testAddsAfterLoadAreQueriedWithLoadedTriples() {
+        SameObjectTermFactory factory = SameObjectTermFactory.instance();
+        Random random = new Random(11);
+        List<RDFTriple> triples = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            triples.add(new RDFTriple(factory.createOrGetLiteral("s" + random.nextInt(300)),
+                    factory.createOrGetLiteral("p" + random.nextInt(5)),
+                    factory.createOrGetLiteral("s" + random.nextInt(400))));
+        }
+        RDFHexaStore store = new RDFHexaStore();
+        store.addAll(triples.subList(0, 2000).stream());
+        Term p1 = factory.createOrGetLiteral("p1");
+        Term p2 = factory.createOrGetLiteral("p2");
+        List<StarQuery> queries = List.of(
+                new StarQuery("q1", List.of(new RDFTriple(VAR_X, p1, VAR_Y), new RDFTriple(VAR_X, p2, VAR_Z)),
+                        List.of(VAR_X, VAR_Y, VAR_Z)),
+                new StarQuery("q2", List.of(new RDFTriple(VAR_X, p1, factory.createOrGetLiteral("s7"))), List.of(VAR_X)),
+                new StarQuery("q3", List.of(new RDFTriple(VAR_X, VAR_Y, VAR_X)), List.of(VAR_X, VAR_Y)));
+
+        // Ajouts isolés entre deux lectures, dont des triplets déjà chargés et des triplets réflexifs
+        List<RDFTriple> reflexives = new ArrayList<>();
+        for (int i = 2000; i < 3000; i += 50) {
+            triples.subList(i, i + 50).forEach(store::add);
+            store.add(triples.get(random.nextInt(i)));
+            RDFTriple reflexive = new RDFTriple(factory.createOrGetLiteral("s" + i % 300), p1,
+                    factory.createOrGetLiteral("s" + i % 300));
+            store.add(reflexive);
+            reflexives.add(reflexive);
+
+            // Référence chargée en une fois, sans ajouts récents
+            RDFHexaStore reference = new RDFHexaStore();
+            reference.addAll(Stream.concat(triples.subList(0, i + 50).stream(), reflexives.stream()));
+            assertEquals(reference.size(), store.size());
+            assertEquals(new HashSet<>(reference.getAtoms()), new HashSet<>(store.getAtoms()));
+            for (RDFTriple pattern : List.of(new RDFTriple(VAR_X, p1, VAR_Y), new RDFTriple(VAR_X, p1, VAR_X))) {
+                assertEquals(reference.howMany(pattern), store.howMany(pattern));
+            }
+            for (StarQuery query : queries) {
+                List<Substitution> expected = collect(reference.match(query));
+                assertEquals(new HashSet<>(expected), new HashSet<>(collect(store.match(query))), query.getLabel());
+                assertEquals(expected.size(), store.howMany(query), query.getLabel());
+                assertTrue(expected.isEmpty() || store.estimate(query) > 0, query.getLabel());
+            }
+        }
+    }
+
     @Test
     public void testAddRDFAtom() {
-        throw new NotImplementedException();
+        RDFHexaStore store = new RDFHexaStore();
+        RDFTriple rdfAtom = new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1);
+
+        assertTrue(store.add(rdfAtom), "Le RDFAtom devrait être ajouté avec succès.");
+        assertEquals(1, store.size(), "Le store devrait contenir un seul RDFAtom.");
+        assertTrue(store.getAtoms().contains(rdfAtom), "La base devrait contenir le RDFAtom ajouté.");
     }
 
     @Test
     public void testAddDuplicateAtom() {
-        throw new NotImplementedException();
+        RDFHexaStore store = new RDFHexaStore();
+        RDFTriple rdfAtom = new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1);
+
+        assertTrue(store.add(rdfAtom), "Le premier ajout devrait réussir.");
+        assertFalse(store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1)), "Un doublon ne devrait pas être ajouté.");
+        assertEquals(1, store.size(), "Le doublon ne devrait pas être compté.");
+        assertFalse(store.addAll(List.of(rdfAtom)), "addAll devrait retourner false si tous les atomes sont déjà présents.");
     }
 
     @Test
     public void testSize() {
-        throw new NotImplementedException();
+        RDFHexaStore store = new RDFHexaStore();
+        assertEquals(0, store.size(), "Un store vide devrait avoir une taille nulle.");
+
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_2));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_2, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1));
+        assertEquals(3, store.size(), "Le store devrait contenir trois RDFAtoms distincts.");
+        assertEquals(3, store.getAtoms().size(), "getAtoms devrait retourner trois RDFAtoms.");
     }
 
     @Test
@@ -88,16 +201,457 @@ public class RDFHexaStoreTest {
         secondResult.add(VAR_X, OBJECT_3);
 
         assertEquals(2, matchedList.size(), "There should be two matched RDFAtoms");
-        assertTrue(matchedList.contains(secondResult), "Missing substitution: " + firstResult);
+        assertTrue(matchedList.contains(firstResult), "Missing substitution: " + firstResult);
         assertTrue(matchedList.contains(secondResult), "Missing substitution: " + secondResult);
 
-        // Other cases
-        throw new NotImplementedException("This test must be completed");
+        // Case 2 : (X, predicate1, object2)
+        matchedList = collect(store.match(new RDFTriple(VAR_X, PREDICATE_1, OBJECT_2)));
+        assertEquals(List.of(substitution(VAR_X, SUBJECT_2)), matchedList, "Only subject2 matches (X, predicate1, object2)");
+
+        // Case 3 : (subject1, X, object3)
+        matchedList = collect(store.match(new RDFTriple(SUBJECT_1, VAR_X, OBJECT_3)));
+        assertEquals(List.of(substitution(VAR_X, PREDICATE_1)), matchedList, "Only predicate1 links subject1 to object3");
+
+        // Case 4 : (X, predicate1, Y)
+        matchedList = collect(store.match(new RDFTriple(VAR_X, PREDICATE_1, VAR_Y)));
+        assertEquals(3, matchedList.size(), "All three RDFAtoms use predicate1");
+        Substitution expected = substitution(VAR_X, SUBJECT_2);
+        expected.add(VAR_Y, OBJECT_2);
+        assertTrue(matchedList.contains(expected), "Missing substitution: " + expected);
+
+        // Case 5 : (X, Y, object1) et (subject1, X, Y)
+        assertEquals(1, collect(store.match(new RDFTriple(VAR_X, VAR_Y, OBJECT_1))).size());
+        assertEquals(2, collect(store.match(new RDFTriple(SUBJECT_1, VAR_X, VAR_Y))).size());
+
+        // Case 6 : aucun terme lié, et variable répétée
+        assertEquals(3, collect(store.match(new RDFTriple(VAR_X, VAR_Y, VAR_Z))).size());
+        assertTrue(collect(store.match(new RDFTriple(VAR_X, PREDICATE_1, VAR_X))).isEmpty(), "No RDFAtom has the same subject and object");
+
+        // Case 7 : triplet sans variable
+        assertEquals(List.of(new SubstitutionImpl()), collect(store.match(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1))));
+        assertTrue(collect(store.match(new RDFTriple(SUBJECT_2, PREDICATE_1, OBJECT_1))).isEmpty());
+
+        // Case 8 : constante inconnue du dictionnaire
+        assertTrue(collect(store.match(new RDFTriple(VAR_X, PREDICATE_2, OBJECT_1))).isEmpty());
+        assertEquals(0, store.howMany(new RDFTriple(VAR_X, PREDICATE_2, VAR_Y)));
+    }
+
+    @Test
+    public void testHowMany() {
+        RDFHexaStore store = new RDFHexaStore();
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_1, OBJECT_2));
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_2, OBJECT_3));
+
+        assertEquals(3, store.howMany(new RDFTriple(VAR_X, VAR_Y, VAR_Z)));
+        assertEquals(2, store.howMany(new RDFTriple(VAR_X, PREDICATE_1, VAR_Y)));
+        assertEquals(2, store.howMany(new RDFTriple(SUBJECT_1, VAR_X, VAR_Y)));
+        assertEquals(1, store.howMany(new RDFTriple(VAR_X, VAR_Y, OBJECT_2)));
+        assertEquals(1, store.howMany(new RDFTriple(SUBJECT_1, PREDICATE_2, VAR_X)));
+        assertEquals(1, store.howMany(new RDFTriple(SUBJECT_1, PREDICATE_2, OBJECT_3)));
+        assertEquals(0, store.howMany(new RDFTriple(SUBJECT_2, PREDICATE_2, OBJECT_3)));
+
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_2, SUBJECT_2));
+        assertEquals(1, store.howMany(new RDFTriple(VAR_X, VAR_Y, VAR_X)), "Une variable répétée doit lier la même valeur.");
+        assertEquals(0, store.howMany(new RDFTriple(VAR_X, PREDICATE_1, VAR_X)));
+        assertEquals(1, store.howMany(new RDFTriple(VAR_X, PREDICATE_2, VAR_X)));
+        assertEquals(0, store.howMany(new RDFTriple(SUBJECT_2, VAR_X, VAR_X)));
+        assertEquals(0, store.howMany(new RDFTriple(VAR_X, VAR_X, VAR_X)));
     }
 
     @Test
     public void testMatchStarQuery() {
-        throw new NotImplementedException();
+        RDFHexaStore store = new RDFHexaStore();
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_2, OBJECT_2));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_1, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_2, OBJECT_3));
+
+        // Un seul patron
+        StarQuery single = new StarQuery("q1", List.of(new RDFTriple(VAR_X, PREDICATE_1, OBJECT_1)), List.of(VAR_X));
+        List<Substitution> answers = collect(store.match(single));
+        assertEquals(2, answers.size(), "subject1 et subject2 devraient répondre");
+        assertTrue(answers.contains(substitution(VAR_X, SUBJECT_1)));
+        assertTrue(answers.contains(substitution(VAR_X, SUBJECT_2)));
+
+        // Deux patrons : intersection
+        StarQuery star = new StarQuery("q2", List.of(
+                new RDFTriple(VAR_X, PREDICATE_1, OBJECT_1),
+                new RDFTriple(VAR_X, PREDICATE_2, OBJECT_3)), List.of(VAR_X));
+        assertEquals(List.of(substitution(VAR_X, SUBJECT_2)), collect(store.match(star)));
+
+        // Variable centrale en position objet
+        StarQuery objectStar = new StarQuery("q3", List.of(
+                new RDFTriple(SUBJECT_1, PREDICATE_1, VAR_X),
+                new RDFTriple(SUBJECT_2, PREDICATE_1, VAR_X)), List.of(VAR_X));
+        assertEquals(List.of(substitution(VAR_X, OBJECT_1)), collect(store.match(objectStar)));
+
+        // Variable non centrale
+        StarQuery withOtherVariable = new StarQuery("q4", List.of(
+                new RDFTriple(VAR_X, PREDICATE_1, OBJECT_1),
+                new RDFTriple(VAR_X, PREDICATE_2, VAR_Y)), List.of(VAR_X, VAR_Y));
+        answers = collect(store.match(withOtherVariable));
+        Substitution expected = substitution(VAR_X, SUBJECT_1);
+        expected.add(VAR_Y, OBJECT_2);
+        assertEquals(2, answers.size());
+        assertTrue(answers.contains(expected), "Missing substitution: " + expected);
+
+        // Aucune réponse, et constante inconnue
+        StarQuery empty = new StarQuery("q5", List.of(
+                new RDFTriple(VAR_X, PREDICATE_1, OBJECT_2),
+                new RDFTriple(VAR_X, PREDICATE_2, OBJECT_2)), List.of(VAR_X));
+        assertFalse(store.match(empty).hasNext());
+        StarQuery unknown = new StarQuery("q6", List.of(
+                new RDFTriple(VAR_X, PREDICATE_1, SameObjectTermFactory.instance().createOrGetLiteral("unknown"))), List.of(VAR_X));
+        assertFalse(store.match(unknown).hasNext());
+    }
+
+    @Test
+    public void testMatchStarQueryWithVariablePositions() {
+        RDFHexaStore store = new RDFHexaStore();
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, SUBJECT_1));
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_2, OBJECT_2));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_1, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_2, OBJECT_2));
+
+        // Variable centrale répétée : seul subject1 est lié à lui-même
+        StarQuery repeated = new StarQuery("q1", List.of(
+                new RDFTriple(VAR_X, PREDICATE_1, VAR_X),
+                new RDFTriple(VAR_X, PREDICATE_2, OBJECT_2)), List.of(VAR_X));
+        assertEquals(List.of(substitution(VAR_X, SUBJECT_1)), collect(store.match(repeated)));
+
+        // Variable centrale en position prédicat
+        StarQuery predicate = new StarQuery("q2", List.of(
+                new RDFTriple(SUBJECT_1, VAR_X, OBJECT_2),
+                new RDFTriple(SUBJECT_2, VAR_X, VAR_Y)), List.of(VAR_X));
+        assertEquals(List.of(substitution(VAR_X, PREDICATE_2)), collect(store.match(predicate)));
+
+        // Patron sans constante : tous les sujets
+        StarQuery open = new StarQuery("q3", List.of(new RDFTriple(VAR_X, VAR_Y, VAR_Z)), List.of(VAR_X));
+        assertEquals(2, collect(store.match(open)).size());
+    }
+
+    @Test
+    public void testMatchIteratorsAreLazyAndProjected() {
+        RDFHexaStore store = new RDFHexaStore();
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_2, OBJECT_2));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_1, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_2, OBJECT_2));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_2, OBJECT_3));
+
+        // next() sans hasNext(), puis épuisement
+        Iterator<Substitution> iterator = store.match(new RDFTriple(VAR_X, PREDICATE_1, OBJECT_1));
+        assertEquals(substitution(VAR_X, SUBJECT_1), iterator.next());
+        assertEquals(substitution(VAR_X, SUBJECT_2), iterator.next());
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::next);
+
+        // Seule la variable réponse est décodée, et les doublons de projection sont écartés
+        StarQuery projected = new StarQuery("q1", List.of(
+                new RDFTriple(VAR_X, PREDICATE_1, OBJECT_1),
+                new RDFTriple(VAR_X, PREDICATE_2, VAR_Y)), List.of(VAR_Y));
+        List<Substitution> answers = collect(store.match(projected));
+        assertEquals(2, answers.size(), "object2 est atteint par les deux sujets mais ne doit apparaître qu'une fois.");
+        assertTrue(answers.contains(substitution(VAR_Y, OBJECT_2)));
+        assertTrue(answers.contains(substitution(VAR_Y, OBJECT_3)));
+
+        StarQuery centralOnly = new StarQuery("q2", List.of(
+                new RDFTriple(VAR_X, PREDICATE_2, VAR_Y)), List.of(VAR_X));
+        assertEquals(List.of(substitution(VAR_X, SUBJECT_1), substitution(VAR_X, SUBJECT_2)), collect(store.match(centralOnly)));
+    }
+
+    @Test
+    public void testEstimateStarQuery() {
+        RDFHexaStore store = new RDFHexaStore();
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_2, OBJECT_2));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_1, OBJECT_1));
+
+        StarQuery both = new StarQuery("q1", List.of(
+                new RDFTriple(VAR_X, PREDICATE_1, VAR_Y),
+                new RDFTriple(VAR_X, PREDICATE_2, VAR_Z)), List.of(VAR_X));
+        assertEquals(1, store.estimate(both), "Seul subject1 porte les deux prédicats.");
+
+        StarQuery single = new StarQuery("q2", List.of(new RDFTriple(VAR_X, PREDICATE_1, OBJECT_1)), List.of(VAR_X));
+        assertEquals(2, store.estimate(single));
+
+        // Les deux prédicats existent, mais aucun sujet ne porte les deux
+        RDFHexaStore disjoint = new RDFHexaStore();
+        disjoint.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1));
+        disjoint.add(new RDFTriple(SUBJECT_2, PREDICATE_2, OBJECT_2));
+        assertEquals(0, disjoint.estimate(both));
+        assertFalse(disjoint.match(both).hasNext());
+
+        StarQuery unknown = new StarQuery("q4", List.of(new RDFTriple(VAR_X, VAR_Y, SameObjectTermFactory.instance().createOrGetLiteral("unknown"))), List.of(VAR_X));
+        assertEquals(0, store.estimate(unknown));
+    }
+
+    @Test
+    public void testHowManyAndAskStarQuery() {
+        SameObjectTermFactory factory = SameObjectTermFactory.instance();
+        Random random = new Random(11);
+        RDFHexaStore store = new RDFHexaStore();
+        for (int i = 0; i < 3000; i++) {
+            store.add(new RDFTriple(factory.createOrGetLiteral("s" + random.nextInt(200)),
+                    factory.createOrGetLiteral("p" + random.nextInt(4)),
+                    factory.createOrGetLiteral("s" + random.nextInt(200))));
+        }
+        Term p0 = factory.createOrGetLiteral("p0");
+        Term p1 = factory.createOrGetLiteral("p1");
+        Term p2 = factory.createOrGetLiteral("p2");
+        Term s7 = factory.createOrGetLiteral("s7");
+        List<StarQuery> queries = List.of(
+                // Un seul patron, compté sur les index
+                new StarQuery("q1", List.of(new RDFTriple(VAR_X, p0, s7)), List.of(VAR_X)),
+                // Seule la variable centrale est projetée
+                new StarQuery("q2", List.of(new RDFTriple(VAR_X, p0, VAR_Y), new RDFTriple(VAR_X, p1, VAR_Z)), List.of(VAR_X)),
+                // Variables indépendantes, toutes projetées
+                new StarQuery("q3", List.of(new RDFTriple(VAR_X, p0, VAR_Y), new RDFTriple(VAR_X, p1, VAR_Z)),
+                        List.of(VAR_X, VAR_Y, VAR_Z)),
+                // Variable partagée par deux patrons
+                new StarQuery("q4", List.of(new RDFTriple(VAR_X, p0, VAR_Y), new RDFTriple(VAR_X, p1, VAR_Y)),
+                        List.of(VAR_X, VAR_Y)),
+                // Projection partielle, avec et sans la variable centrale
+                new StarQuery("q5", List.of(new RDFTriple(VAR_X, p0, VAR_Y), new RDFTriple(VAR_X, p2, VAR_Z)),
+                        List.of(VAR_X, VAR_Y)),
+                new StarQuery("q6", List.of(new RDFTriple(VAR_X, p0, VAR_Y), new RDFTriple(VAR_X, p2, VAR_Z)),
+                        List.of(VAR_Y)),
+                // Variable centrale répétée, et en position objet
+                new StarQuery("q7", List.of(new RDFTriple(VAR_X, VAR_Y, VAR_X)), List.of(VAR_X, VAR_Y)),
+                new StarQuery("q8", List.of(new RDFTriple(s7, VAR_Y, VAR_X), new RDFTriple(VAR_Z, p1, VAR_X)),
+                        List.of(VAR_X, VAR_Y, VAR_Z)),
+                // Aucune réponse
+                new StarQuery("q9", List.of(new RDFTriple(VAR_X, factory.createOrGetLiteral("unknown"), VAR_Y)),
+                        List.of(VAR_X)),
+                // Aucune variable projetée : une seule réponse, vide, s'il y en a
+                new StarQuery("q10", List.of(new RDFTriple(VAR_X, p0, s7)), List.of()),
+                new StarQuery("q11", List.of(new RDFTriple(VAR_X, p0, VAR_Y), new RDFTriple(VAR_X, p1, VAR_Z)), List.of()));
+        for (StarQuery query : queries) {
+            List<Substitution> answers = collect(store.match(query));
+            assertEquals(answers.size(), store.howMany(query), query.getLabel());
+            assertEquals(!answers.isEmpty(), store.ask(query), query.getLabel());
+        }
+        assertTrue(store.howMany(queries.get(2)) > 0);
+        assertFalse(store.ask(queries.get(8)));
+        assertEquals(1, store.howMany(queries.get(10)));
+    }
+
+    @Test
+    public void testLimitedStarQuery() {
+        SameObjectTermFactory factory = SameObjectTermFactory.instance();
+        Term type = factory.createOrGetLiteral("type");
+        Term likes = factory.createOrGetLiteral("likes");
+        Term knows = factory.createOrGetLiteral("knows");
+        RDFHexaStore store = new RDFHexaStore();
+        List<RDFTriple> triples = new ArrayList<>();
+        for (int i = 0; i < 12000; i++) {
+            Term subject = factory.createOrGetLiteral("s" + i);
+            // Listes assez longues pour être stockées en bitmaps
+            triples.add(new RDFTriple(subject, type, factory.createOrGetLiteral("T" + i % 2)));
+            triples.add(new RDFTriple(subject, likes, factory.createOrGetLiteral("L" + i / 2 % 2)));
+            triples.add(new RDFTriple(subject, knows, factory.createOrGetLiteral("s" + i % 50)));
+            triples.add(new RDFTriple(subject, knows, factory.createOrGetLiteral("s" + i % 70)));
+        }
+        store.addAll(triples);
+
+        RDFTriple t0 = new RDFTriple(VAR_X, type, factory.createOrGetLiteral("T0"));
+        RDFTriple l1 = new RDFTriple(VAR_X, likes, factory.createOrGetLiteral("L1"));
+        RDFTriple knowsY = new RDFTriple(VAR_X, knows, VAR_Y);
+        List<StarQuery> queries = List.of(
+                new StarQuery("single", List.of(t0), List.of(VAR_X)),
+                new StarQuery("central", List.of(t0, l1), List.of(VAR_X)),
+                new StarQuery("extended", List.of(t0, l1, knowsY), List.of(VAR_X, VAR_Y)),
+                new StarQuery("distinct", List.of(t0, knowsY), List.of(VAR_X)),
+                new StarQuery("projected", List.of(t0, knowsY), List.of(VAR_Y)));
+        for (StarQuery query : queries) {
+            Set<Substitution> all = new HashSet<>(collect(store.match(query)));
+            for (long limit : new long[]{0, 1, 7, 60, 5000, StarQuery.NO_LIMIT}) {
+                StarQuery limited = new StarQuery(query.getLabel(), query.getRdfAtoms(), query.getAnswerVariables(), limit);
+                String message = query.getLabel() + " LIMIT " + limit;
+                List<Substitution> answers = collect(store.match(limited));
+                assertEquals(Math.min(all.size(), limit), answers.size(), message);
+                assertEquals(answers.size(), new HashSet<>(answers).size(), message);
+                assertTrue(all.containsAll(answers), message);
+                assertEquals(answers.size(), store.howMany(limited), message);
+                assertEquals(!answers.isEmpty(), store.ask(limited), message);
+                assertEquals(answers.size(), collect(store.prepare(limited, List.of()).execute()).size(), message);
+                assertTrue(store.estimate(limited) <= limit, message);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchBatchMatchesSeparateEvaluation() {
+        SameObjectTermFactory factory = SameObjectTermFactory.instance();
+        Term type = factory.createOrGetLiteral("type");
+        Term likes = factory.createOrGetLiteral("likes");
+        Term knows = factory.createOrGetLiteral("knows");
+        RDFHexaStore store = new RDFHexaStore();
+        List<RDFTriple> triples = new ArrayList<>();
+        for (int i = 0; i < 12000; i++) {
+            Term subject = factory.createOrGetLiteral("s" + i);
+            // Listes assez longues pour être stockées en bitmaps, et d'autres plus courtes
+            triples.add(new RDFTriple(subject, type, factory.createOrGetLiteral("T" + i % 2)));
+            triples.add(new RDFTriple(subject, likes, factory.createOrGetLiteral("L" + i / 2 % 2)));
+            triples.add(new RDFTriple(subject, knows, factory.createOrGetLiteral("s" + i % 50)));
+        }
+        store.addAll(triples);
+
+        List<StarQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            List<RDFTriple> patterns = new ArrayList<>(List.of(
+                    new RDFTriple(VAR_X, type, factory.createOrGetLiteral("T" + i % 2)),
+                    new RDFTriple(VAR_X, likes, factory.createOrGetLiteral("L" + i / 3 % 2))));
+            if (i % 4 != 0) {
+                patterns.add(new RDFTriple(VAR_X, knows, factory.createOrGetLiteral("s" + i % 7)));
+            }
+            if (i % 5 == 0) {
+                patterns.add(new RDFTriple(VAR_X, knows, VAR_Y));
+            }
+            queries.add(new StarQuery("q" + i, patterns, i % 5 == 0 ? List.of(VAR_X, VAR_Y) : List.of(VAR_X)));
+        }
+        queries.add(new StarQuery("unknown", List.of(new RDFTriple(VAR_X, type, factory.createOrGetLiteral("T9"))),
+                List.of(VAR_X)));
+        queries.add(new StarQuery("object", List.of(new RDFTriple(factory.createOrGetLiteral("s3"), knows, VAR_X),
+                new RDFTriple(factory.createOrGetLiteral("s53"), knows, VAR_X)), List.of(VAR_X)));
+
+        List<Iterator<Substitution>> batch = store.matchBatch(queries);
+        assertEquals(queries.size(), batch.size());
+        for (int i = 0; i < queries.size(); i++) {
+            List<Substitution> expected = collect(store.match(queries.get(i)));
+            List<Substitution> actual = collect(batch.get(i));
+            assertEquals(expected.size(), actual.size(), queries.get(i).getLabel());
+            assertEquals(new HashSet<>(expected), new HashSet<>(actual), queries.get(i).getLabel());
+            // Comptage sur les bitmaps, sans construire leur intersection
+            assertEquals(expected.size(), store.howMany(queries.get(i)), queries.get(i).getLabel());
+            assertEquals(!expected.isEmpty(), store.ask(queries.get(i)), queries.get(i).getLabel());
+        }
+        assertFalse(collect(store.match(queries.get(1))).isEmpty());
+    }
+
+    @Test
+    public void testPreparedStarQuery() {
+        RDFHexaStore store = new RDFHexaStore();
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_2, OBJECT_2));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_1, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_2, OBJECT_3));
+
+        Variable parameter = SameObjectTermFactory.instance().createOrGetVariable("?p");
+        StarQuery template = new StarQuery("t", List.of(
+                new RDFTriple(VAR_X, PREDICATE_1, OBJECT_1),
+                new RDFTriple(VAR_X, PREDICATE_2, parameter)), List.of(VAR_X));
+        PreparedStarQuery prepared = store.prepare(template, List.of(parameter));
+        assertEquals(List.of(parameter), prepared.parameters());
+
+        // Chaque exécution répond comme la requête où le paramètre est remplacé par sa constante
+        for (Term value : List.of(OBJECT_2, OBJECT_3, OBJECT_1)) {
+            StarQuery instance = new StarQuery("q", List.of(
+                    new RDFTriple(VAR_X, PREDICATE_1, OBJECT_1),
+                    new RDFTriple(VAR_X, PREDICATE_2, value)), List.of(VAR_X));
+            assertEquals(collect(store.match(instance)), collect(prepared.execute(value)), "Valeur " + value);
+        }
+        assertEquals(List.of(substitution(VAR_X, SUBJECT_2)), collect(prepared.execute(OBJECT_3)));
+        assertFalse(prepared.execute(SameObjectTermFactory.instance().createOrGetLiteral("unknown")).hasNext());
+
+        // Paramètre en position sujet, variable centrale en position objet
+        StarQuery objectTemplate = new StarQuery("t2", List.of(
+                new RDFTriple(parameter, VAR_Y, VAR_X),
+                new RDFTriple(SUBJECT_1, PREDICATE_1, VAR_X)), List.of(VAR_X));
+        PreparedStarQuery objects = store.prepare(objectTemplate, List.of(parameter));
+        assertEquals(List.of(substitution(VAR_X, OBJECT_1)), collect(objects.execute(SUBJECT_2)));
+        assertFalse(objects.execute(OBJECT_1).hasNext());
+
+        // Constante du modèle absente à la préparation, ajoutée ensuite
+        Literal<String> later = SameObjectTermFactory.instance().createOrGetLiteral("later");
+        PreparedStarQuery pending = store.prepare(new StarQuery("t3", List.of(
+                new RDFTriple(VAR_X, PREDICATE_1, later),
+                new RDFTriple(VAR_X, PREDICATE_2, parameter)), List.of(VAR_X)), List.of(parameter));
+        assertFalse(pending.execute(OBJECT_2).hasNext());
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, later));
+        assertEquals(List.of(substitution(VAR_X, SUBJECT_1)), collect(pending.execute(OBJECT_2)));
+
+        assertThrows(IllegalArgumentException.class, () -> prepared.execute());
+        assertThrows(IllegalArgumentException.class, () -> store.prepare(template, List.of(VAR_X)),
+                "Une variable réponse ne peut pas être un paramètre.");
+        assertThrows(IllegalArgumentException.class, () -> store.prepare(template, List.of(VAR_Z)),
+                "Le paramètre doit apparaître dans le modèle.");
+    }
+
+    @Test
+    public void testSaveAndOpen(@TempDir Path directory) throws IOException {
+        RDFHexaStore store = new RDFHexaStore();
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_2, SUBJECT_1));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_1, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_2, OBJECT_2));
+        store.save(directory);
+
+        RDFHexaStore reopened = RDFHexaStore.open(directory);
+        assertEquals(store.size(), reopened.size());
+        assertEquals(new HashSet<>(store.getAtoms()), new HashSet<>(reopened.getAtoms()));
+        assertEquals(2, reopened.howMany(new RDFTriple(VAR_X, PREDICATE_1, OBJECT_1)));
+        assertEquals(1, reopened.howMany(new RDFTriple(VAR_X, PREDICATE_2, VAR_X)), "L'index réflexif doit être relu.");
+
+        StarQuery star = new StarQuery("q1", List.of(
+                new RDFTriple(VAR_X, PREDICATE_1, OBJECT_1),
+                new RDFTriple(VAR_X, PREDICATE_2, VAR_Y)), List.of(VAR_X, VAR_Y));
+        assertEquals(collect(store.match(star)), collect(reopened.match(star)));
+        assertEquals(store.estimate(star), reopened.estimate(star));
+
+        // Un store rouvert accepte de nouveaux termes et triplets, sans modifier les fichiers
+        assertFalse(reopened.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1)));
+        assertTrue(reopened.add(new RDFTriple(SUBJECT_2, PREDICATE_2, OBJECT_3)));
+        assertEquals(2, reopened.howMany(new RDFTriple(SUBJECT_2, PREDICATE_2, VAR_Z)));
+        assertEquals(store.size(), RDFHexaStore.open(directory).size());
+    }
+
+    @Test
+    public void testOpenMapsCharacteristicSets(@TempDir Path directory) throws IOException {
+        RDFHexaStore store = new RDFHexaStore();
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1));
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_2, OBJECT_2));
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_2, OBJECT_3));
+        store.add(new RDFTriple(SUBJECT_2, PREDICATE_1, OBJECT_2));
+        store.save(directory);
+
+        // Les ensembles caractéristiques sont relus à l'ouverture, sans parcourir l'index SPO
+        RDFHexaStore reopened = RDFHexaStore.open(directory);
+        assertTrue(reopened.hasCharacteristicSets(), "Les ensembles caractéristiques doivent être relus.");
+        StarQuery star = new StarQuery("q1", List.of(
+                new RDFTriple(VAR_X, PREDICATE_1, VAR_Y),
+                new RDFTriple(VAR_X, PREDICATE_2, VAR_Z)), List.of(VAR_X, VAR_Y, VAR_Z));
+        assertEquals(2, reopened.estimate(star));
+        assertEquals(store.estimate(star), reopened.estimate(star));
+        assertTrue(reopened.hasCharacteristicSets());
+
+        Files.delete(directory.resolve("characteristic_sets.bin"));
+        assertThrows(IOException.class, () -> RDFHexaStore.open(directory));
+    }
+
+    @Test
+    public void testOpenRejectsMissingOrInvalidFiles(@TempDir Path directory) throws IOException {
+        assertThrows(IOException.class, () -> RDFHexaStore.open(directory));
+
+        RDFHexaStore store = new RDFHexaStore();
+        store.add(new RDFTriple(SUBJECT_1, PREDICATE_1, OBJECT_1));
+        store.save(directory);
+        Files.copy(directory.resolve("spo.idx"), directory.resolve("dictionary.bin"),
+                StandardCopyOption.REPLACE_EXISTING);
+        assertThrows(IOException.class, () -> RDFHexaStore.open(directory));
+    }
+
+    private static List<Substitution> collect(Iterator<Substitution> iterator) {
+        List<Substitution> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+
+    private static Substitution substitution(Variable variable, Term term) {
+        Substitution substitution = new SubstitutionImpl();
+        substitution.add(variable, term);
+        return substitution;
     }
 
     // Vos autres tests d'HexaStore ici
@@ -0,0 +1,320 @@
+package qengine.storage.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour les classes {@link TripleIndex}, {@link TripleSorter} et {@link TripleBuffer}.
+ */
+class TripleIndexTest {
+
+    @Test
+    void testSortDistinct() {
+        int[] triples = {3, 1, 2, 1, 70000, 3, 1, 2, 9, 3, 1, 2, 1, 2, 3, 0, 0, 0};
+        int count = TripleSorter.sortDistinct(triples, 6);
+        assertEquals(5, count, "Le doublon (3, 1, 2) devrait être supprimé.");
+        assertArrayEquals(new int[]{0, 0, 0, 1, 2, 3, 1, 2, 9, 1, 70000, 3, 3, 1, 2},
+                Arrays.copyOf(triples, 3 * count));
+    }
+
+    @Test
+    void testSortMatchesComparatorOrder() {
+        Random random = new Random(42);
+        int count = 5_000;
+        int[] triples = new int[3 * count];
+        Set<List<Integer>> expected = new TreeSet<>((l, r) -> {
+            for (int k = 0; k < 3; k++) {
+                int cmp = Integer.compare(l.get(k), r.get(k));
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return 0;
+        });
+        for (int i = 0; i < count; i++) {
+            triples[3 * i] = random.nextInt(50);
+            triples[3 * i + 1] = random.nextInt(200_000);
+            triples[3 * i + 2] = random.nextInt(20);
+            expected.add(List.of(triples[3 * i], triples[3 * i + 1], triples[3 * i + 2]));
+        }
+        int distinct = TripleSorter.sortDistinct(triples, count);
+
+        List<List<Integer>> sorted = new ArrayList<>();
+        for (int i = 0; i < distinct; i++) {
+            sorted.add(List.of(triples[3 * i], triples[3 * i + 1], triples[3 * i + 2]));
+        }
+        assertEquals(new ArrayList<>(expected), sorted);
+    }
+
+    @Test
+    void testFromSortedAndLookups() {
+        int[] triples = {1, 2, 3, 1, 2, 4, 1, 5, 3, 4, 2, 3};
+        TripleIndex index = TripleIndex.fromSorted(triples, 4);
+
+        assertEquals(4, index.size());
+        assertTrue(index.contains(1, 2, 4));
+        assertFalse(index.contains(1, 5, 4));
+        assertFalse(index.contains(2, 2, 3), "La première clé 2 n'a aucun triplet.");
+        assertFalse(index.contains(99, 2, 3), "Une première clé hors de l'index n'a aucun triplet.");
+
+        int j = index.find(1, 2);
+        assertEquals(2, index.leafEnd(j) - index.leafStart(j), "Le couple (1, 2) a deux troisièmes clés.");
+        assertEquals(-1, index.find(1, 9));
+        assertEquals(2, index.firstEnd(1) - index.firstStart(1), "La première clé 1 a deux couples.");
+
+        List<Integer> thirds = new ArrayList<>();
+        index.forEachThird(1, 2, thirds::add);
+        assertEquals(List.of(3, 4), thirds);
+    }
+
+    @Test
+    void testMergeAndForEach() {
+        TripleIndex index = TripleIndex.fromSorted(new int[]{1, 2, 3, 4, 2, 3}, 2);
+        TripleIndex merged = index.merge(new int[]{0, 1, 1, 1, 2, 3, 1, 5, 6}, 3);
+
+        assertEquals(2, index.size(), "L'index d'origine ne devrait pas être modifié.");
+        assertEquals(4, merged.size(), "Le triplet (1, 2, 3) déjà présent ne devrait pas être dupliqué.");
+
+        List<String> all = new ArrayList<>();
+        merged.forEach((a, b, c) -> all.add(a + "" + b + c));
+        assertEquals(List.of("011", "123", "156", "423"), all, "Les triplets devraient être parcourus dans l'ordre de l'index.");
+
+        List<String> prefixed = new ArrayList<>();
+        merged.forEach(1, (a, b, c) -> prefixed.add(a + "" + b + c));
+        assertEquals(List.of("123", "156"), prefixed);
+        assertTrue(merged.estimateBytes() > 0);
+        assertEquals(0, TripleIndex.empty().size());
+    }
+
+    @Test
+    void testTripleBuffer() {
+        TripleBuffer buffer = new TripleBuffer();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(buffer.add(i, i % 7, i % 13));
+        }
+        assertFalse(buffer.add(10, 3, 10), "Un triplet déjà présent ne devrait pas être ajouté.");
+        assertTrue(buffer.contains(999, 999 % 7, 999 % 13));
+        assertFalse(buffer.contains(999, 0, 0));
+        assertEquals(1000, buffer.size());
+        assertArrayEquals(new int[]{0, 0, 0, 1, 1, 1}, Arrays.copyOf(buffer.toArray(), 6));
+
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void testPermute() {
+        int[] spo = {1, 2, 3};
+        assertArrayEquals(new int[]{2, 3, 1}, TripleOrder.POS.permute(spo, 1));
+        assertArrayEquals(new int[]{3, 1, 2}, TripleOrder.OSP.permute(spo, 1));
+    }
+
+    @Test
+    void testArrayIdCursorAdvance() {
+        int[] ids = {9, 1, 3, 5, 8, 13, 21, 34, 9};
+        IdCursor cursor = new ArrayIdCursor(ids, 1, 8);
+        assertEquals(-1, cursor.id());
+        assertEquals(7, cursor.size());
+        assertEquals(1, cursor.next());
+        assertEquals(8, cursor.advance(6), "advance devrait s'arrêter sur le premier identifiant supérieur ou égal.");
+        assertEquals(13, cursor.advance(13));
+        assertEquals(34, cursor.advance(22));
+        assertEquals(IdCursor.END, cursor.next(), "Le curseur ne devrait pas sortir de son intervalle.");
+        assertEquals(IdCursor.END, ArrayIdCursor.empty().next());
+    }
+
+    @Test
+    void testLeapfrogIntersection() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            List<IdCursor> cursors = new ArrayList<>();
+            Set<Integer> expected = null;
+            for (int list = 0; list < 1 + random.nextInt(4); list++) {
+                TreeSet<Integer> values = new TreeSet<>();
+                int size = random.nextInt(200);
+                for (int i = 0; i < size; i++) {
+                    values.add(random.nextInt(300));
+                }
+                cursors.add(new ArrayIdCursor(values.stream().mapToInt(Integer::intValue).toArray(), 0, values.size()));
+                if (expected == null) {
+                    expected = values;
+                } else {
+                    expected.retainAll(values);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            IdCursor intersection = LeapfrogIntersection.of(cursors);
+            for (int id = intersection.next(); id != IdCursor.END; id = intersection.next()) {
+                actual.add(id);
+            }
+            assertEquals(new ArrayList<>(expected), actual);
+        }
+    }
+
+    @Test
+    void testSortedIntersection() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            // Listes de tailles comparables (noyau vectoriel) ou déséquilibrées (recherche exponentielle)
+            int[] left = randomSortedIds(random, random.nextInt(2_000), 5_000);
+            int[] right = randomSortedIds(random, round % 2 == 0 ? random.nextInt(2_000) : random.nextInt(20), 5_000);
+            Set<Integer> expected = new TreeSet<>();
+            for (int id : left) {
+                expected.add(id);
+            }
+            expected.retainAll(Arrays.stream(right).boxed().toList());
+
+            int[] out = new int[SortedIntersection.outputLength(left.length, right.length)];
+            int count = SortedIntersection.intersect(left, left.length, right, right.length, out);
+            assertEquals(new ArrayList<>(expected), Arrays.stream(out, 0, count).boxed().toList());
+            assertEquals(count, SortedIntersection.scalar(left, left.length, right, right.length, out));
+            assertEquals(count, SortedIntersection.gallop(right, right.length, left, left.length, out));
+        }
+    }
+
+    @Test
+    void testCursors() {
+        TripleIndex index = TripleIndex.fromSorted(new int[]{1, 2, 3, 1, 2, 4, 1, 5, 3, 4, 2, 3}, 4);
+        assertEquals(List.of(1, 4), drain(index.firstCursor()));
+        assertEquals(List.of(2, 5), drain(index.secondCursor(1)));
+        assertEquals(List.of(3, 4), drain(index.thirdCursor(1, 2)));
+        assertEquals(List.of(), drain(index.thirdCursor(1, 3)));
+        assertEquals(List.of(), drain(index.secondCursor(42)));
+        assertEquals(3, index.count(1));
+        assertEquals(2, index.count(1, 2));
+        assertEquals(0, index.count(2));
+        assertEquals(0, index.count(4, 5));
+    }
+
+    @Test
+    void testCompressedLeaves() {
+        // Un couple (1, 2) à plusieurs blocs, avec des écarts de un à plusieurs octets
+        Random random = new Random(3);
+        TreeSet<Integer> values = new TreeSet<>();
+        while (values.size() < 1_000) {
+            values.add(random.nextInt(1 << (1 + random.nextInt(30))));
+        }
+        int[] triples = new int[3 * (values.size() + 1)];
+        int n = 0;
+        for (int value : values) {
+            triples[3 * n] = 1;
+            triples[3 * n + 1] = 2;
+            triples[3 * n + 2] = value;
+            n++;
+        }
+        triples[3 * n] = 3;
+        triples[3 * n + 1] = 4;
+        triples[3 * n + 2] = 5;
+        TripleIndex index = TripleIndex.fromSorted(triples, n + 1);
+
+        assertEquals(new ArrayList<>(values), drain(index.thirdCursor(1, 2)));
+        assertEquals(values.size(), index.count(1, 2));
+        assertTrue(index.contains(1, 2, values.last()));
+        assertFalse(index.contains(1, 2, values.last() + 1));
+        assertTrue(index.contains(3, 4, 5));
+
+        // advance saute des blocs entiers, y compris vers le dernier élément d'un bloc
+        List<Integer> sorted = new ArrayList<>(values);
+        for (int round = 0; round < 200; round++) {
+            int target = round == 0 ? values.last() + 1
+                    : Math.max(sorted.get(0) + 1, sorted.get(1 + random.nextInt(sorted.size() - 1)) - random.nextInt(2));
+            Integer expected = values.ceiling(target);
+            IdCursor cursor = index.thirdCursor(1, 2);
+            assertEquals(sorted.get(0), cursor.next());
+            assertEquals(expected == null ? IdCursor.END : expected, cursor.advance(target));
+            assertEquals(expected == null ? 0 : values.tailSet(expected, false).size(), cursor.size());
+        }
+
+        List<Integer> scanned = new ArrayList<>();
+        for (TripleIndex.Scan scan = index.scan(1); scan.next(); ) {
+            scanned.add(scan.third());
+        }
+        assertEquals(sorted, scanned);
+    }
+
+    @Test
+    void testBitmapLeaves() {
+        // Deux couples à conteneurs bitmap (denses) et tableaux (clairsemés), et une liste compressée
+        Random random = new Random(5);
+        List<TreeSet<Integer>> leaves = List.of(new TreeSet<>(), new TreeSet<>(), new TreeSet<>());
+        for (int l = 0; l < 2; l++) {
+            // Le second couple a deux conteneurs denses : toutes les combinaisons de conteneurs sont intersectées
+            while (leaves.get(l).size() < 30_000 * (l + 1)) {
+                leaves.get(l).add(random.nextInt(65_536 * (l + 1)));
+            }
+            while (leaves.get(l).size() < 30_000 * (l + 1) + 2_000) {
+                leaves.get(l).add(65_536 + random.nextInt(3 * 65_536));
+            }
+        }
+        while (leaves.get(2).size() < 3_000) {
+            leaves.get(2).add(random.nextInt(4 * 65_536));
+        }
+        int count = leaves.stream().mapToInt(Set::size).sum();
+        int[] triples = new int[3 * count];
+        int n = 0;
+        for (int l = 0; l < 3; l++) {
+            for (int value : leaves.get(l)) {
+                triples[3 * n] = 1;
+                triples[3 * n + 1] = 2 + l;
+                triples[3 * n + 2] = value;
+                n++;
+            }
+        }
+        TripleIndex index = TripleIndex.fromSorted(triples, count);
+
+        List<Integer> scanned = new ArrayList<>();
+        for (TripleIndex.Scan scan = index.scan(1, 2); scan.next(); ) {
+            scanned.add(scan.third());
+        }
+        assertEquals(new ArrayList<>(leaves.get(0)), scanned);
+        assertEquals(new ArrayList<>(leaves.get(1)), drain(index.thirdCursor(1, 3)));
+        assertTrue(index.contains(1, 3, leaves.get(1).last()));
+        assertFalse(index.contains(1, 3, leaves.get(1).last() + 1));
+
+        for (int round = 0; round < 500; round++) {
+            TreeSet<Integer> values = leaves.get(round % 2);
+            IdCursor cursor = index.thirdCursor(1, 2 + round % 2);
+            int previous = cursor.next();
+            for (int step = 0; step < 5; step++) {
+                int target = previous + 1 + random.nextInt(step % 2 == 0 ? 64 : 70_000);
+                Integer expected = values.ceiling(target);
+                previous = cursor.advance(target);
+                assertEquals(expected == null ? IdCursor.END : expected, previous);
+                assertTrue(cursor.size() >= (expected == null ? 0 : values.tailSet(expected, false).size()),
+                        "size doit rester un majorant.");
+                if (expected == null) {
+                    break;
+                }
+            }
+        }
+
+        // Les deux bitmaps sont intersectés par ET logique, puis avec la liste compressée
+        TreeSet<Integer> expected = new TreeSet<>(leaves.get(0));
+        expected.retainAll(leaves.get(1));
+        assertEquals(new ArrayList<>(expected),
+                drain(LeapfrogIntersection.of(List.of(index.thirdCursor(1, 2), index.thirdCursor(1, 3)))));
+        expected.retainAll(leaves.get(2));
+        assertEquals(new ArrayList<>(expected), drain(LeapfrogIntersection.of(
+                List.of(index.thirdCursor(1, 2), index.thirdCursor(1, 4), index.thirdCursor(1, 3)))));
+    }
+
+    private static int[] randomSortedIds(Random random, int size, int bound) {
+        return random.ints(size, 0, bound).distinct().sorted().toArray();
+    }
+
+    private static List<Integer> drain(IdCursor cursor) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = cursor.next(); id != IdCursor.END; id = cursor.next()) {
+            ids.add(id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,156 @@
+package qengine.workload;
+
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.factory.api.TermFactory;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+import qengine.model.RDFTriple;
+import qengine.model.StarQuery;
+import qengine.storage.RDFHexaStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour {@link Workload}, {@link LatencyStats}, {@link WorkloadExecutor} et {@link WorkloadReport}.
+ */
+class WorkloadTest {
+
+    private final TermFactory termFactory = SameObjectTermFactory.instance();
+    private final Variable x = termFactory.createOrGetVariable("?x");
+    private final Term likes = termFactory.createOrGetLiteral("http://example.org/likes");
+    private final Term type = termFactory.createOrGetLiteral("http://example.org/ns#type");
+
+    private StarQuery query(Term... objects) {
+        List<RDFTriple> triples = List.of(new RDFTriple(x, likes, objects[0]), new RDFTriple(x, type, objects[1]));
+        return new StarQuery("requête", triples, List.of(x));
+    }
+
+    @Test
+    void testTemplateAbstractsConstants() {
+        StarQuery first = query(termFactory.createOrGetLiteral("http://example.org/a"),
+                termFactory.createOrGetLiteral("http://example.org/Person"));
+        StarQuery second = query(termFactory.createOrGetLiteral("http://example.org/b"),
+                termFactory.createOrGetLiteral("http://example.org/Product"));
+        StarQuery third = query(termFactory.createOrGetLiteral("http://example.org/a"),
+                termFactory.createOrGetVariable("?t"));
+
+        assertEquals("?x likes %c . ?x type %c", Workload.template(first));
+        assertEquals(Workload.template(first), Workload.template(second),
+                "Les requêtes ne diffèrent que par leurs constantes.");
+        assertEquals("?x likes %c . ?x type ?t", Workload.template(third));
+        assertEquals(List.of("?x likes %c . ?x type %c", "?x likes %c . ?x type ?t"),
+                new Workload(List.of(first, second, third)).templates());
+    }
+
+    @Test
+    void testPreparedEngineMatchesAdHocEvaluation() {
+        Term a = termFactory.createOrGetLiteral("http://example.org/a");
+        Term b = termFactory.createOrGetLiteral("http://example.org/b");
+        Term person = termFactory.createOrGetLiteral("http://example.org/Person");
+        Workload.Instance first = Workload.parameterize(query(a, person));
+        Workload.Instance second = Workload.parameterize(query(b, person));
+        assertEquals(first.key(), second.key(), "Les deux requêtes partagent leur modèle.");
+        assertEquals(2, first.parameters().size());
+        assertArrayEquals(new Term[]{b, person}, second.values());
+
+        RDFHexaStore store = new RDFHexaStore();
+        Term alice = termFactory.createOrGetLiteral("http://example.org/alice");
+        Term bob = termFactory.createOrGetLiteral("http://example.org/bob");
+        store.addAll(List.of(new RDFTriple(alice, likes, a), new RDFTriple(alice, type, person),
+                new RDFTriple(bob, likes, b), new RDFTriple(bob, type, person)));
+        QueryEngine prepared = QueryEngine.prepared(store);
+        Workload workload = new Workload(List.of(query(a, person), query(b, person), query(a, b), query(a, person)));
+        assertEquals(WorkloadExecutor.answers(QueryEngine.of(store), workload), WorkloadExecutor.answers(prepared, workload));
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyStats stats = new LatencyStats();
+        assertEquals(0, stats.percentile(0.5));
+        for (int i = 100; i >= 1; i--) {
+            stats.add(i);
+        }
+        assertEquals(100, stats.count());
+        assertEquals(50, stats.percentile(0.5));
+        assertEquals(95, stats.percentile(0.95));
+        assertEquals(99, stats.percentile(0.99));
+        assertEquals(100, stats.max());
+        assertEquals(50.5, stats.mean(), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> stats.percentile(0));
+    }
+
+    @Test
+    void testRunAndReport() {
+        Term alice = termFactory.createOrGetLiteral("http://example.org/alice");
+        Term bob = termFactory.createOrGetLiteral("http://example.org/bob");
+        Term book = termFactory.createOrGetLiteral("http://example.org/book");
+        Term person = termFactory.createOrGetLiteral("http://example.org/Person");
+        RDFHexaStore store = new RDFHexaStore();
+        store.addAll(List.of(new RDFTriple(alice, likes, book), new RDFTriple(alice, type, person),
+                new RDFTriple(bob, likes, book), new RDFTriple(bob, type, person)));
+        Workload workload = new Workload(List.of(query(book, person), query(book, book)));
+
+        QueryEngine engine = QueryEngine.of(store);
+        WorkloadExecutor.Round round = WorkloadExecutor.run(engine, workload);
+        assertArrayEquals(new long[]{2, 0}, round.answers());
+        assertEquals(Set.of(List.of(alice), List.of(bob)), WorkloadExecutor.answers(engine, workload).get(0));
+
+        WorkloadReport report = new WorkloadReport();
+        report.add("hexastore", "warm", workload, List.of(round, WorkloadExecutor.run(engine, workload)));
+        List<WorkloadReport.Row> rows = report.rows();
+        assertEquals(2, rows.size(), "Un seul modèle, puis la ligne ALL.");
+        assertEquals(4, rows.get(0).stats().count());
+        assertEquals(WorkloadReport.ALL, rows.get(1).template());
+        assertTrue(rows.get(1).throughput() > 0);
+        assertEquals(0, rows.get(0).throughput());
+    }
+
+    @Test
+    void testParallelEvaluation() {
+        RDFHexaStore store = new RDFHexaStore();
+        List<StarQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Term subject = termFactory.createOrGetLiteral("http://example.org/s" + i);
+            Term object = termFactory.createOrGetLiteral("http://example.org/o" + i % 7);
+            // Ajouts un par un : les triplets restent en attente jusqu'à la première lecture
+            store.add(new RDFTriple(subject, likes, object));
+            store.add(new RDFTriple(subject, type, termFactory.createOrGetLiteral("http://example.org/T" + i % 3)));
+        }
+        for (int i = 0; i < 200; i++) {
+            queries.add(query(termFactory.createOrGetLiteral("http://example.org/o" + i % 7),
+                    termFactory.createOrGetLiteral("http://example.org/T" + i % 3)));
+        }
+
+        List<WorkloadExecutor.Result> parallel = WorkloadExecutor.evaluate(store, queries, 8);
+        List<WorkloadExecutor.Result> sequential = WorkloadExecutor.evaluate(store, queries, 1);
+        assertEquals(queries.size(), parallel.size());
+        for (int i = 0; i < queries.size(); i++) {
+            assertEquals(Set.copyOf(sequential.get(i).answers()), Set.copyOf(parallel.get(i).answers()),
+                    "Requête " + i + " : les réponses ne dépendent pas du parallélisme.");
+        }
+        assertTrue(parallel.stream().mapToInt(result -> result.answers().size()).sum() > 0);
+
+        WorkloadExecutor.Round round = WorkloadExecutor.run(QueryEngine.of(store), new Workload(queries), 4);
+        for (int i = 0; i < queries.size(); i++) {
+            assertEquals(sequential.get(i).answers().size(), round.answers()[i]);
+        }
+    }
+
+    @Test
+    void testParallelEvaluationPropagatesFailures() {
+        List<StarQuery> queries = Collections.nCopies(20, query(likes, type));
+        QueryEngine failing = query -> {
+            throw new IllegalStateException("échec");
+        };
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> WorkloadExecutor.evaluate(failing, queries, 4));
+        assertEquals("échec", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> WorkloadExecutor.evaluate(failing, queries, 0));
+    }
+}